@@ -0,0 +1,69 @@
+package lawnlayer;
+
+import org.openjdk.jmh.annotations.*;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the per-frame queries of agents: {@link Agent#getTile},
+ * {@link Agent#getSurroundingTiles} and {@link Enemy#checkCollision}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AgentBenchmark {
+
+    @Param({"level1.txt", "level2.txt", "128x64", "256x128"})
+    public String layout;
+
+    private GameState state;
+    private TileObject[][] map;
+    private TileObject[] allTileObjects;
+    private Enemy enemy;
+    private TileObject wallTile;
+
+    @Setup
+    public void setUp() throws IOException {
+        this.state = Boards.newGame(this.layout, 1, 0, 1);
+        this.map = this.state.getTileMap();
+        this.allTileObjects = this.state.allTileObjects();
+        this.enemy = this.state.getEnemies().get(0);
+        // move the enemy to the middle of the map
+        TileObject middle = this.map[this.map.length / 2][this.map[0].length / 2];
+        this.enemy.setX(middle.getX());
+        this.enemy.setY(middle.getY());
+        // soil tile next to the top left corner, 5 of 8 surrounding tiles are walls
+        this.wallTile = this.map[1][1];
+    }
+
+    @Benchmark
+    public TileObject getTile() {
+        return this.enemy.getTile(this.allTileObjects);
+    }
+
+    @Benchmark
+    public TileObject getTileMap() {
+        return this.enemy.getTile(this.map);
+    }
+
+    @Benchmark
+    public TileObject getTileGrid() {
+        return this.enemy.getTile(this.state.getGrid());
+    }
+
+    @Benchmark
+    public Neighbourhood getSurroundingTiles() {
+        return this.enemy.getSurroundingTiles(this.state.getGrid(), this.wallTile);
+    }
+
+    @Benchmark
+    public Enemy checkCollision() {
+        this.enemy.checkCollision(this.state, this.wallTile,
+                this.enemy.getSurroundingTiles(this.state.getGrid(), this.wallTile));
+        return this.enemy;
+    }
+}
@@ -0,0 +1,73 @@
+package lawnlayer;
+
+import org.openjdk.jmh.annotations.*;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks board-wide work of a frame: {@link GameState#allTileObjects()},
+ * {@link GameState#updateScore()}, a whole {@link GameState#step()} and the
+ * neighbour queries of all enemies in the {@link SpatialIndex}.
+ * {@link App} delegates these to its game state.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+
+    @Param({"level1.txt", "level2.txt", "128x64", "256x128"})
+    public String layout;
+
+    @Param({"4", "32", "128"})
+    public int enemies;
+
+    // from how many enemies they compute their intents in parallel
+    @Param({"512"})
+    public int parallelEnemies;
+
+    private GameState state;
+    private List<Enemy> neighbours = new ArrayList<Enemy>();
+
+    @Setup
+    public void setUp() throws IOException {
+        // half worms, half beetles; the idle player never dies, so the game never ends
+        this.state = Boards.newGame(this.layout, this.enemies / 2, this.enemies / 2, 1);
+        this.state.setParallelEnemies(this.parallelEnemies);
+    }
+
+    @Benchmark
+    public TileObject[] allTileObjects() {
+        return this.state.allTileObjects();
+    }
+
+    @Benchmark
+    public GameState updateScore() {
+        this.state.updateScore();
+        return this.state;
+    }
+
+    @Benchmark
+    public GameState step() {
+        this.state.step();
+        return this.state;
+    }
+
+    @Benchmark
+    public int enemyNeighbours() {
+        // broad phase of enemy-enemy collisions, one query per enemy
+        SpatialIndex agents = this.state.getAgents();
+        TileGrid grid = this.state.getGrid();
+        int found = 0;
+        for (Enemy enemy : this.state.getEnemies()) {
+            TileObject tile = enemy.getTile(grid);
+            this.neighbours.clear();
+            found += agents.query(tile.getRow(), tile.getCol(), 1, Enemy.class, this.neighbours);
+        }
+        return found;
+    }
+}
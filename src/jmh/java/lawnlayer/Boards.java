@@ -0,0 +1,66 @@
+package lawnlayer;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Builds headless game states for the benchmarks.
+ * <p>
+ * A layout is either a level file (e.g. <code>level1.txt</code>) or a grid size
+ * <code>COLSxROWS</code> (e.g. <code>128x64</code>), which generates an empty 
+ * layout with concrete walls.
+ */
+public class Boards {
+
+    /**
+     * Creates a game state playing the given layout with the given enemies.
+     * @param layout    a level file or a grid size <code>COLSxROWS</code>
+     * @param worms     the number of worms, spawned randomly
+     * @param beetles   the number of beetles, spawned randomly
+     * @param seed      the seed of the game
+     * @return          the game state, started at its only level
+     * @throws IOException if a generated layout cannot be written
+     */
+    public static GameState newGame(String layout, int worms, int beetles, long seed) 
+            throws IOException {
+        Level level = new Level(layoutFile(layout), "random", 0.8);
+        for (int i = 0; i < worms + beetles; i++) {
+            HashMap<String,Object> enemy = new HashMap<String,Object>();
+            enemy.put("type", i < worms ? 0 : 1);
+            enemy.put("spawn", "random");
+            level.addEnemy(enemy);
+        }
+        GameState state = new GameState(seed);
+        state.setLives(3);
+        state.getLevelList().add(level);
+        state.parseLevel(level);
+        return state;
+    }
+
+    /**
+     * Gets the level file of a layout, generating it if the layout is a grid size.
+     * @param layout    a level file or a grid size <code>COLSxROWS</code>
+     * @return          the path of the level file
+     * @throws IOException if a generated layout cannot be written
+     */
+    public static String layoutFile(String layout) throws IOException {
+        if (!layout.matches("\\d+x\\d+")) return layout;
+
+        String[] size = layout.split("x");
+        int cols = Integer.parseInt(size[0]);
+        int rows = Integer.parseInt(size[1]);
+        File file = File.createTempFile("layout" + layout, ".txt");
+        file.deleteOnExit();
+        try (PrintWriter out = new PrintWriter(new FileWriter(file))) {
+            for (int i = 0; i < rows; i++) {
+                StringBuilder line = new StringBuilder();
+                for (int j = 0; j < cols; j++) {
+                    boolean wall = i == 0 || i == rows-1 || j == 0 || j == cols-1;
+                    line.append(wall ? 'X' : ' ');
+                }
+                out.println(line);
+            }
+        }
+        return file.getPath();
+    }
+}
@@ -0,0 +1,83 @@
+package lawnlayer;
+
+import org.openjdk.jmh.annotations.*;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the area capture of the player: {@link Player#fillGrass} and
+ * {@link Player#getEncloseArea}, and the red path running along the player's
+ * path: {@link Player#propogate}.
+ * <p>
+ * A straight path is laid down from the top wall in the middle column. Paths 
+ * shorter than the map height do not enclose anything, so the capture floods 
+ * the whole soil area.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CaptureBenchmark {
+
+    @Param({"level1.txt", "level2.txt", "128x64"})
+    public String layout;
+
+    @Param({"8", "30"})
+    public int pathLength;
+
+    private GameState state;
+    private TileObject[][] map;
+    private Player player;
+    private int pathCol;
+
+    @Setup(org.openjdk.jmh.annotations.Level.Trial)
+    public void setUpBoard() throws IOException {
+        this.state = Boards.newGame(this.layout, 2, 0, 1);
+        this.map = this.state.getTileMap();
+        this.pathCol = this.map[0].length / 2;
+        // one player for the trial, so its capture scratch is reused as in a game
+        this.player = new Player(0, GameState.TOPBAR());
+    }
+
+    @Setup(org.openjdk.jmh.annotations.Level.Invocation)
+    public void setUpPath() {
+        // fillGrass fills the map and clears the path, lay it down again
+        for (TileObject tile : this.state.allTileObjects()) {
+            if (!tile.isConcrete()) tile.setSoil();
+        }
+        this.player.getPathTiles().clear();
+        int length = Math.min(this.pathLength, this.map.length - 2);
+        for (int i = 1; i <= length; i++) {
+            this.map[i][this.pathCol].setPath();
+            this.player.getPathTiles().add(this.map[i][this.pathCol]);
+        }
+        this.player.getTailCorners()[0] = this.map[1][this.pathCol - 1];
+        this.player.getTailCorners()[1] = this.map[1][this.pathCol + 1];
+    }
+
+    @Benchmark
+    public Player fillGrass() {
+        this.player.fillGrass(this.state.getGrid(), this.state.getEnemies());
+        return this.player;
+    }
+
+    @Benchmark
+    public List<TileObject> getEncloseArea() {
+        List<TileObject> area = new ArrayList<TileObject>();
+        this.player.getEncloseArea(this.state.getGrid(), 1, this.pathCol - 1, area);
+        return area;
+    }
+
+    @Benchmark
+    public Player propogate() {
+        // hit in the middle, propogate until both ends are red
+        Trail trail = this.player.getPathTiles();
+        this.player.initialPropogate(trail.get(trail.size() / 2));
+        while (this.player.getHitTileStart() != null || this.player.getHitTileEnd() != null)
+            this.player.propogate(this.player.getHitTileStart(), this.player.getHitTileEnd());
+        return this.player;
+    }
+}
@@ -0,0 +1,51 @@
+package lawnlayer;
+
+import org.openjdk.jmh.annotations.*;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link GameState#snapshot()} and {@link GameState#restore(GameState.Snapshot)}
+ * as a bot or rollback uses them: snapshot, play a few frames, restore. The tiles
+ * are shared with the snapshot until they change, so the cost should follow the
+ * chunks changed by the frames rather than the size of the tilemap.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class SnapshotBenchmark {
+
+    @Param({"256x128", "1024x1024", "4096x4096"})
+    public String layout;
+
+    @Param({"32"})
+    public int enemies;
+
+    private GameState state;
+    private GameState.Snapshot start;
+
+    @Setup
+    public void setUp() throws IOException {
+        this.state = Boards.newGame(this.layout, this.enemies / 2, this.enemies / 2, 1);
+        this.state.getPlayer().pressDown();
+        for (int i = 0; i < 60; i++)
+            this.state.step();
+        this.start = this.state.snapshot();
+    }
+
+    @Benchmark
+    public GameState.Snapshot snapshot() {
+        return this.state.snapshot();
+    }
+
+    @Benchmark
+    public GameState rollback() {
+        this.state.restore(this.start);
+        for (int i = 0; i < 4; i++)
+            this.state.step();
+        return this.state;
+    }
+}
@@ -0,0 +1,52 @@
+package lawnlayer;
+
+import org.openjdk.jmh.annotations.*;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the work of a frame on large tilemaps: a whole {@link GameState#step()},
+ * following the player with the {@link Camera} and finding the enemies in view
+ * in the {@link SpatialIndex}, as {@link App#draw()} does. The view is the size
+ * of the window, so finding the enemies in view should not grow with the tilemap.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ViewportBenchmark {
+
+    @Param({"256x128", "1024x1024", "4096x4096"})
+    public String layout;
+
+    @Param({"32", "1024"})
+    public int enemies;
+
+    private GameState state;
+    private Camera camera = new Camera(1280, 640);
+    private List<Enemy> visible = new ArrayList<Enemy>();
+
+    @Setup
+    public void setUp() throws IOException {
+        this.state = Boards.newGame(this.layout, this.enemies / 2, this.enemies / 2, 1);
+    }
+
+    @Benchmark
+    public GameState step() {
+        this.state.step();
+        return this.state;
+    }
+
+    @Benchmark
+    public int enemiesInView() {
+        this.camera.follow(this.state.getPlayer(), this.state.getGrid());
+        this.visible.clear();
+        return this.state.getAgents().query(this.camera.getFirstRow() - 1, 
+                this.camera.getFirstCol() - 1, this.camera.getLastRow() + 1, 
+                this.camera.getLastCol() + 1, Enemy.class, this.visible);
+    }
+}
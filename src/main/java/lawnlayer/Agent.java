@@ -1,81 +1,186 @@
 package lawnlayer;
 
-import java.util.HashMap;
-
 /**
  * Represents a game object that actively performs some actions.
  */
 public class Agent extends GameObject {
 
     protected final int PPF = 2; 
-    private final String[] KEYS = {
-        "moveUp",
-        "moveRight",
-        "moveDown",
-        "moveLeft"};
-    protected HashMap<Integer,String> movementIdx = new HashMap<Integer,String>();
-    protected HashMap<String,Boolean> movements = new HashMap<String,Boolean>();
+
+    /** Moving up. Directions combine as bits, e.g.<code>UP | RIGHT</code>. */
+    public static final int UP = 1;
+    /** Moving right. */
+    public static final int RIGHT = 1 << 1;
+    /** Moving down. */
+    public static final int DOWN = 1 << 2;
+    /** Moving left. */
+    public static final int LEFT = 1 << 3;
+    /** Both vertical directions, XOR with it to reflect vertical movement. */
+    public static final int VERTICAL = UP | DOWN;
+    /** Both horizontal directions, XOR with it to reflect horizontal movement. */
+    public static final int HORIZONTAL = RIGHT | LEFT;
+
+    protected int direction;
+    private int gridRows = GameState.DEFAULT_ROWS();
+    private int gridCols = GameState.DEFAULT_COLS();
+    private Neighbourhood neighbourhood = new Neighbourhood();
+
+    // cell and tile of this agent in a spatial index, see SpatialIndex
+    SpatialIndex index;
+    int cell = -1;
+    int tile = -1;
+    Agent prevInCell;
+    Agent nextInCell;
 
     /**
-     * Creates a new agent with specified (x,y) coordinates.
+     * Creates a new agent with specified (x,y) coordinates. The agent does not
+     * move until a direction is set.
      * @param x x-coordinate
      * @param y y-coordinate
      */
     public Agent(int x, int y) {
         super(x,y);
-        for (String value : KEYS)
-            movementIdx.put(movementIdx.size(), value);
-        for (String key : KEYS)
-            movements.put(key, false);
+    }
+
+    /**
+     * Gets the directions this agent moves in.
+     * @return the direction bits, see {@link #UP}, {@link #RIGHT}, {@link #DOWN}
+     *         and {@link #LEFT}
+     */
+    public int getDirection() {
+        return this.direction;
+    }
+
+    /**
+     * Sets the directions this agent moves in.
+     * @param direction the direction bits, 0 to stop
+     */
+    public void setDirection(int direction) {
+        this.direction = direction;
+    }
+
+    /**
+     * Checks if this agent moves in a direction.
+     * @param direction the direction bit
+     * @return          <code>true</code> if moving in that direction, otherwise <code>false</code>
+     */
+    public boolean isMoving(int direction) {
+        return (this.direction & direction) != 0;
     }
 
     /**
      * Updates this agent's movement and action. Called every frame.
      */
     public void tick() {
-        if (movements.get("moveUp"))
+        if ((this.direction & UP) != 0)
             this.setY(this.getY() - PPF);
-        if (movements.get("moveRight"))
+        if ((this.direction & RIGHT) != 0)
             this.setX(this.getX() + PPF);
-        if (movements.get("moveDown"))
+        if ((this.direction & DOWN) != 0)
             this.setY(this.getY() + PPF);
-        if (movements.get("moveLeft"))
+        if ((this.direction & LEFT) != 0)
             this.setX(this.getX() - PPF);
     }
 
+    /**
+     * Sets the size of the tilemap this agent moves in. Agents that are not part 
+     * of a game state move in a grid of default size.
+     * @param rows the number of rows in the tilemap
+     * @param cols the number of columns in the tilemap
+     */
+    public void setGridSize(int rows, int cols) {
+        this.gridRows = rows;
+        this.gridCols = cols;
+    }
+
     /**
      * Keeps the agent within the game area if it moves beyond boundaries.
      * @param x current x-coordinate of the agent
      * @param y current y-coordinate of the agent
      */
     public void snapBoundary(int x, int y) {
-        x = Math.max(x, App.SPRITESIZE()/2);
-        x = Math.min(x, App.SPRITESIZE() * App.GRID_COL() 
-                                    - App.SPRITESIZE()/2);
-        y = Math.max(y, App.TOPBAR() + App.SPRITESIZE()/2);
-        y = Math.min(y, App.TOPBAR() + App.SPRITESIZE() * App.GRID_ROW() 
-                                    - App.SPRITESIZE()/2);
+        x = Math.max(x, GameState.SPRITESIZE()/2);
+        x = Math.min(x, GameState.SPRITESIZE() * this.gridCols 
+                                    - GameState.SPRITESIZE()/2);
+        y = Math.max(y, GameState.TOPBAR() + GameState.SPRITESIZE()/2);
+        y = Math.min(y, GameState.TOPBAR() + GameState.SPRITESIZE() * this.gridRows 
+                                    - GameState.SPRITESIZE()/2);
 
         this.setX(x);
         this.setY(y);
     }
     
     /**
-     * Gets the tile where the agent is currently located in.
+     * Gets the tile where the agent is currently located in. The tile is found
+     * directly from the agent's coordinates, the array must be the tilemap in 
+     * row-major order (see {@link lawnlayer.GameState#allTileObjects()}). Falls
+     * back to searching all tiles if the array is in any other order.
      * @param allTileObjects all tile objects on screen
-     * @return               the agent's tile
+     * @return               the agent's tile, <code>null</code> if outside the tilemap
      */
     public TileObject getTile(TileObject[] allTileObjects) {
-        TileObject agentTile = null;
+        if (allTileObjects.length == 0) return null;
+        int row = this.getTileRow();
+        int col = this.getTileCol();
+        int cols = allTileObjects[allTileObjects.length-1].getCol() + 1;
+        if (row < 0 || col < 0) return null;
+
+        int idx = row * cols + col;
+        if (col < cols && idx < allTileObjects.length) {
+            TileObject tile = allTileObjects[idx];
+            if (tile.getRow() == row && tile.getCol() == col)
+                return tile;
+        }
+        // not a row-major tilemap, or outside of it
         for (TileObject tile : allTileObjects) {
-            if (this.getX() >= tile.getX()-App.SPRITESIZE()/2 && this.getX() < tile.getX()+App.SPRITESIZE()/2 && 
-                this.getY() >= tile.getY()-App.SPRITESIZE()/2 && this.getY() < tile.getY()+App.SPRITESIZE()/2) {
-                    agentTile = tile;
-            }               
+            if (tile.getRow() == row && tile.getCol() == col)
+                return tile;
         }
-        return agentTile;
+        return null;
     }
 
+    /**
+     * Gets the tile where the agent is currently located in.
+     * @param map the tilemap of this game
+     * @return    the agent's tile, <code>null</code> if outside the tilemap
+     */
+    public TileObject getTile(TileObject[][] map) {
+        int row = this.getTileRow();
+        int col = this.getTileCol();
+        if (row < 0 || row >= map.length || col < 0 || col >= map[row].length)
+            return null;
+        return map[row][col];
+    }
+
+    /**
+     * Gets the tile where the agent is currently located in. Only the views of
+     * the chunk of that tile are created, see {@link lawnlayer.TileGrid#getTile(int, int)}.
+     * @param grid the tile grid of this game
+     * @return     the agent's tile, <code>null</code> if outside the tilemap
+     */
+    public TileObject getTile(TileGrid grid) {
+        int row = this.getTileRow();
+        int col = this.getTileCol();
+        if (row < 0 || row >= grid.getRows() || col < 0 || col >= grid.getCols())
+            return null;
+        return grid.getTile(row, col);
+    }
+
+    /**
+     * Gets the row of the tile where the agent is currently located in.
+     * @return the row, negative if above the tilemap
+     */
+    public int getTileRow() {
+        return Math.floorDiv(this.getY() - GameState.TOPBAR(), GameState.SPRITESIZE());
+    }
+
+    /**
+     * Gets the column of the tile where the agent is currently located in.
+     * @return the column, negative if left of the tilemap
+     */
+    public int getTileCol() {
+        return Math.floorDiv(this.getX(), GameState.SPRITESIZE());
+    }
 
     /**
      * Get surrounding 8 tiles of the agent.
@@ -84,72 +189,13 @@ public class Agent extends GameObject {
      * <p> 6 7 8
      * <p> At the 4 walls and 4 corners of the tilemap, surrounding tiles on the 
      * same side cannot be obtained (e.g.at right wall, tile 3,5,8 cannot be obtained).
-     * @param map       the tilemap of this game
+     * <p> Each agent fills the same {@link lawnlayer.Neighbourhood} on every call,
+     * so the result is only valid until the next call.
+     * @param grid      the tile grid of this game
      * @param agentTile the agent's tile
-     * @return          the agent's surrounding 8 tiles in a <code>HashMap</code>
+     * @return          the agent's surrounding 8 tiles
      */
-    public HashMap<Integer,TileObject> getSurroundingTiles(TileObject[][] map, TileObject agentTile) {       
-        int idxX = agentTile.getRow();
-        int idxY = agentTile.getCol();
-        HashMap<Integer,TileObject> surroundingTiles = new HashMap<Integer,TileObject>();
-        
-        // left wall
-        if (idxY == 0) {
-            surroundingTiles.put(5, map[idxX][idxY+1]);    // 5
-            if (idxX != 0) { // not top-left corner
-                surroundingTiles.put(2, map[idxX-1][idxY]);    // 2
-                surroundingTiles.put(3, map[idxX-1][idxY+1]);  // 3
-            } 
-            if (idxX != map.length-1) { // not bottom-left corner
-                surroundingTiles.put(7, map[idxX+1][idxY]);    // 7
-                surroundingTiles.put(8, map[idxX+1][idxY+1]);   // 8
-            }
-        } 
-        // right wall
-        else if (idxY == map[0].length-1){
-            surroundingTiles.put(4, map[idxX][idxY-1]);    // 4
-            if (idxX != 0) { // not top-right corner
-                surroundingTiles.put(1, map[idxX-1][idxY-1]);  // 1
-                surroundingTiles.put(2, map[idxX-1][idxY]);    // 2
-            }
-            if (idxX != map.length-1) { // not bottom-right corner
-                surroundingTiles.put(6, map[idxX+1][idxY-1]);  // 6
-                surroundingTiles.put(7, map[idxX+1][idxY]);    // 7
-            }
-        }
-        // top wall 
-        else if (idxX == 0) {
-            surroundingTiles.put(7, map[idxX+1][idxY]);    // 7
-            if (idxY != 0) { // not top-left corner
-                surroundingTiles.put(4, map[idxX][idxY-1]);    // 4
-                surroundingTiles.put(6, map[idxX+1][idxY-1]);  // 6
-            }
-            if (idxY != map[0].length-1) { // not top-right corner
-                surroundingTiles.put(5, map[idxX][idxY+1]);    // 5
-                surroundingTiles.put(8, map[idxX+1][idxY+1]);  // 8
-            }
-        }
-        // bottom wall 
-        else if (idxX == map.length-1) {
-            surroundingTiles.put(2, map[idxX-1][idxY]);    // 2
-            if (idxY != 0) { // not bottom-left corner
-                surroundingTiles.put(1, map[idxX-1][idxY-1]);  // 1
-                surroundingTiles.put(4, map[idxX][idxY-1]);    // 4
-            }
-            if (idxY != map[0].length-1) { // not bottom-right corner
-                surroundingTiles.put(3, map[idxX-1][idxY+1]);  // 3
-                surroundingTiles.put(5, map[idxX][idxY+1]);    // 5
-            }
-        } else {
-            surroundingTiles.put(1, map[idxX-1][idxY-1]);  // 1
-            surroundingTiles.put(2, map[idxX-1][idxY]);    // 2
-            surroundingTiles.put(3, map[idxX-1][idxY+1]);  // 3
-            surroundingTiles.put(4, map[idxX][idxY-1]);    // 4
-            surroundingTiles.put(5, map[idxX][idxY+1]);    // 5
-            surroundingTiles.put(6, map[idxX+1][idxY-1]);  // 6
-            surroundingTiles.put(7, map[idxX+1][idxY]);    // 7
-            surroundingTiles.put(8, map[idxX+1][idxY+1]);  // 8
-        }
-        return surroundingTiles;
+    public Neighbourhood getSurroundingTiles(TileGrid grid, TileObject agentTile) {
+        return this.neighbourhood.fill(grid, agentTile);
     }
 }
@@ -6,11 +6,12 @@ package lawnlayer;
 import processing.core.PApplet;
 import processing.core.PImage;
 import processing.core.PFont;
-import processing.data.JSONObject;
-import processing.data.JSONArray;
 import java.util.*;
+import java.util.concurrent.*;
 import java.io.*;
-import javax.sound.sampled.*;
+import java.nio.file.Paths;
+import java.awt.Font;
+import java.awt.FontFormatException;
 
 /**
  * Base class for the game. Represents the gameboard that has general control and 
@@ -21,55 +22,57 @@ public class App extends PApplet {
     // window size 1280 x 720px
     private static final int WIDTH = 1280;
     private static final int HEIGHT = 720;
-    // sprite 20 x 20px
-    private static final int SPRITESIZE = 20;
-    private static final int TOPBAR = 80;
-    // Grid is 64col x 32row
-    private static final int GRID_COL = WIDTH / SPRITESIZE;
-    private static final int GRID_ROW = (HEIGHT - TOPBAR) / SPRITESIZE; 
-
-    private static final int FPS = 60; 
-
-    // map
-    private TileObject[][] tileMap;
-
-    // game and level data
-    private List<Level> levelList;
-    private Level currentLevel;
-    private int lives;
-    private double score;
-
-    private Player player;
-    private List<Enemy> allEnemies;
-    private Powerup powerup; // only 1 powerup at a time present on screen
-    private boolean powerupInEffect;
-    private int defaultTimer = 10; // duration and delay
-	private int powerupTimer;
-    private String powerupKeyText;
-    private int delayInterval;
+
+    // frame timing: times are kept for a window of frames, then logged and reset
+    private static final int PROFILE_WINDOW = 3600;
+    private static final int OVERLAY_REFRESH = 30;
+    private static final int OVERLAY_KEY = 114; // F3
+
+    // simulation core
+    private GameState state;
     private String configPath;
-    private String timestopSfxPath;
-    private String invincibleSfxPath;
+    private Replay recording;
+    private String recordingPath;
+    private String timestopSfx;
+    private String invincibleSfx;
+    private SoundPlayer sound;
 
     private Map<String,PImage> sprites;
+    private TileLayer tileLayer;
+    private Camera camera;
+    private List<Enemy> visibleEnemies;
+    private Future<PImage> winScreen;
+    private Future<PImage> loseScreen;
+
+    // top bar texts
+    private PFont hudFont;
+    private HudText livesText;
+    private HudText scoreText;
+    private HudText levelText;
+    private HudText powerupText;
+
+    // frame timing overlay and log
+    private FrameProfiler profiler;
+    private boolean profilerShown;
+    private HudText[] profilerTexts;
+    private String[] profilerLines;
+    private String frameLogPath;
+    private Writer frameLog;
     
     private int colorWheel = 0;
     private int brightnessWheel = 255;
 
-    private boolean gameOver;
-
     // -------------- CONSTRUCTOR -----------------
     /**
      * App class constructor. Creates a new app (i.e.game instance).
      */
     public App() {
         this.configPath = "config.json";
-        this.tileMap = new TileObject[App.GRID_ROW()][App.GRID_COL()]; 
-        this.levelList = new ArrayList<Level>();
-        this.allEnemies = new ArrayList<Enemy>();
-
-        // delay interval random between 1~10s (60~600 frames) for 60FPS
-        this.delayInterval = (new Random().nextInt(this.defaultTimer) + 1) * App.FPS;
+        this.state = new GameState();
+        this.camera = new Camera(WIDTH, HEIGHT - GameState.TOPBAR());
+        this.visibleEnemies = new ArrayList<Enemy>();
+        this.profiler = new FrameProfiler();
+        this.state.setProfiler(this.profiler);
     }
 
     // -------------- GETTER/SETTER -----------------
@@ -78,40 +81,39 @@ public class App extends PApplet {
      * @return the sprite size as an integer
      */
     public static int SPRITESIZE() {
-        return SPRITESIZE;
+        return GameState.SPRITESIZE();
     }
 
     /**
-     * Gets the number of rows in the grid map. Game area is defined as a grid-based 
-     * tile map.
-     * @return the number of rows in the grid map
+     * Gets the size of top bar where game information (lives,goal,level etc.) is displayed.
+     * @return the vertical length of the top bar
      */
-    public static int GRID_ROW() {
-        return GRID_ROW;
+    public static int TOPBAR() {
+        return GameState.TOPBAR();
     }
 
     /**
-     * Gets the number of columns in the grid map.
-     * @return the number of columns in the grid map
+     * Gets the FPS of this app.
+     * @return integer FPS value
      */
-    public static int GRID_COL() {
-        return GRID_COL;
+    public static int FPS() {
+        return GameState.FPS();
     }
 
     /**
-     * Gets the size of top bar where game information (lives,goal,level etc.) is displayed.
-     * @return the vertical length of the top bar
+     * Gets the simulation core rendered by this app.
+     * @return the {@link GameState}
      */
-    public static int TOPBAR() {
-        return TOPBAR;
+    public GameState getState() {
+        return this.state;
     }
 
     /**
-     * Gets the FPS of this app.
-     * @return integer FPS value
+     * Gets the profiler timing the phases of every frame.
+     * @return the {@link FrameProfiler}
      */
-    public static int FPS() {
-        return FPS;
+    public FrameProfiler getProfiler() {
+        return this.profiler;
     }
 
     /**
@@ -119,7 +121,7 @@ public class App extends PApplet {
      * @return the list of all {@link Level} 
      */
     public List<Level> getLevelList() {
-        return this.levelList;
+        return this.state.getLevelList();
     }
 
     /**
@@ -127,7 +129,7 @@ public class App extends PApplet {
      * @return the current {@link Level}
      */
     public Level getCurrentLevel() {
-        return this.currentLevel;
+        return this.state.getCurrentLevel();
     }
 
     /**
@@ -135,7 +137,7 @@ public class App extends PApplet {
      * @param lives the integer number of lives to be updated
      */
     public void setLives(int lives) {
-        this.lives = lives;
+        this.state.setLives(lives);
     }
 
     /**
@@ -143,7 +145,7 @@ public class App extends PApplet {
      * @return the integer number of lives
      */
     public int getLives() {
-        return this.lives;
+        return this.state.getLives();
     }
 
     /**
@@ -151,7 +153,7 @@ public class App extends PApplet {
      * @return the player
      */
     public Player getPlayer() {
-        return this.player;
+        return this.state.getPlayer();
     }
 
     /**
@@ -159,21 +161,15 @@ public class App extends PApplet {
      * @return the 2d tilemap
      */
     public TileObject[][] getTileMap() {
-        return this.tileMap;
+        return this.state.getTileMap();
     } 
 
     /**
-     * Gets all the tile objects of this level.
-     * @return all tile objects in a single array
+     * Gets all the tile objects of this level. See {@link GameState#allTileObjects()}.
+     * @return all tile objects in a single row-major array
      */
     public TileObject[] allTileObjects() {
-        ArrayList<TileObject> tmp = new ArrayList<TileObject>();
-        for (int i = 0; i < tileMap.length; i++) {
-            for (int j = 0; j < tileMap[i].length; j++) {
-                tmp.add(tileMap[i][j]);
-            }
-        }
-        return tmp.toArray(new TileObject[0]);
+        return this.state.allTileObjects();
     }
 
     /**
@@ -181,7 +177,7 @@ public class App extends PApplet {
      * @return all enemies in a single list
      */
     public List<Enemy> getEnemies() {
-        return this.allEnemies;
+        return this.state.getEnemies();
     }
 
     /**
@@ -197,39 +193,39 @@ public class App extends PApplet {
      * @return the {@link Powerup} object
      */
     public Powerup getPowerup() {
-        return this.powerup;
+        return this.state.getPowerup();
     }
 
     public void setDelayInterval(int value) {
-        this.delayInterval = value;
+        this.state.setDelayInterval(value);
     } 
 
     public int getDelayInterval() {
-        return this.delayInterval;
+        return this.state.getDelayInterval();
     }
 
     public void setPowerupInEffect(boolean value) {
-        this.powerupInEffect = value;
+        this.state.setPowerupInEffect(value);
     }
 
     public boolean isPowerupInEffect() {
-        return this.powerupInEffect;
+        return this.state.isPowerupInEffect();
     }
 
     public void setPowerupTimer(int value) {
-        this.powerupTimer = value;
+        this.state.setPowerupTimer(value);
     }
 
     public int getPowerupTimer() {
-        return this.powerupTimer;
+        return this.state.getPowerupTimer();
     }
 
     public void setGameOver(boolean value) {
-        this.gameOver = value;
+        this.state.setGameOver(value);
     }
 
     public boolean isGameOver() {
-        return this.gameOver;
+        return this.state.isGameOver();
     }
 
     //------------------- Setting up ----------------------------
@@ -247,102 +243,143 @@ public class App extends PApplet {
      */
     public void setup() {
         
-        frameRate(FPS);
-
-        this.sprites = new HashMap<String,PImage>();
-        // Load sprites during setup
-        this.sprites.put("grass", loadImage(this.getClass().getResource("grass.png")
-                            .getPath().replace("%20"," "))); 
-        this.sprites.put("concrete", loadImage(this.getClass().getResource("concrete_tile.png")
-                            .getPath().replace("%20"," ")));      
-        this.sprites.put("beetle", loadImage(this.getClass().getResource("beetle.png")
-                            .getPath().replace("%20"," ")));
-        this.sprites.put("worm", loadImage(this.getClass().getResource("worm.png")
-                            .getPath().replace("%20"," ")));
-        this.sprites.put("player", loadImage(this.getClass().getResource("ball.png")
-                            .getPath().replace("%20"," ")));
-        this.sprites.put("path", loadImage(this.getClass().getResource("path.png")
-                            .getPath().replace("%20"," ")));
-        this.sprites.put("hitPath", loadImage(this.getClass().getResource("hitPath.png")
-                            .getPath().replace("%20"," ")));
-        this.sprites.put("invincible", loadImage(this.getClass().getResource("power.png")
-                            .getPath().replace("%20"," ")));
-        this.sprites.put("rainbowPlayer", loadImage(this.getClass().getResource("rainbow.png")
-                            .getPath().replace("%20"," ")));
-        this.sprites.put("enemyClown", loadImage(this.getClass().getResource("clown.png")
-                            .getPath().replace("%20"," ")));
-        this.sprites.put("stopTime", loadImage(this.getClass().getResource("time.png")
-                            .getPath().replace("%20"," ")));
-        this.sprites.put("enemyFrozen", loadImage(this.getClass().getResource("frozen.png")
-                            .getPath().replace("%20"," ")));
-        this.sprites.put("win", loadImage(this.getClass().getResource("win.jpg")
-                            .getPath().replace("%20"," ")));
-        this.sprites.put("lose", loadImage(this.getClass().getResource("lose.jpg")
-                            .getPath().replace("%20"," ")));
+        frameRate(GameState.FPS());
+
+        // Decode the large win/lose screens in the background, only needed at game over
+        this.winScreen = CompletableFuture.supplyAsync(() -> loadScreen("win.jpg"));
+        this.loseScreen = CompletableFuture.supplyAsync(() -> loadScreen("lose.jpg"));
 
+        // Load sprites during setup, from the packed atlas in one read
+        try {
+            this.sprites = SpriteAtlas.load();
+        } catch (IOException e) {
+            throw new RuntimeException("Sprites could not be loaded", e);
+        }
+        this.tileLayer = new TileLayer(this.sprites);
+
+        // Load font once, texts are pre-rendered with it
+        this.hudFont = loadFont("PressStart2P.ttf", 28);
+        textFont(this.hudFont); // for the game over screen
+        this.livesText = new HudText(this.hudFont, 28);
+        this.scoreText = new HudText(this.hudFont, 28);
+        this.levelText = new HudText(this.hudFont, 18);
+        this.powerupText = new HudText(this.hudFont, 20);
+        this.profilerTexts = new HudText[FrameProfiler.Phase.values().length];
+        for (int i = 0; i < this.profilerTexts.length; i++)
+            this.profilerTexts[i] = new HudText(this.hudFont, 10);
+        this.profilerLines = new String[this.profilerTexts.length];
         
-        // Load sound effects files
-        this.timestopSfxPath = this.getClass().getResource("zawarudo.wav")
-                            .getPath().replace("%20"," ");
-        this.invincibleSfxPath = this.getClass().getResource("rick.wav")
-                            .getPath().replace("%20"," ");
+        // Decode sound effects once, played on the audio thread
+        this.timestopSfx = "zawarudo.wav";
+        this.invincibleSfx = "rick.wav";
+        this.sound = new SoundPlayer(4);
+        try {
+            this.sound.load(this.timestopSfx);
+            this.sound.load(this.invincibleSfx);
+            this.sound.start();
+        } catch (Exception e) {
+            System.out.println("Sfx error");
+        }
         
 
         // Parse JSON config file
-        parseJSON(this.configPath);
+        this.state.parseJSON(this.configPath);
         // Parse first level
-        this.parseLevel(this.levelList.get(0));
+        this.parseLevel(this.state.getLevelList().get(0));
+
+        // Record the session if asked: --record session.replay
+        // Log frame times if asked: --frame-log frames.tsv
+        for (int i = 0; this.args != null && i < this.args.length - 1; i++) {
+            if (this.args[i].equals("--record"))
+                this.recordingPath = this.args[i+1];
+            else if (this.args[i].equals("--frame-log"))
+                this.frameLogPath = this.args[i+1];
+        }
+        if (this.recordingPath != null) {
+            try {
+                this.recording = Replay.record(this.state, this.configPath);
+            } catch (IOException e) {
+                System.err.println("Session cannot be recorded: " + e);
+            }
+        }
+        if (this.frameLogPath != null) {
+            try {
+                this.frameLog = new BufferedWriter(new FileWriter(this.frameLogPath, true));
+            } catch (IOException e) {
+                System.err.println("Frame times cannot be logged: " + e);
+            }
+        }
     }
 
     // -------------- Gameboard control -----------------
     /**
      * Modifys the number of remaining lives in this game instance.
+     * See {@link lawnlayer.GameState#modifyLife(int)}.
      * @param n integer to be added to the remaining lives
      *          (negative for decrementation)
      */
     public void modifyLife(int n) {
-        this.lives += n;
-        checkWinLose();
+        this.state.modifyLife(n);
     }
 
     /**
-     * Updates the current score of this level. The score is calculated as
-     * (filled grass objects / all soil tile objects) * 100 in percentage.
-     * This percentage is rounded up.
+     * Updates the current score of this level. See {@link lawnlayer.GameState#updateScore()}.
      */
     public void updateScore() {
-        TileObject[] tiles = this.allTileObjects();
-        int numOfTiles = tiles.length;
-        int numOfGrass = 0;
-        for (TileObject tile : tiles) {
-            if (tile.isConcrete()) numOfTiles--;
-            if (tile.isGrass()) numOfGrass++;
-        }
-        // System.out.printf("num of grass:%d, num of Tiles:%d%n",numOfGrass,numOfTiles);
-        this.score = Math.ceil((double)numOfGrass / (double)numOfTiles * 100.0);
-        checkWinLose();
+        this.state.updateScore();
     }
 
     /**
-     * Checks if the game is won or lost. 
-     * This function is called either when score is updated ({@link #updateScore()}), 
-     * or when lives changed ({@link #modifyLife(int)}).
-     * Won if goal reached. If more levels to come, call upon a new level. 
-     * Otherwise, display a win screen. Lost if no lives left. Display a lose screen.
-     * See {@link #parseLevel(Level)} and {@link #displayScreen(boolean, String)}.
+     * Checks if the game is won or lost. See {@link lawnlayer.GameState#checkWinLose()}.
      */
     public void checkWinLose() {
-        // win
-        if (this.score >= this.currentLevel.getGoal()) {
-            int curLvIdx = this.levelList.indexOf(this.currentLevel);
-            if (curLvIdx != this.levelList.size()-1)
-                this.parseLevel(this.levelList.get(curLvIdx+1)); // parse next level
-            else
-                displayScreen(true, "You win"); // display a win screen
+        this.state.checkWinLose();
+    }
+
+    /**
+     * Loads a font from the classpath. Works inside the jar, unlike 
+     * {@link PApplet#createFont(String, float)} with a file path.
+     * @param name  the name of the font resource in this package
+     * @param size  the font size
+     * @return      the {@link PFont}
+     */
+    private PFont loadFont(String name, float size) {
+        try (InputStream in = this.getClass().getResourceAsStream(name)) {
+            if (in == null)
+                throw new FileNotFoundException(name);
+            return new PFont(Font.createFont(Font.TRUETYPE_FONT, in).deriveFont(size), true);
+        } catch (IOException | FontFormatException e) {
+            throw new RuntimeException("Font could not be loaded", e);
+        }
+    }
+
+    /**
+     * Decodes a full screen image. Runs in the background during setup.
+     * @param name  the name of the image resource in this package
+     * @return      the {@link PImage}, <code>null</code> if it cannot be read
+     */
+    private static PImage loadScreen(String name) {
+        try {
+            return SpriteAtlas.loadImage(name);
+        } catch (IOException e) {
+            System.err.println(e);
+            return null;
         }
-        // lose 
-        else if (this.lives <= 0) {
-            displayScreen(false, "Game over"); // display a lose screen
+    }
+
+    /**
+     * Gets a screen image decoded in the background, waits if not done yet.
+     * @param screen    the background decoding of the image
+     * @return          the {@link PImage}, <code>null</code> if it cannot be read
+     */
+    private static PImage getScreen(Future<PImage> screen) {
+        try {
+            return screen.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            return null;
         }
     }
 
@@ -353,382 +390,222 @@ public class App extends PApplet {
      * @param text  text to display on screen
      */
     public void displayScreen(boolean win, String text) {
-        this.gameOver = true; 
+        this.state.setGameOver(true); 
+        PImage screen = getScreen(win ? this.winScreen : this.loseScreen);
         if (win) {
-            image(sprites.get("win"), 320, 180);
+            if (screen != null) image(screen, 320, 180);
             textAlign(CENTER);
             textSize(50);
             text(text, 580, 300);
         }   
         else {
-            image(sprites.get("lose"), 320, 180);
+            if (screen != null) image(screen, 320, 180);
             textAlign(CENTER);
             textSize(50);
             text(text, 640, 380);
         }
-        stop();
+        noLoop();
     }
 
     /**
-     * Nullifys the current player reference. Spawn in a new player at the top 
-     * left of the tilemap.
+     * Spawns in a new player. See {@link lawnlayer.GameState#newPlayer()}.
      */
     public void newPlayer() {
-        this.player = null;
-        this.player = new Player(0, TOPBAR);
-        this.player.setSprite(sprites.get("player"));
-        // *Edge case: player release when player die, resulting NullPointerError
-        this.player.tick(this); // initial update to prevent error
+        this.state.newPlayer();
+        this.updateAgentSprites();
     }
 
 
     // -------------- Parsing ----------------------------
 
     /**
-     * Parses level and sets current level. Objects to be parsed in the level includes:
-     * tilemap ({@link #parseTiles(String)}), enemies ({@link #parseEnemies(Level)}),
-     * player ({@link #newPlayer()}).
+     * Parses level and sets current level. See {@link lawnlayer.GameState#parseLevel(Level)}.
      * @param level the level to be parsed
      */
     public void parseLevel(Level level) {
-        // clear everything
-        this.score = 0.0; // reset score
-        this.allEnemies.clear();
-        this.powerupInEffect = false;
-
-        parseTiles(level.getOutlay()); // tilemap
-        parseEnemies(level); // enemies
-        newPlayer(); // player
-        this.currentLevel = level;
+        this.state.parseLevel(level);
+        this.updateAgentSprites();
     }
 
     /**
      * Parses config JSON file to get a list of levels. 
-     * See also {@link processing.data.JSONObject}, {@link processing.data.JSONArray}.
+     * See {@link lawnlayer.GameState#parseJSON(String)}.
      * @param path the path of config file
      */ 
     public void parseJSON(String path) {
-        // getting data from JSON
-        JSONObject data = loadJSONObject(path);  
-
-        // lives (not specific to levels)
-        this.lives = data.getInt("lives");
-
-        // levels data
-        JSONArray levels = data.getJSONArray("levels");
-        for (int i = 0; i < levels.size(); i++) {
-            JSONObject level = levels.getJSONObject(i);
-            String outlay = level.getString("outlay");
-            String powerup = level.getString("powerup");
-            double goal = level.getDouble("goal");
-            
-            // instantiate a new level 
-            Level newLevel = new Level(outlay, powerup, goal);
-
-            // get enemies data in this level
-            JSONArray enemies = level.getJSONArray("enemies");
-            for (int j = 0; j < enemies.size(); j++) {
-                JSONObject enemy = enemies.getJSONObject(j);
-
-                HashMap<String,Object> enemyData = new HashMap<String,Object>();
-                // type data 0:"worm", 1:"beetle"
-                enemyData.put("type", enemy.getInt("type"));
-                // spawn position "random" or coordinates "row,col" 
-                enemyData.put("spawn", enemy.getString("spawn")); 
-
-                newLevel.addEnemy(enemyData);
-            }
-            this.levelList.add(newLevel); // append this level to level list
-        }
+        this.state.parseJSON(path);
     }
 
     /**
-     * Parse level.txt file to update tilemap
+     * Parse level.txt file to update tilemap. See {@link lawnlayer.GameState#parseTiles(String)}.
      * @param filename                  the file that contains level map 
      * @throws IllegalArgumentException if invalid map
      * @return the 2d tilemap
      */
     public TileObject[][] parseTiles (String filename) throws IllegalArgumentException {
-        try {
-            File f = new File(filename);
-            Scanner scan = new Scanner(f);
-            
-            int i = 0;
-            while (scan.hasNextLine()) {
-                String line = scan.nextLine();
-                for (int j = 0; j < line.length(); j++) {
-                    TileObject tmp = new TileObject(i,j);
-                    
-                    if (String.valueOf(line.charAt(j)).equals("X")) {
-                        // marked concrete
-                        tmp.setSprite(sprites.get("concrete"));
-                        tmp.setConcrete();
-                    }
-                    tileMap[i][j] = tmp;
-                }
-                i++;
-            }
-            scan.close();
-            // Checking invalid map (first/last row, first/last col must be concrete)
-            for (int n = 0; n < tileMap[0].length; n++) {
-                if (!tileMap[0][n].isConcrete()) 
-                    throw new IllegalArgumentException("first row invalid");
-                if (!tileMap[GRID_ROW-1][n].isConcrete())
-                    throw new IllegalArgumentException("last row invalid");
-            }
-            for (int m = 0; m < tileMap.length; m++) {
-                if (!tileMap[m][0].isConcrete())
-                    throw new IllegalArgumentException("first column invalid");
-                if (!tileMap[m][0].isConcrete())
-                    throw new IllegalArgumentException("last column invalid");
-            }   
-        } catch (FileNotFoundException e) {
-            System.err.println("Level data file not found!");
-        } catch (IllegalArgumentException e) {
-            System.err.println(e);
-        }
-        return tileMap;
+        return this.state.parseTiles(filename);
     }
 
     /**
-     * Parse enemy data to spawn enemies and update enemy list
+     * Parse enemy data to spawn enemies and update enemy list. 
+     * See {@link lawnlayer.GameState#parseEnemies(Level)}.
      * @param level                     the level to get the data from
      * @throws IllegalArgumentException if spawn too near edges of game area 
      *                                  (keep 1 block away from walls)
      */
     public void parseEnemies(Level level) throws IllegalArgumentException {
-        for (HashMap<String,Object> enemy : level.getEnemyList()) {
-            // we want a tile as spawn position of this enemy
-            TileObject tile = null;
-
-            if (enemy.get("spawn").toString().equals("random")) {
-                // random spawn tile in soil area
-                while (true) {
-                    int rndTileRow = new Random().nextInt(tileMap.length-4) + 2; //2~29
-                    int rndTileCol = new Random().nextInt(tileMap[0].length-4) + 2; //2~61
-                    tile = tileMap[rndTileRow][rndTileCol];
-                    if (tile.isSoil())
-                        break; // tile empty, no need to generate another random tile
-                }
-            } else { 
-                /* SHOULD BE fixed spawn tile (given "rol,col")
-                   check with NumberFormatException */
-                try {
-                    String string = enemy.get("spawn").toString();
-                    String[] parts = string.split(",");
-                    int row = Integer.parseInt(parts[0]);
-                    int col = Integer.parseInt(parts[1]);
-                    if (row < 2 || row > tileMap.length-3 || col < 2 || col > tileMap[0].length-3)
-                        throw new IllegalArgumentException("Spawn position too close to walls");
-                    tile = tileMap[row][col];
-                } catch (NumberFormatException e) {
-                    System.err.println("Invalid spawn position.");
-                } catch (IllegalArgumentException e) {
-                    System.err.println(e);
-                    continue;
-                }
-            }
-
-            // get random pixel location within the chosen tile
-            int xMin = tile.getX() - SPRITESIZE/2;
-            int xMax = tile.getX() + SPRITESIZE/2;
-            int yMin = tile.getY() - SPRITESIZE/2;
-            int yMax = tile.getY() + SPRITESIZE/2;
-            int rndX = new Random().nextInt((xMax+1) - xMin) + xMin;
-            int rndY = new Random().nextInt((yMax+1) - yMin) + yMin;
-
-            if ((int)enemy.get("type") == 0) {
-                // type "0" = worm
-                Enemy worm = new Enemy(rndX, rndY);
-                worm.setSprite(sprites.get("worm"));
-                this.allEnemies.add(worm);
-            } else if ((int)enemy.get("type") == 1) {
-                // type "0" = beetle
-                Enemy beetle = new Beetle(rndX, rndY);
-                beetle.setSprite(sprites.get("beetle"));
-                this.allEnemies.add(beetle);
-            }
-        }
+        this.state.parseEnemies(level);
+        this.updateAgentSprites();
     }
 
     /**
-     * Parses powerup sprite for this level. The type of powerup is based on the 
-     * key string obtained from the config file when the config file was parsed.
+     * Parses powerup for this level. See {@link lawnlayer.GameState#parsePowerup(Level)}.
      * @param level the level to get the data from
      */
     public void parsePowerup(Level level) {
-         // random spawn tile in soil area
-         TileObject tile = null;
-         while (true) {
-             int rndTileRow = new Random().nextInt(tileMap.length-3) + 1; //1~30
-             int rndTileCol = new Random().nextInt(tileMap[0].length-3) + 1; //1~62
-             tile = tileMap[rndTileRow][rndTileCol];
-             if (tile.isSoil())
-                 break; // tile empty, no need to generate another random tile
-         }
-        // spawn a new Powerup into the random tile
-        this.powerup = new Powerup(tile.getX()-SPRITESIZE/2, tile.getY()-SPRITESIZE/2);
-
-        // choose powerup sprite
-        String key = level.getPowerupType();
-        if (key.equals("random"))
-            key = Powerup.POWERUP_KEYS()[new Random()
-                            .nextInt(Powerup.POWERUP_KEYS().length)];
-            this.powerup.setPowerupKey(key);
-
-        if (this.powerup.getPowerupKey().equals("Invincible")) {
-            this.powerup.setSprite(sprites.get("invincible"));
-        }
-        else if (this.powerup.getPowerupKey().equals("ZAWARUDO")) {
-            this.powerup.setSprite(sprites.get("stopTime"));
-        }
+        this.state.parsePowerup(level);
+        this.updateAgentSprites();
     }
 
     // ----------------- Updating obejects -----------------------
 
     /**
-     * Updates the state of powerup. If last powerup still in effect, decrement 
-     * duration timer. Otherwise, restore states and sprites of agents (enemies 
-     * and player).
-     * <p> 1. Powerup present in game:
-     * If player consumes powerup: generate effect (See {@link lawnlayer.Enemy#freeze()}, 
-     *                               {@link lawnlayer.Enemy#setVulnerable(boolean)}); 
-     *                               set sprites (See {@link lawnlayer.GameObject#setSprite(PImage)}); 
-     *                               play sound effect (See {@link #playSound(String)}).
-     * If grass area swallows powerup: remove without effect.
-     * <p> 2. Powerup not present in game:
-     * If last powerup still in effect: <code>return</code>
-     * If no in-effect powerup: start decrementing delay interval timer
-     * If delay timer finish: generate another random delay timer; 
-     *                          spawn in a new powerup ({@link #parsePowerup(Level)}).
+     * Updates the state of powerup (See {@link lawnlayer.GameState#updatePowerup()}),
+     * then refreshes sprites of agents and plays the sound effect of a consumed powerup.
      */
     public void updatePowerup() {
-        // Update state of powerup
-        if (this.powerupInEffect)
-            this.powerupTimer--; // decrement powerup timer
-        
-        // powerup faded, make enemies and player normal
-        if (this.powerupInEffect && this.powerupTimer <= 0) {
-            this.powerupInEffect = false;
-            this.colorWheel = 0;
-            this.brightnessWheel = 255;
-            this.player.setSprite(sprites.get("player"));
-            for (Enemy enemy : this.allEnemies) {
-                // restore normal sprites
-                if (enemy instanceof Beetle) 
-                    enemy.setSprite(sprites.get("beetle"));
-                else 
-                    enemy.setSprite(sprites.get("worm"));
-                // restore previous state
-                if (this.powerupKeyText.equals("Invincible")) 
-                    enemy.setVulnerable(false);
-                else if (this.powerupKeyText.equals("ZAWARUDO")) 
-                    enemy.unfreeze();
-            }
+        this.state.updatePowerup();
+        this.updateAgentSprites();
+        this.playPowerupSound();
+    }
+
+    /**
+     * Plays the sound effect of the powerup consumed during the last update, if any.
+     * See {@link #playSound(String)}.
+     */
+    public void playPowerupSound() {
+        String consumed = this.state.getConsumedPowerup();
+        if (consumed == null) return;
+        if (consumed.equals("Invincible"))
+            this.playSound(invincibleSfx);
+        else if (consumed.equals("ZAWARUDO"))
+            this.playSound(timestopSfx);
+    }
+
+    /**
+     * Sets the sprites of the player, enemies and powerup according to the current 
+     * powerup state of the game.
+     */
+    public void updateAgentSprites() {
+        if (this.sprites == null) return;
+
+        String effect = this.state.isPowerupInEffect() ? this.state.getPowerupKeyText() : null;
+        Player player = this.state.getPlayer();
+        if (player != null) {
+            if ("Invincible".equals(effect))
+                player.setSprite(sprites.get("rainbowPlayer"));
+            else
+                player.setSprite(sprites.get("player"));
         }
-        
-        // Check state of powerup
-        if (this.powerup != null) {
-            TileObject powerupTile = this.powerup.getTile(this.allTileObjects());
-            // player consumes powerup
-            if (powerupTile == this.player.getPlayerTile()) {
-                // default*FPS = 10*60 = 600 frames
-                this.powerupTimer = this.defaultTimer * FPS; // start the timer
-                if (this.powerup.getPowerupKey().equals("Invincible")) {
-                    // play sound effect
-                    try {
-                        this.playSound(invincibleSfxPath);
-                    } catch (Exception e) {
-                        System.out.println("Sfx error");
-                    }
-                    this.player.setSprite(sprites.get("rainbowPlayer")); // set player sprite
-                    // set enemy sprite
-                    for (Enemy enemy : this.allEnemies) {
-                        enemy.setSprite(sprites.get("enemyClown"));
-                        enemy.setVulnerable(true);
-                    }
-                } 
-                else if (this.powerup.getPowerupKey().equals("ZAWARUDO")) {
-                    // play sound effect
-                    try {
-                        this.playSound(timestopSfxPath);
-                    } catch (Exception e) {
-                        System.out.println("Sfx error");
-                    }
-                    // set enemy sprite
-                    for (Enemy enemy : this.allEnemies) {
-                        enemy.setSprite(sprites.get("enemyFrozen"));
-                        enemy.freeze();
-                    } 
-                }
-                this.powerupInEffect = true;
-                // remember its key before removing the powerup object
-                this.powerupKeyText = this.powerup.getPowerupKey();
-                this.powerup = null;
-            }
-            // Remove powerup if swallowed by grass
-            if (powerupTile.isGrass())
-                this.powerup = null;
+        for (Enemy enemy : this.state.getEnemies()) {
+            if ("Invincible".equals(effect))
+                enemy.setSprite(sprites.get("enemyClown"));
+            else if ("ZAWARUDO".equals(effect))
+                enemy.setSprite(sprites.get("enemyFrozen"));
+            else if (enemy instanceof Beetle) 
+                enemy.setSprite(sprites.get("beetle"));
+            else 
+                enemy.setSprite(sprites.get("worm"));
         }
-        else { // no powerup on screen
-            // 1. Last powerup still in effect -> do nothing
-            // 2. No powerup in effect -> start decrementing delay timer
-            // 3. Delay timer finish -> generate another random interval, 
-            //                          spawn in a new powerup
-            if (this.powerupInEffect) return;
-            if (this.delayInterval > 0) {
-                this.delayInterval--;
-            }
-            else {
-                this.delayInterval = (new Random().nextInt(this.defaultTimer) + 1) * FPS;
-                this.parsePowerup(this.currentLevel); // parse in a new powerup
-            } 
+        Powerup powerup = this.state.getPowerup();
+        if (powerup != null && !powerup.isSpriteSet()) {
+            if (powerup.getPowerupKey().equals("Invincible"))
+                powerup.setSprite(sprites.get("invincible"));
+            else if (powerup.getPowerupKey().equals("ZAWARUDO"))
+                powerup.setSprite(sprites.get("stopTime"));
         }
     }
 
 
     /**
-     * Updates all texts on screen.
+     * Updates all texts on screen. Texts are pre-rendered and only rendered again
+     * when their values change, see {@link HudText}.
      */
     public void updateTexts() {
-        // Font data
-        String fontFile = this.getClass().getResource("PressStart2P.ttf").getPath()
-                                                .replace("%20"," ");
-        PFont press = createFont(fontFile, 28);
-        textFont(press);
-        textAlign(CENTER);
-
         // Lives   
-        text("Lives:" + Integer.toString(this.lives), 160, 50);
+        this.livesText.draw(this, "Lives:" + Integer.toString(this.state.getLives()), 160, 50);
         // Score
-        text(Integer.toString((int)this.score) + "%/" + 
-             Integer.toString((int)this.currentLevel.getGoal()) + "%", 920, 50);
+        this.scoreText.draw(this, Integer.toString((int)this.state.getScore()) + "%/" + 
+             Integer.toString((int)this.state.getCurrentLevel().getGoal()) + "%", 920, 50);
         // Level number
-        textSize(18);
-        text("Level " + Integer.toString(this.levelList.indexOf(this.currentLevel)+1), 
-                                                                    1140, 60);
+        this.levelText.draw(this, "Level " + Integer.toString(this.state.getLevelList()
+                    .indexOf(this.state.getCurrentLevel())+1), 1140, 60);
         // Powerup timer
-        if (this.powerupInEffect) {
-            textSize(20);
-            text(this.powerupKeyText + ": " + 
-                    Integer.toString((int)this.powerupTimer/60), 640, 70);
+        if (this.state.isPowerupInEffect()) {
+            this.powerupText.draw(this, this.state.getPowerupKeyText() + ": " + 
+                    Integer.toString((int)this.state.getPowerupTimer()/60), 640, 70);
         }
     }
 
+    /**
+     * Draws the frame times of every phase (p50, p99 and max in microseconds)
+     * over the game area, toggled with F3. The lines are refreshed every
+     * {@value #OVERLAY_REFRESH} frames so they can be read, and pre-rendered in
+     * between like the top bar texts.
+     */
+    public void drawProfiler() {
+        FrameProfiler.Phase[] phases = FrameProfiler.Phase.values();
+        if (this.frameCount % OVERLAY_REFRESH == 0 || this.profilerLines[0] == null) {
+            for (int i = 0; i < phases.length; i++)
+                this.profilerLines[i] = this.profiler.format(phases[i]);
+        }
+        pushStyle();
+        noStroke();
+        fill(0, 160);
+        rect(WIDTH - 460, TOPBAR(), 460, 20 + phases.length * 16);
+        popStyle();
+        for (int i = 0; i < phases.length; i++)
+            this.profilerTexts[i].draw(this, this.profilerLines[i], 
+                                        WIDTH - 230, TOPBAR() + 24 + i * 16);
+    }
+
+    /**
+     * Writes the frame times of the last window of frames to the frame log if
+     * any, then starts a new window. See {@link FrameProfiler#dump(Writer, long)}.
+     */
+    private void logFrameTimes() {
+        if (this.frameLog != null) {
+            try {
+                this.profiler.dump(this.frameLog, System.currentTimeMillis());
+                this.frameLog.flush();
+            } catch (IOException e) {
+                System.err.println("Frame times cannot be logged: " + e);
+                this.frameLog = null;
+            }
+        }
+        this.profiler.reset();
+    }
+
     /**
      * Draw all elements in the game by current frame [called automatically, 
      * should never be called explicitly. This should be controlled with 
      * {@link PApplet#noLoop()}, {@link PApplet#redraw()} and {@link PApplet#loop()}]
      */
     public void draw() {
-        // long start = System.currentTimeMillis();
-
-        if (this.powerupInEffect) {
+        // advance the simulation by one frame
+        this.state.step();
+        if (this.recording != null)
+            this.recording.recordStep(this.state);
+        this.updateAgentSprites();
+        this.playPowerupSound();
+
+        long start = this.profiler.start();
+        if (this.state.isPowerupInEffect()) {
             colorMode(HSB);
-            if (this.powerupKeyText.equals("Invincible")){
+            if (this.state.getPowerupKeyText().equals("Invincible")){
                 background(this.colorWheel++, 200, 100);
                 this.colorWheel = this.colorWheel % 256;
-            } else if (this.powerupKeyText.equals("ZAWARUDO")){
+            } else if (this.state.getPowerupKeyText().equals("ZAWARUDO")){
                 // bright -> dark blue
                 background(150, 200, this.brightnessWheel--);
                 this.brightnessWheel = Math.max(this.brightnessWheel,60);
@@ -737,102 +614,119 @@ public class App extends PApplet {
             colorMode(RGB);
             // brown background
             background(101,67,33);
+            this.colorWheel = 0;
+            this.brightnessWheel = 255;
         }
 
         // update texts
         updateTexts();
-
-        // update and draw tile map by frames
-        for (TileObject tile : this.allTileObjects()) {
-            tile.updateTileSprite(sprites);
-            if (tile.isSpriteSet()) 
-                tile.draw(this);
-        }
-
-        // update and draw all agents (player and enemies) by frames
-        for (Enemy enemy : this.getEnemies()) {
-            enemy.tick(this);
+        start = this.profiler.lap(FrameProfiler.Phase.HUD, start);
+
+        // scroll the game area below the top bar with the player
+        this.camera.follow(this.getPlayer(), this.state.getGrid());
+        clip(0, TOPBAR(), WIDTH, HEIGHT - TOPBAR());
+        pushMatrix();
+        translate(-this.camera.getX(), -this.camera.getY());
+
+        // draw tile map in view, only changed tiles are redrawn
+        this.tileLayer.draw(this, this.state.getGrid(), this.camera);
+        this.profiler.lap(FrameProfiler.Phase.TILES, start);
+
+        // draw the agents (player and enemies) and the powerup in view, enemies
+        // are found in the tiles around the view instead of checking them all
+        this.visibleEnemies.clear();
+        this.state.getAgents().query(this.camera.getFirstRow() - 1, this.camera.getFirstCol() - 1,
+                this.camera.getLastRow() + 1, this.camera.getLastCol() + 1, 
+                Enemy.class, this.visibleEnemies);
+        for (Enemy enemy : this.visibleEnemies)
             enemy.draw(this);
+        if (this.camera.isVisible(this.getPlayer()))
+            this.getPlayer().draw(this);
+        if (this.getPowerup() != null && this.camera.isVisible(this.getPowerup()))
+            this.getPowerup().draw(this);
+
+        popMatrix();
+        noClip();
+
+        if (this.profilerShown)
+            drawProfiler();
+        if (this.frameCount % PROFILE_WINDOW == 0)
+            logFrameTimes();
+
+        if (this.state.isGameOver()) {
+            if (this.state.isWon())
+                displayScreen(true, "You win");
+            else
+                displayScreen(false, "Game over");
         }
-        this.getPlayer().tick(this);
-        this.getPlayer().draw(this);
-
-        // update and draw the powerup
-        this.updatePowerup();
-        if (this.powerup != null)
-            this.powerup.draw(this);
-
-        // // check FPS
-        // long timeTaken = System.currentTimeMillis()-start; 
-        // if (timeTaken > 16) System.out.printf("Slow FPS: %d%n",timeTaken);
     }
 
 
     // --------------- Key Listener ------------------
     /**
-     * Called every frame to detect if a key is down.
-     * @see lawnlayer.Player#pressUp()
-     * @see lawnlayer.Player#pressRight()
-     * @see lawnlayer.Player#pressDown()
-     * @see lawnlayer.Player#pressLeft()
+     * Called every frame to detect if a key is down. The key is recorded if the
+     * session is recorded, see {@link Replay}. F3 shows or hides the frame times,
+     * see {@link #drawProfiler()}.
+     * @see lawnlayer.GameState#keyPressed(int)
      */
     public void keyPressed() {
-        // Left: 37
-        // Up: 38
-        // Right: 39
-        // Down: 40
-        if (this.keyCode == 37) {
-            this.getPlayer().pressLeft();
-        } else if (this.keyCode == 39) {
-            this.getPlayer().pressRight();
-        } else if (this.keyCode == 38) {
-            this.getPlayer().pressUp();
-        } else if (this.keyCode == 40) {
-            this.getPlayer().pressDown();
-        }
+        if (this.keyCode == OVERLAY_KEY)
+            this.profilerShown = !this.profilerShown;
+        if (this.recording != null)
+            this.recording.recordKey(this.state.getTickCount(), this.keyCode, true);
+        this.state.keyPressed(this.keyCode);
     }
 
     /**
-     * Called every frame to detect if a key is released.
-     * @see lawnlayer.Player#releaseUp()
-     * @see lawnlayer.Player#releaseRight()
-     * @see lawnlayer.Player#releaseDown()
-     * @see lawnlayer.Player#releaseLeft()
+     * Called every frame to detect if a key is released. The key is recorded if
+     * the session is recorded.
+     * @see lawnlayer.GameState#keyReleased(int)
      */
     public void keyReleased() {
-        // Left: 37
-        // Up: 38
-        // Right: 39
-        // Down: 40
-        if (this.keyCode == 37) {
-            this.getPlayer().releaseLeft();
-        } else if (this.keyCode == 39) {
-            this.getPlayer().releaseRight();
-        } else if (this.keyCode == 38) {
-            this.getPlayer().releaseUp();
-        } else if (this.keyCode == 40) {
-            this.getPlayer().releaseDown();
-        }
+        if (this.recording != null)
+            this.recording.recordKey(this.state.getTickCount(), this.keyCode, false);
+        this.state.keyReleased(this.keyCode);
     }
 
     /**
-     * Plays the sound clip specified by the file path.
-     * @param path the file path string 
-     * @throws UnsupportedAudioFileException if audio file not supported
-     * @throws IOException                   if fails to open a file
-     * @throws LineUnavailableException      if audio file is unavailable or being 
-     *                                       used by other applications
+     * Plays a sound effect loaded at setup. Only queues the sound for the audio
+     * thread, never blocks drawing. See {@link SoundPlayer#play(String)}.
+     * @param name the name of the sound resource in this package
      */
-    public void playSound(String path) throws UnsupportedAudioFileException,
-            IOException, LineUnavailableException {
-        AudioInputStream audioInputStream = 
-                AudioSystem.getAudioInputStream(new File(path).getAbsoluteFile());
-        Clip clip = AudioSystem.getClip();
-        clip.open(audioInputStream);
-        clip.start();
+    public void playSound(String name) {
+        if (this.sound != null)
+            this.sound.play(name);
+    }
+
+    /**
+     * Stops the audio thread when the sketch is closed, and writes the session
+     * recording and the frame times of the last window of frames if any.
+     */
+    @Override
+    public void dispose() {
+        if (this.sound != null)
+            this.sound.close();
+        if (this.recording != null) {
+            try {
+                this.recording.write(Paths.get(this.recordingPath));
+            } catch (IOException e) {
+                System.err.println("Session recording cannot be written: " + e);
+            }
+        }
+        Writer frameLog = this.frameLog;
+        if (frameLog != null) {
+            this.logFrameTimes();
+            this.frameLog = null;
+            try {
+                frameLog.close();
+            } catch (IOException e) {
+                System.err.println(e);
+            }
+        }
+        super.dispose();
     }
 
     public static void main(String[] args) {
-        PApplet.main("lawnlayer.App");
+        PApplet.main("lawnlayer.App", args);
     }
 }
@@ -0,0 +1,295 @@
+package lawnlayer;
+
+import processing.data.JSONObject;
+import processing.data.JSONArray;
+import java.util.*;
+import java.util.concurrent.*;
+import java.io.*;
+
+/**
+ * Runs many independent headless games for a sweep of level parameters across
+ * all cores, and streams one CSV line of results per game.
+ * <p>
+ * The sweep spec is a JSON file:
+ * <pre>
+ * {
+ *   "config": "config.json",      base config (layouts, lives, default levels)
+ *   "seeds": 8,                   games per parameter combination
+ *   "seed": 1,                    seed of the first game
+ *   "maxTicks": 36000,            games still running are stopped as timeout
+ *   "sampleInterval": 600,        ticks between grass samples
+ *   "sweep": {                    every axis is optional, base config if not given
+ *     "goal": [0.5, 0.8],
+ *     "worms": [1, 3],
+ *     "beetles": [0, 1],
+ *     "spawn": ["random", "8,12"],
+ *     "powerup": ["Invincible", "ZAWARUDO", "random"]
+ *   }
+ * }
+ * </pre>
+ * The player of every game is driven by a seeded random bot.
+ */
+public class BatchRunner {
+
+    private static final String HEADER =
+            "run,seed,goal,worms,beetles,spawn,powerup,result,ticks,levels,deaths,grass";
+
+    private int seeds;
+    private long baseSeed;
+    private int maxTicks;
+    private int sampleInterval;
+    private int lives;
+    private List<Level> baseLevels;
+    private List<Setting> settings;
+
+    /**
+     * One combination of sweep parameters. <code>null</code> values keep the base config.
+     */
+    private static class Setting {
+        private Double goal;
+        private Integer worms;
+        private Integer beetles;
+        private String spawn;
+        private String powerup;
+        private List<Level> levels;
+    }
+
+    /**
+     * Creates a batch runner from a sweep spec.
+     * @param spec the parsed sweep spec
+     */
+    public BatchRunner(JSONObject spec) {
+        this.seeds = spec.getInt("seeds", 1);
+        this.baseSeed = spec.getLong("seed", 0);
+        this.maxTicks = spec.getInt("maxTicks", 36000);
+        this.sampleInterval = spec.getInt("sampleInterval", 600);
+
+        // base config is parsed once and shared read-only by all games
+        GameState base = new GameState();
+        base.parseJSON(spec.getString("config", "config.json"));
+        this.lives = base.getLives();
+        this.baseLevels = base.getLevelList();
+
+        JSONObject sweep = spec.hasKey("sweep") ? spec.getJSONObject("sweep") : new JSONObject();
+        this.settings = new ArrayList<Setting>();
+        for (Double goal : doubleAxis(sweep, "goal"))
+            for (Integer worms : intAxis(sweep, "worms"))
+                for (Integer beetles : intAxis(sweep, "beetles"))
+                    for (String spawn : stringAxis(sweep, "spawn"))
+                        for (String powerup : stringAxis(sweep, "powerup")) {
+                            Setting setting = new Setting();
+                            setting.goal = goal;
+                            setting.worms = worms;
+                            setting.beetles = beetles;
+                            setting.spawn = spawn;
+                            setting.powerup = powerup;
+                            setting.levels = buildLevels(setting);
+                            this.settings.add(setting);
+                        }
+    }
+
+    /**
+     * Gets the number of games this batch runs.
+     * @return parameter combinations times seeds
+     */
+    public int getRunCount() {
+        return this.settings.size() * this.seeds;
+    }
+
+    /**
+     * Runs all games on a fork-join pool and writes one CSV line per game to the
+     * output as soon as the game finishes. Lines are in completion order, the
+     * <code>run</code> column identifies the game.
+     * @param out           where the CSV is written
+     * @param threads       the number of worker threads
+     * @throws IOException  if writing fails, or {@link InterruptedIOException} if
+     *                      interrupted before all games finished
+     */
+    public void run(Writer out, int threads) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            CompletionService<String> results = new ExecutorCompletionService<String>(pool);
+            int run = 0;
+            for (Setting setting : this.settings) {
+                for (int i = 0; i < this.seeds; i++) {
+                    final int runId = run++;
+                    final long seed = this.baseSeed + runId;
+                    results.submit(() -> this.runGame(runId, setting, seed));
+                }
+            }
+
+            out.write(HEADER);
+            out.write('\n');
+            for (int i = 0; i < run; i++) {
+                out.write(results.take().get());
+                out.write('\n');
+                out.flush();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("batch interrupted, CSV incomplete");
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Plays one game until it is over or runs out of ticks.
+     * @param run       the run number
+     * @param setting   the sweep parameters of this game
+     * @param seed      the seed of this game
+     * @return          the CSV line of this game
+     */
+    private String runGame(int run, Setting setting, long seed) {
+        GameState state = new GameState(seed);
+        state.setParallelEnemies(Integer.MAX_VALUE); // games already run in parallel
+        state.setLives(this.lives);
+        state.getLevelList().addAll(setting.levels);
+        state.parseLevel(state.getLevelList().get(0));
+
+        SplittableRandom bot = new SplittableRandom(~seed);
+        StringBuilder grass = new StringBuilder();
+        while (!state.isGameOver() && state.getTickCount() < this.maxTicks) {
+            pressRandomKey(state.getPlayer(), bot);
+            state.step();
+            if (state.getTickCount() % this.sampleInterval == 0) {
+                if (grass.length() > 0) grass.append(';');
+                grass.append((int)state.getScore());
+            }
+        }
+
+        String result = "timeout";
+        if (state.isGameOver())
+            result = state.isWon() ? "win" : "lose";
+        int levels = state.getLevelList().indexOf(state.getCurrentLevel()) + (state.isWon() ? 1 : 0);
+
+        return String.join(",",
+                Integer.toString(run),
+                Long.toString(seed),
+                setting.goal == null ? "" : setting.goal.toString(),
+                setting.worms == null ? "" : setting.worms.toString(),
+                setting.beetles == null ? "" : setting.beetles.toString(),
+                setting.spawn == null ? "" : "\"" + setting.spawn + "\"",
+                setting.powerup == null ? "" : setting.powerup,
+                result,
+                Long.toString(state.getTickCount()),
+                Integer.toString(levels),
+                Integer.toString(this.lives - state.getLives()),
+                grass.toString());
+    }
+
+    /**
+     * Random bot that changes the player's direction about every 20 ticks.
+     * @param player    the player to control
+     * @param random    the random stream of the bot
+     */
+    private static void pressRandomKey(Player player, SplittableRandom random) {
+        if (random.nextInt(20) != 0) return;
+        switch (random.nextInt(4)) {
+            case 0: player.pressUp(); break;
+            case 1: player.pressRight(); break;
+            case 2: player.pressDown(); break;
+            default: player.pressLeft(); break;
+        }
+    }
+
+    /**
+     * Builds the levels of a setting from the base levels.
+     * @param setting the sweep parameters
+     * @return        the list of levels
+     */
+    private List<Level> buildLevels(Setting setting) {
+        List<Level> levels = new ArrayList<Level>();
+        for (Level base : this.baseLevels) {
+            Level level = new Level(base.getOutlay(),
+                    setting.powerup == null ? base.getPowerupType() : setting.powerup,
+                    setting.goal == null ? base.getGoal() / 100.0 : setting.goal);
+
+            if (setting.worms == null && setting.beetles == null) {
+                for (HashMap<String,Object> enemy : base.getEnemyList())
+                    level.addEnemy(enemy);
+            } else {
+                String spawn = setting.spawn == null ? "random" : setting.spawn;
+                int worms = setting.worms == null ? 0 : setting.worms;
+                int beetles = setting.beetles == null ? 0 : setting.beetles;
+                for (int i = 0; i < worms + beetles; i++) {
+                    HashMap<String,Object> enemy = new HashMap<String,Object>();
+                    enemy.put("type", i < worms ? 0 : 1); // 0:"worm", 1:"beetle"
+                    enemy.put("spawn", spawn);
+                    level.addEnemy(enemy);
+                }
+            }
+            levels.add(level);
+        }
+        return levels;
+    }
+
+    private static List<Double> doubleAxis(JSONObject sweep, String key) {
+        List<Double> values = new ArrayList<Double>();
+        if (!sweep.hasKey(key)) {
+            values.add(null);
+            return values;
+        }
+        JSONArray array = sweep.getJSONArray(key);
+        for (int i = 0; i < array.size(); i++) values.add(array.getDouble(i));
+        return values;
+    }
+
+    private static List<Integer> intAxis(JSONObject sweep, String key) {
+        List<Integer> values = new ArrayList<Integer>();
+        if (!sweep.hasKey(key)) {
+            values.add(null);
+            return values;
+        }
+        JSONArray array = sweep.getJSONArray(key);
+        for (int i = 0; i < array.size(); i++) values.add(array.getInt(i));
+        return values;
+    }
+
+    private static List<String> stringAxis(JSONObject sweep, String key) {
+        List<String> values = new ArrayList<String>();
+        if (!sweep.hasKey(key)) {
+            values.add(null);
+            return values;
+        }
+        JSONArray array = sweep.getJSONArray(key);
+        for (int i = 0; i < array.size(); i++) values.add(array.getString(i));
+        return values;
+    }
+
+    /**
+     * Runs a sweep from the command line.
+     * <p> Arguments: spec file, output CSV file (stdout if omitted),
+     * number of threads (all cores if omitted).
+     * @param args              command line arguments
+     * @throws IOException      if the spec cannot be read or the CSV cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: BatchRunner <sweep.json> [out.csv] [threads]");
+            return;
+        }
+        JSONObject spec;
+        try (Reader reader = new FileReader(args[0])) {
+            spec = new JSONObject(reader);
+        }
+        int threads = args.length > 2 ? Integer.parseInt(args[2])
+                                      : Runtime.getRuntime().availableProcessors();
+
+        BatchRunner runner = new BatchRunner(spec);
+        long start = System.currentTimeMillis();
+        if (args.length > 1) {
+            try (Writer out = new BufferedWriter(new FileWriter(args[1]))) {
+                runner.run(out, threads);
+            }
+        } else {
+            Writer out = new OutputStreamWriter(System.out);
+            runner.run(out, threads);
+            out.flush();
+        }
+        System.err.printf("%d games in %d ms on %d threads%n", runner.getRunCount(),
+                System.currentTimeMillis() - start, threads);
+    }
+}
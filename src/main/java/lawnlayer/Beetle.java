@@ -13,14 +13,25 @@ public class Beetle extends Enemy {
     public Beetle(int x, int y) {
         super(x,y);
     }
+
+    /**
+     * Creates a new beetle enemy with specified (x,y) coordinates and random stream.
+     * @param x      x-coordinate
+     * @param y      y-coordinate
+     * @param random the random stream of this beetle
+     */
+    public Beetle(int x, int y, GameRandom random) {
+        super(x, y, random);
+    }
     
     /**
      * Defines the attacks this beetle performs.
      * Beetles extends {@link lawnlayer.Enemy} attack behaviours. In addition, it removes
-     * the filled grass tiles upon collision. See {@link lawnlayer.Enemy#attack(App, Player, TileObject)}.
+     * the filled grass tiles upon collision, which lowers the score of the game right away. 
+     * See {@link lawnlayer.Enemy#attack(GameState, Player, TileObject)}.
      */
     @Override
-    public void attack(App gameboard, Player player, TileObject agentTile) {
+    public void attack(GameState gameboard, Player player, TileObject agentTile) {
         super.attack(gameboard, gameboard.getPlayer(), agentTile);
         if (agentTile.isGrass()) {
             agentTile.setSoil();
@@ -0,0 +1,123 @@
+package lawnlayer;
+
+/**
+ * Scrolling view of the tilemap below the top bar. The camera keeps the player
+ * in the middle of the view, and stops at the edges of the tilemap. A tilemap
+ * smaller than the view is not scrolled.
+ * <p>
+ * The position of the camera is the pixel of the tilemap at the top left of the
+ * view, i.e.pixel (0,0) is the top left of tile (0,0). Game objects draw below
+ * the top bar, so their y-coordinates are {@link GameState#TOPBAR()} lower.
+ */
+public class Camera {
+
+    private int width;
+    private int height;
+    private int x;
+    private int y;
+
+    /**
+     * Creates a new camera at the top left of the tilemap.
+     * @param width     the width of the view in pixels
+     * @param height    the height of the view in pixels
+     */
+    public Camera(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Gets the x-coordinate of the left edge of the view in the tilemap.
+     * @return the x-coordinate in pixels
+     */
+    public int getX() {
+        return this.x;
+    }
+
+    /**
+     * Gets the y-coordinate of the top edge of the view in the tilemap.
+     * @return the y-coordinate in pixels
+     */
+    public int getY() {
+        return this.y;
+    }
+
+    /**
+     * Gets the width of the view.
+     * @return the width in pixels
+     */
+    public int getWidth() {
+        return this.width;
+    }
+
+    /**
+     * Gets the height of the view.
+     * @return the height in pixels
+     */
+    public int getHeight() {
+        return this.height;
+    }
+
+    /**
+     * Centres the view on a game object, within the edges of the tilemap.
+     * @param target    the object to follow, e.g.the player
+     * @param grid      the tile grid of the tilemap
+     */
+    public void follow(GameObject target, TileGrid grid) {
+        int mapWidth = grid.getCols() * GameState.SPRITESIZE();
+        int mapHeight = grid.getRows() * GameState.SPRITESIZE();
+        this.x = clamp(target.getX() - this.width/2, mapWidth - this.width);
+        this.y = clamp(target.getY() - GameState.TOPBAR() - this.height/2,
+                        mapHeight - this.height);
+    }
+
+    /**
+     * Gets the first row of tiles in view.
+     * @return the row
+     */
+    public int getFirstRow() {
+        return this.y / GameState.SPRITESIZE();
+    }
+
+    /**
+     * Gets the last row of tiles in view, partly or fully.
+     * @return the row
+     */
+    public int getLastRow() {
+        return (this.y + this.height - 1) / GameState.SPRITESIZE();
+    }
+
+    /**
+     * Gets the first column of tiles in view.
+     * @return the column
+     */
+    public int getFirstCol() {
+        return this.x / GameState.SPRITESIZE();
+    }
+
+    /**
+     * Gets the last column of tiles in view, partly or fully.
+     * @return the column
+     */
+    public int getLastCol() {
+        return (this.x + this.width - 1) / GameState.SPRITESIZE();
+    }
+
+    /**
+     * Checks if any part of the sprite of a game object is in view. Sprites are
+     * drawn centred on the object.
+     * @param object    the game object
+     * @return          <code>true</code> if in view, otherwise <code>false</code>
+     */
+    public boolean isVisible(GameObject object) {
+        int half = GameState.SPRITESIZE()/2;
+        int objectX = object.getX();
+        int objectY = object.getY() - GameState.TOPBAR();
+        return objectX + half > this.x && objectX - half < this.x + this.width
+                && objectY + half > this.y && objectY - half < this.y + this.height;
+    }
+
+    private static int clamp(int value, int max) {
+        return Math.max(0, Math.min(value, max));
+    }
+}
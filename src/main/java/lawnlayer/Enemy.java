@@ -7,40 +7,49 @@ import java.util.*;
  */
 public class Enemy extends Agent {
 
-    private final int[] TOP_KEYS = {1,2,3};
-    private final int[] RIGHT_KEYS = {3,5,8};
-    private final int[] DOWN_KEYS = {6,7,8};
-    private final int[] LEFT_KEYS = {1,4,6};
-
     private boolean reflecting;
     private boolean reflectTopDown;
     private boolean reflectLeftRight;
     private boolean vulnerable;
     private TileObject prevTile;
-    private HashMap<String,Boolean> prevMovements;
+    private TileObject intentTile; // tile at the start of the frame, see computeIntent
+    private int prevDirection;
+    private GameRandom random;
 
     /**
-     * Creates a new enemy with specified (x,y) coordinates.
-     * <p>
-     * Initializes the enemy with a random direction it moves in. 
-     * All enemies move diagonally. 
+     * Creates a new enemy with specified (x,y) coordinates and an unseeded 
+     * random stream. See {@link #Enemy(int, int, GameRandom)}. The enemy
+     * is kept within the tilemap of default size.
      * @param x x-coordinate
      * @param y y-coordinate
      */
     public Enemy(int x, int y) {
+        this(x, y, new GameRandom(new SplittableRandom().nextLong()));
+        super.snapBoundary(this.getX(), this.getY());
+    }
+
+    /**
+     * Creates a new enemy with specified (x,y) coordinates.
+     * <p>
+     * Initializes the enemy with a random direction it moves in. 
+     * All enemies move diagonally. The coordinates must be within the tilemap.
+     * @param x      x-coordinate
+     * @param y      y-coordinate
+     * @param random the random stream of this enemy (direction and respawn)
+     */
+    public Enemy(int x, int y, GameRandom random) {
         super(x,y);
-        // get random initial diagonal movement as index codes 
+        this.random = random;
+        // get random initial diagonal movement as index codes (up,right,down,left)
         int dirCodeOne, dirCodeTwo; 
-        dirCodeOne = new Random().nextInt(movements.size());
+        dirCodeOne = this.random.nextInt(4);
         while (true) {
-            dirCodeTwo = new Random().nextInt(movements.size());
+            dirCodeTwo = this.random.nextInt(4);
             if (dirCodeOne != dirCodeTwo && Math.abs(dirCodeTwo-dirCodeOne)!=2)
                 break;
         }
-        // update movement to true
-        movements.replace(movementIdx.get(dirCodeOne), true);
-        movements.replace(movementIdx.get(dirCodeTwo), true);
-        super.snapBoundary(this.getX(), this.getY());
+        // index code n is direction bit n
+        this.direction = (1 << dirCodeOne) | (1 << dirCodeTwo);
     }
 
     /**
@@ -75,17 +84,42 @@ public class Enemy extends Agent {
      * Updates this enemy's movement and action. Called every frame.
      * <p>
      * Checks collision of this enemy with other game objects. Extends the movement 
-     * behaviours of its parent class {@link lawnlayer.Agent}. Enemies also {@link #attack(App, Player, TileObject)} 
+     * behaviours of its parent class {@link lawnlayer.Agent}. Enemies also {@link #attack(GameState, Player, TileObject)} 
      * other game objects.
-     * @param gameboard the current gameboard (i.e.App)
+     * <p>
+     * Same as {@link #computeIntent(GameState)} then {@link #applyEffects(GameState)}.
+     * @param gameboard the current gameboard (i.e.GameState)
+     */
+    public void tick(GameState gameboard) {
+        this.computeIntent(gameboard);
+        this.applyEffects(gameboard);
+    }
+
+    /**
+     * First phase of {@link #tick(GameState)}: checks collision and moves this enemy.
+     * Only reads the tilemap and only writes the state of this enemy, so all enemies
+     * can compute their intents in parallel. The tile this enemy is in before it 
+     * moves is kept for {@link #applyEffects(GameState)}.
+     * @param gameboard the current gameboard (i.e.GameState)
      */
-    public void tick(App gameboard) {
-        TileObject enemyTile = super.getTile(gameboard.allTileObjects());
-        this.checkCollision(gameboard, enemyTile, 
-                this.getSurroundingTiles(gameboard.getTileMap(), enemyTile));
+    public void computeIntent(GameState gameboard) {
+        TileGrid grid = gameboard.getGrid();
+        TileObject enemyTile = super.getTile(grid);
+        this.checkCollision(gameboard, enemyTile, this.getSurroundingTiles(grid, enemyTile));
         super.tick();
         super.snapBoundary(this.getX(), this.getY());
-        attack(gameboard, gameboard.getPlayer(), enemyTile);
+        this.intentTile = enemyTile;
+    }
+
+    /**
+     * Second phase of {@link #tick(GameState)}: moves this enemy in the spatial 
+     * index and attacks from the tile it was in when it computed its intent.
+     * Changes the tilemap and the player, so enemies apply their effects one at a time.
+     * @param gameboard the current gameboard (i.e.GameState)
+     */
+    public void applyEffects(GameState gameboard) {
+        gameboard.getAgents().move(this, this.intentTile);
+        attack(gameboard, gameboard.getPlayer(), this.intentTile);
     }
 
     /**
@@ -93,40 +127,40 @@ public class Enemy extends Agent {
      * so that they can be restored when the enemy unfreezes.
      */
     public void freeze() {
-        prevMovements = new HashMap<String,Boolean>();
-        prevMovements.putAll(movements);
-        movements.replaceAll((k, v) -> false);
+        prevDirection = direction;
+        direction = 0;
     }
 
     /**
      * Restores the movement of this enemy before it was frozen.
      */
     public void unfreeze() {
-        movements.putAll(prevMovements);
+        direction = prevDirection;
     }
 
     /**
      * Respawns this enemy in another random tile in the gameplay area (i.e.soil).
-     * @param tileMap the current 2d tilemap
+     * @param grid the tile grid of this game
      * @return the new tile where this enemy locates after respawn
      */
-    public TileObject respawnTile(TileObject[][] tileMap) {
+    public TileObject respawnTile(TileGrid grid) {
         // random spawn tile in soil area
-        TileObject tile = null;
+        int rndTileRow;
+        int rndTileCol;
         while (true) {
-            int rndTileRow = new Random().nextInt(tileMap.length-3) + 1; //1~30
-            int rndTileCol = new Random().nextInt(tileMap[0].length-3) + 1; //1~62
-            tile = tileMap[rndTileRow][rndTileCol];
-            if (tile.isSoil())
+            rndTileRow = this.random.nextInt(grid.getRows()-3) + 1; //1~30
+            rndTileCol = this.random.nextInt(grid.getCols()-3) + 1; //1~62
+            if (grid.get(rndTileRow, rndTileCol) == TileGrid.SOIL)
                 break; // tile empty, no need to generate another random tile
         }
+        TileObject tile = grid.getTile(rndTileRow, rndTileCol);
         // get random pixel location within the chosen tile
-        int xMin = tile.getX() - App.SPRITESIZE()/2;
-        int xMax = tile.getX() + App.SPRITESIZE()/2;
-        int yMin = tile.getY() - App.SPRITESIZE()/2;
-        int yMax = tile.getY() + App.SPRITESIZE()/2;
-        int rndX = new Random().nextInt((xMax+1) - xMin) + xMin;
-        int rndY = new Random().nextInt((yMax+1) - yMin) + yMin;
+        int xMin = tile.getX() - GameState.SPRITESIZE()/2;
+        int xMax = tile.getX() + GameState.SPRITESIZE()/2;
+        int yMin = tile.getY() - GameState.SPRITESIZE()/2;
+        int yMax = tile.getY() + GameState.SPRITESIZE()/2;
+        int rndX = this.random.nextInt((xMax+1) - xMin) + xMin;
+        int rndY = this.random.nextInt((yMax+1) - yMin) + yMin;
  
         this.setX(rndX);
         this.setY(rndY);
@@ -134,19 +168,6 @@ public class Enemy extends Agent {
         return tile;
     }
 
-    /**
-     * Checks if given integer array contains given integer.
-     * @param n     the integer to be checked
-     * @param arr   the integer array to be checked against
-     * @return      <code>true</code> if element in array, otherwise <code>false</code>
-     */
-    public boolean contains(int n, int[] arr) {
-        for (int elem : arr) {
-            if (elem == n) return true;
-        }
-        return false;
-    }
-
     /**
      * Check if this enemy collides with other game objects, and updates behaviours 
      * that needs to change upon collision.
@@ -159,12 +180,12 @@ public class Enemy extends Agent {
      * <p>
      * The enemy only reflects once until it reaches a different tile to avoid it 
      * getting stuck reflecting back and forth in the same tile. 
-     * @param gameboard         the current gameboard (i.e.App)
+     * @param gameboard         the current gameboard (i.e.GameState)
      * @param enemyTile         this enemy's tile
      * @param surroundingTiles  the 8 tiles surrounding this enemy
      */
-    public void checkCollision(App gameboard, TileObject enemyTile, 
-                    HashMap<Integer,TileObject> surroundingTiles) {
+    public void checkCollision(GameState gameboard, TileObject enemyTile, 
+                    Neighbourhood surroundingTiles) {
 
         // use surrounding tiles to detect which side of wall the Agent is gonna hit
         /*   1 2 3
@@ -174,33 +195,17 @@ public class Enemy extends Agent {
         // do not check surroundingTiles collision if still reflecting
         if (surroundingTiles.size() == 8 && !reflecting && enemyTile.isSoil()) {
             
-            Iterator<Integer> itr = surroundingTiles.keySet().iterator();
-            // shallow check
-            while (itr.hasNext()) {
-                Integer key = itr.next();
-                if (surroundingTiles.get(key).isSoil())
-                    itr.remove(); // left with tiles hit
-            }
-
             // deep check if any of surroundingTiles is hit
-            if (surroundingTiles.size() != 0) {
-                int Top,Right,Down,Left;
-                Top = Right = Down = Left = 0;
-                for (Integer key: surroundingTiles.keySet()) {
-                    if (this.contains(key, TOP_KEYS)) Top++;
-                    if (this.contains(key, RIGHT_KEYS)) Right++;
-                    if (this.contains(key, DOWN_KEYS)) Down++;
-                    if (this.contains(key, LEFT_KEYS)) Left++;
-                }
-                
+            if (surroundingTiles.getBlocked() != 0) {
                 // Determine side based on how many tiles hit on each side
-                // int[] sides = {Top,Right,Down,Left};
-                // System.out.printf("%d %d %d %d%n",sides[0],sides[1],sides[2],sides[3]);
                 reflectTopDown = false;
                 reflectLeftRight = false;
-                if (Top >= 2 || Down >= 2) // 2=probably a wall; 3=definetely a wall
+                // 2=probably a wall; 3=definetely a wall
+                if (surroundingTiles.countBlocked(Neighbourhood.TOP) >= 2 || 
+                        surroundingTiles.countBlocked(Neighbourhood.DOWN) >= 2)
                     reflectTopDown = true;
-                if (Right >= 2 || Left >= 2)
+                if (surroundingTiles.countBlocked(Neighbourhood.RIGHT) >= 2 || 
+                        surroundingTiles.countBlocked(Neighbourhood.LEFT) >= 2)
                     reflectLeftRight = true;
             }
         }
@@ -209,11 +214,11 @@ public class Enemy extends Agent {
         if (!enemyTile.isSoil()) {
 
             // walloverride
-            if (enemyTile.getRow()==0 || enemyTile.getRow()==App.GRID_ROW()-1) {
+            if (enemyTile.getRow()==0 || enemyTile.getRow()==gameboard.getRows()-1) {
                 reflectTopDown = true;
                 // System.out.println("topDownWall override");
             }
-            if (enemyTile.getCol()==0 || enemyTile.getCol()==App.GRID_COL()-1) {
+            if (enemyTile.getCol()==0 || enemyTile.getCol()==gameboard.getCols()-1) {
                 reflectLeftRight = true;
                 // System.out.println("leftRightWall override");
             }
@@ -222,21 +227,11 @@ public class Enemy extends Agent {
             if (!reflecting) {
                 reflecting = true; // only reflect once
                 // Top/Bottom wall
-                if (reflectTopDown) {
-                    for (Map.Entry<String,Boolean> entry : movements.entrySet()) {
-                        if (entry.getKey().equals("moveUp") ||
-                                entry.getKey().equals("moveDown"))
-                            entry.setValue(!entry.getValue());   
-                    }
-                }
+                if (reflectTopDown)
+                    direction ^= VERTICAL;
                 // Left/Right wall
-                if (reflectLeftRight) {
-                    for (Map.Entry<String,Boolean> entry : movements.entrySet()) {
-                        if (entry.getKey().equals("moveLeft") ||
-                                entry.getKey().equals("moveRight"))
-                            entry.setValue(!entry.getValue());   
-                    }
-                }
+                if (reflectLeftRight)
+                    direction ^= HORIZONTAL;
             }  
         } 
 
@@ -248,21 +243,21 @@ public class Enemy extends Agent {
 
     /**
      * Defines the attack beahviours of this enemy.
-     * All enemies in normal state causes {@link lawnlayer.Player#die(App)} upon collision 
+     * All enemies in normal state causes {@link lawnlayer.Player#die(GameState)} upon collision 
      * when player in soil area. Enemies in vulnerable state respawns to another soil tile 
-     * upon collision with player. See {@link #respawnTile(TileObject[][])}.
+     * upon collision with player. See {@link #respawnTile(TileGrid)}.
      * <p>
      * All enemies in normal state triggers red path to start propogating from the path 
      * tile that was hit. See {@link lawnlayer.Player#initialPropogate(TileObject)}. 
-     * @param gameboard the current gameboard (i.e.App)
+     * @param gameboard the current gameboard (i.e.GameState)
      * @param player    the player in this game instance
      * @param enemyTile this enemy's tile
      */
-    public void attack(App gameboard, Player player, TileObject enemyTile) {
+    public void attack(GameState gameboard, Player player, TileObject enemyTile) {
         // attack player directly when player in soil
         if (enemyTile == player.getPlayerTile() && player.isInSoil()) {
             if (vulnerable)
-                this.respawnTile(gameboard.getTileMap());
+                this.respawnTile(gameboard.getGrid());
             else
                 player.die(gameboard);
         }
@@ -272,4 +267,56 @@ public class Enemy extends Agent {
         }
     }
 
-}
\ No newline at end of file
+    /**
+     * Takes a snapshot of the state of this enemy: position, direction, reflection
+     * and its random stream (see {@link GameState#snapshot()}).
+     * @return the snapshot
+     */
+    Snapshot snapshot() {
+        Snapshot snapshot = new Snapshot();
+        snapshot.x = this.getX();
+        snapshot.y = this.getY();
+        snapshot.direction = this.direction;
+        snapshot.prevDirection = this.prevDirection;
+        snapshot.reflecting = this.reflecting;
+        snapshot.reflectTopDown = this.reflectTopDown;
+        snapshot.reflectLeftRight = this.reflectLeftRight;
+        snapshot.vulnerable = this.vulnerable;
+        snapshot.prevTile = this.prevTile;
+        snapshot.random = this.random.copy();
+        return snapshot;
+    }
+
+    /**
+     * Sets the state of this enemy back to a snapshot of this enemy.
+     * @param snapshot the snapshot
+     */
+    void restore(Snapshot snapshot) {
+        this.setX(snapshot.x);
+        this.setY(snapshot.y);
+        this.direction = snapshot.direction;
+        this.prevDirection = snapshot.prevDirection;
+        this.reflecting = snapshot.reflecting;
+        this.reflectTopDown = snapshot.reflectTopDown;
+        this.reflectLeftRight = snapshot.reflectLeftRight;
+        this.vulnerable = snapshot.vulnerable;
+        this.prevTile = snapshot.prevTile;
+        this.random.restore(snapshot.random);
+    }
+
+    /**
+     * State of an enemy at some point, see {@link Enemy#snapshot()}.
+     */
+    static final class Snapshot {
+        private int x;
+        private int y;
+        private int direction;
+        private int prevDirection;
+        private boolean reflecting;
+        private boolean reflectTopDown;
+        private boolean reflectLeftRight;
+        private boolean vulnerable;
+        private TileObject prevTile;
+        private GameRandom random;
+    }
+}
@@ -0,0 +1,126 @@
+package lawnlayer;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Nanosecond timers around the phases of a frame, each recorded into its own
+ * {@link Histogram}. The app times drawing ({@link App#draw()}), the game times
+ * its simulation when given a profiler ({@link GameState#setProfiler(FrameProfiler)}).
+ * <p>
+ * Phases are timed as laps: {@link #lap(Phase, long)} records the time since the
+ * start of the phase and returns the start of the next one, so back to back
+ * phases take one clock read each.
+ */
+public class FrameProfiler {
+
+    /**
+     * The timed phases of a frame.
+     */
+    public enum Phase {
+        /** Background and top bar texts. */
+        HUD("hud"),
+        /** Redrawing changed tiles and drawing the tilemap in view. */
+        TILES("tiles"),
+        /** Enemy intents and effects, see {@link GameState#step()}. */
+        ENEMIES("enemies"),
+        /** Player tick, including any capture. */
+        PLAYER("player"),
+        /** Capture of enclosed areas (flood fill) when the player reaches safety. */
+        CAPTURE("capture"),
+        /** Powerup timers, spawning and consuming. */
+        POWERUP("powerup");
+
+        private final String label;
+
+        Phase(String label) {
+            this.label = label;
+        }
+
+        /**
+         * Gets the short name of this phase, as in the overlay and the log.
+         * @return the name
+         */
+        public String getLabel() {
+            return this.label;
+        }
+    }
+
+    private final Histogram[] histograms = new Histogram[Phase.values().length];
+
+    /**
+     * Creates a new profiler with empty histograms.
+     */
+    public FrameProfiler() {
+        for (int i = 0; i < this.histograms.length; i++)
+            this.histograms[i] = new Histogram();
+    }
+
+    /**
+     * Gets the current time to start timing a phase.
+     * @return the time in nanoseconds
+     */
+    public long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Records the time of a phase.
+     * @param phase the phase
+     * @param start the start of the phase, see {@link #start()}
+     * @return      the current time, i.e.the start of the next phase
+     */
+    public long lap(Phase phase, long start) {
+        long now = System.nanoTime();
+        this.histograms[phase.ordinal()].record(now - start);
+        return now;
+    }
+
+    /**
+     * Gets the histogram of a phase.
+     * @param phase the phase
+     * @return      the histogram, in nanoseconds
+     */
+    public Histogram getHistogram(Phase phase) {
+        return this.histograms[phase.ordinal()];
+    }
+
+    /**
+     * Removes all times recorded, e.g.after they are written to the log.
+     */
+    public void reset() {
+        for (Histogram histogram : this.histograms)
+            histogram.reset();
+    }
+
+    /**
+     * Formats the times of a phase in microseconds.
+     * @param phase the phase
+     * @return      the times, e.g.<code>enemies  p50 12.5 p99 30.1 max 45.0</code>
+     */
+    public String format(Phase phase) {
+        Histogram histogram = this.getHistogram(phase);
+        return String.format("%-8s p50 %6.1f p99 %6.1f max %6.1f", phase.getLabel(),
+                histogram.getPercentile(50) / 1000.0, histogram.getPercentile(99) / 1000.0,
+                histogram.getMax() / 1000.0);
+    }
+
+    /**
+     * Writes the times of all phases, one line per phase, tab separated:
+     * time, phase, count, p50, p99, p99.9 and max in microseconds. Phases that
+     * were not timed are skipped.
+     * @param out           where the lines are written
+     * @param timeMillis    the time of the lines, e.g.{@link System#currentTimeMillis()}
+     * @throws IOException  if writing fails
+     */
+    public void dump(Writer out, long timeMillis) throws IOException {
+        for (Phase phase : Phase.values()) {
+            Histogram histogram = this.getHistogram(phase);
+            if (histogram.getCount() == 0) continue;
+            out.write(String.format("%d\t%s\t%d\t%.1f\t%.1f\t%.1f\t%.1f%n", timeMillis,
+                    phase.getLabel(), histogram.getCount(),
+                    histogram.getPercentile(50) / 1000.0, histogram.getPercentile(99) / 1000.0,
+                    histogram.getPercentile(99.9) / 1000.0, histogram.getMax() / 1000.0));
+        }
+    }
+}
@@ -23,8 +23,8 @@ public class GameObject {
      * @param y y-coordinate
      */
     public GameObject(int x, int y) {
-        this.x = x + App.SPRITESIZE()/2;
-        this.y = y + App.SPRITESIZE()/2;
+        this.x = x + GameState.SPRITESIZE()/2;
+        this.y = y + GameState.SPRITESIZE()/2;
     }
 
     /**
@@ -63,13 +63,13 @@ public class GameObject {
     /**
      * Draws the sprite of this game object on screen. The sprite is always drawn from  
      * the top-left corner of tile.
-     * <p> x coordinate = x - {@link lawnlayer.App#SPRITESIZE()} / 2<br> 
-     * y coordinate = y - {@link lawnlayer.App#SPRITESIZE()} / 2
+     * <p> x coordinate = x - {@link lawnlayer.GameState#SPRITESIZE()} / 2<br> 
+     * y coordinate = y - {@link lawnlayer.GameState#SPRITESIZE()} / 2
      * @param app the base class app of {@link PApplet}
      */
     public void draw(PApplet app) {
         // System.out.println(this.sprite);
-        app.image(this.sprite, this.x-App.SPRITESIZE()/2, this.y-App.SPRITESIZE()/2);
+        app.image(this.sprite, this.x-GameState.SPRITESIZE()/2, this.y-GameState.SPRITESIZE()/2);
     }
 
     /**
@@ -0,0 +1,110 @@
+package lawnlayer;
+
+/**
+ * Splittable random stream of the game. Gives the same numbers as
+ * {@link java.util.SplittableRandom} for the same seed and calls (it is the same
+ * SplitMix64 generator), but its state can be copied, so a game restored from a
+ * snapshot draws the same random numbers again (see {@link GameState#snapshot()}).
+ * <p>
+ * Not thread-safe, each stream is used by one subsystem or enemy.
+ */
+public class GameRandom {
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private long seed;
+    private final long gamma;
+
+    /**
+     * Creates a new random stream from a seed.
+     * @param seed the seed
+     */
+    public GameRandom(long seed) {
+        this(seed, GOLDEN_GAMMA);
+    }
+
+    private GameRandom(long seed, long gamma) {
+        this.seed = seed;
+        this.gamma = gamma;
+    }
+
+    /**
+     * Splits off a new random stream, independent from this one.
+     * @return the new stream
+     */
+    public GameRandom split() {
+        return new GameRandom(this.nextLong(), mixGamma(this.nextSeed()));
+    }
+
+    /**
+     * Copies this stream. The copy gives the same numbers as this stream from
+     * now on.
+     * @return the copy
+     */
+    public GameRandom copy() {
+        return new GameRandom(this.seed, this.gamma);
+    }
+
+    /**
+     * Sets this stream back to the state of another stream split from the same
+     * stream, e.g.a copy of this stream taken earlier.
+     * @param other                     the stream to copy the state of
+     * @throws IllegalArgumentException if the other stream is not a copy
+     */
+    public void restore(GameRandom other) throws IllegalArgumentException {
+        if (other.gamma != this.gamma)
+            throw new IllegalArgumentException("not a copy of this stream");
+        this.seed = other.seed;
+    }
+
+    /**
+     * Gets the next random long.
+     * @return the long
+     */
+    public long nextLong() {
+        return mix64(this.nextSeed());
+    }
+
+    /**
+     * Gets the next random int between 0 (inclusive) and a bound (exclusive).
+     * @param bound                     the bound, positive
+     * @return                          the int
+     * @throws IllegalArgumentException if the bound is not positive
+     */
+    public int nextInt(int bound) throws IllegalArgumentException {
+        if (bound <= 0)
+            throw new IllegalArgumentException("bound must be positive");
+        int r = mix32(this.nextSeed());
+        int m = bound - 1;
+        if ((bound & m) == 0) {
+            r &= m; // power of two
+        } else {
+            // reject the values of the last, partial range
+            for (int u = r >>> 1; u + m - (r = u % bound) < 0; u = mix32(this.nextSeed()) >>> 1);
+        }
+        return r;
+    }
+
+    private long nextSeed() {
+        return this.seed += this.gamma;
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static int mix32(long z) {
+        z = (z ^ (z >>> 33)) * 0x62a9d9ed799705f5L;
+        return (int)(((z ^ (z >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
+    }
+
+    private static long mixGamma(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        z = (z ^ (z >>> 33)) | 1L; // odd
+        int n = Long.bitCount(z ^ (z >>> 1));
+        return (n < 24) ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+    }
+}
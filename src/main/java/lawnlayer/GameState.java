@@ -0,0 +1,1064 @@
+package lawnlayer;
+
+import processing.data.JSONObject;
+import processing.data.JSONArray;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.io.*;
+
+/**
+ * Headless simulation core of the game. Holds the tilemap, all agents, lives, score
+ * and powerup timers of a game instance, and advances them with {@link #step()}.
+ * <p>
+ * No sketch window is needed to run a game state. {@link App} is only a renderer
+ * on top of it.
+ */
+public class GameState {
+
+    // sprite 20 x 20px
+    private static final int SPRITESIZE = 20;
+    private static final int TOPBAR = 80;
+    // Default grid is 64col x 32row, actual size is given by the level layout
+    private static final int DEFAULT_COLS = 64;
+    private static final int DEFAULT_ROWS = 32;
+
+    private static final int FPS = 60;
+    // fewer enemies compute their intents faster on one thread
+    private static final int PARALLEL_ENEMIES = 512;
+    // reads level layouts in the background, started in order, shared by all games
+    // so concurrent games (see BatchRunner) read their layouts in parallel
+    private static final AtomicInteger LEVEL_LOADERS = new AtomicInteger();
+    private static final ExecutorService LEVEL_LOADER = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(), r -> {
+        Thread thread = new Thread(r, "level-loader-" + LEVEL_LOADERS.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // map, tile types are stored in the grid
+    private TileGrid grid;
+    private final TileListener gridListener = this::tileChanged;
+
+    // game and level data
+    private List<Level> levelList;
+    private Level currentLevel;
+    private int lives;
+    private double score;
+
+    private Player player;
+    private List<Enemy> allEnemies;
+    private Powerup powerup; // only 1 powerup at a time present on screen
+    private SpatialIndex agents;
+    private int parallelEnemies = PARALLEL_ENEMIES;
+    private boolean powerupInEffect;
+    private int defaultTimer = 10; // duration and delay
+    private int powerupTimer;
+    private String powerupKeyText;
+    private String consumedPowerup;
+    private int delayInterval;
+
+    // randomness, one split stream per subsystem
+    private long seed;
+    private GameRandom spawnRandom;
+    private GameRandom enemyRandom;
+    private GameRandom powerupRandom;
+
+    private boolean gameOver;
+    private boolean won;
+    private long tickCount;
+    private FrameProfiler profiler; // null unless timing phases
+
+    // -------------- CONSTRUCTOR -----------------
+    /**
+     * Creates a new empty game state with a random seed. Levels are loaded with 
+     * {@link #parseJSON(String)} and started with {@link #parseLevel(Level)}.
+     */
+    public GameState() {
+        this(new SplittableRandom().nextLong());
+    }
+
+    /**
+     * Creates a new empty game state with the specified seed. The same seed with 
+     * the same inputs always produces the same game.
+     * @param seed the seed of all randomness in this game
+     */
+    public GameState(long seed) {
+        this.grid = new TileGrid(DEFAULT_ROWS, DEFAULT_COLS);
+        this.grid.addListener(this.gridListener);
+        this.agents = new SpatialIndex(DEFAULT_ROWS, DEFAULT_COLS);
+        this.levelList = new ArrayList<Level>();
+        this.allEnemies = new ArrayList<Enemy>();
+        this.setSeed(seed);
+    }
+
+    // -------------- GETTER/SETTER -----------------
+    /**
+     * Gets the constant size that all sprites would be sketched in for this game.
+     * @return the sprite size as an integer
+     */
+    public static int SPRITESIZE() {
+        return SPRITESIZE;
+    }
+
+    /**
+     * Gets the default number of rows in the grid map, used by agents that are
+     * not part of a game state.
+     * @return the default number of rows
+     */
+    public static int DEFAULT_ROWS() {
+        return DEFAULT_ROWS;
+    }
+
+    /**
+     * Gets the default number of columns in the grid map.
+     * @return the default number of columns
+     */
+    public static int DEFAULT_COLS() {
+        return DEFAULT_COLS;
+    }
+
+    /**
+     * Gets the size of top bar where game information (lives,goal,level etc.) is displayed.
+     * @return the vertical length of the top bar
+     */
+    public static int TOPBAR() {
+        return TOPBAR;
+    }
+
+    /**
+     * Gets the number of simulation steps per second.
+     * @return integer FPS value
+     */
+    public static int FPS() {
+        return FPS;
+    }
+
+    /**
+     * Gets the seed of this game.
+     * @return the seed
+     */
+    public long getSeed() {
+        return this.seed;
+    }
+
+    /**
+     * Reseeds this game. Every subsystem (spawn positions, enemy movements, 
+     * powerups) draws from its own stream split from the seed, so that changes 
+     * in one subsystem do not shift the random numbers of another.
+     * @param seed the seed of all randomness in this game
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+        GameRandom root = new GameRandom(seed);
+        this.spawnRandom = root.split();
+        this.enemyRandom = root.split();
+        this.powerupRandom = root.split();
+
+        // delay interval random between 1~10s (60~600 frames) for 60FPS
+        this.delayInterval = (this.powerupRandom.nextInt(this.defaultTimer) + 1) * FPS;
+    }
+
+    /**
+     * Gets the list of all levels for this game instance.
+     * @return the list of all {@link Level}
+     */
+    public List<Level> getLevelList() {
+        return this.levelList;
+    }
+
+    /**
+     * Gets the reference to the current level.
+     * @return the current {@link Level}
+     */
+    public Level getCurrentLevel() {
+        return this.currentLevel;
+    }
+
+    /**
+     * Sets the number of lives in this game instance
+     * @param lives the integer number of lives to be updated
+     */
+    public void setLives(int lives) {
+        this.lives = lives;
+    }
+
+    /**
+     * Gets the number of lives in this game instance.
+     * @return the integer number of lives
+     */
+    public int getLives() {
+        return this.lives;
+    }
+
+    /**
+     * Gets the current score of this level in percentage. The score is live, 
+     * it changes as soon as grass is filled or removed.
+     * @return the score
+     */
+    public double getScore() {
+        return this.score;
+    }
+
+    /**
+     * Gets the reference to the current player in this game instance.
+     * @return the player
+     */
+    public Player getPlayer() {
+        return this.player;
+    }
+
+    /**
+     * Gets the current tilemap of this level.
+     * @return the 2d tilemap
+     */
+    public TileObject[][] getTileMap() {
+        return this.grid.getTileMap();
+    }
+
+    /**
+     * Gets the tile grid of this level, which stores the types of all tiles.
+     * @return the tile grid
+     */
+    public TileGrid getGrid() {
+        return this.grid;
+    }
+
+    /**
+     * Gets the number of rows in the grid map. Game area is defined as a grid-based
+     * tile map, sized by the layout of the current level.
+     * @return the number of rows in the grid map
+     */
+    public int getRows() {
+        return this.grid.getRows();
+    }
+
+    /**
+     * Gets the number of columns in the grid map.
+     * @return the number of columns in the grid map
+     */
+    public int getCols() {
+        return this.grid.getCols();
+    }
+
+    /**
+     * Gets all the tile objects of this level. The array is cached until a new 
+     * tilemap is parsed, callers must not modify it.
+     * @return all tile objects in a single row-major array
+     */
+    public TileObject[] allTileObjects() {
+        return this.grid.getTiles();
+    }
+
+    /**
+     * Gets all enemies of this level.
+     * @return all enemies in a single list
+     */
+    public List<Enemy> getEnemies() {
+        return this.allEnemies;
+    }
+
+    /**
+     * Gets the spatial index of the agents in this level, by the tile they are in.
+     * Enemies and the player update their tile in the index as they tick.
+     * @return the spatial index
+     */
+    public SpatialIndex getAgents() {
+        return this.agents;
+    }
+
+    /**
+     * Gets the powerup collectible.
+     * @return the {@link Powerup} object
+     */
+    public Powerup getPowerup() {
+        return this.powerup;
+    }
+
+    public void setDelayInterval(int value) {
+        this.delayInterval = value;
+    }
+
+    public int getDelayInterval() {
+        return this.delayInterval;
+    }
+
+    public void setPowerupInEffect(boolean value) {
+        this.powerupInEffect = value;
+    }
+
+    public boolean isPowerupInEffect() {
+        return this.powerupInEffect;
+    }
+
+    public void setPowerupTimer(int value) {
+        this.powerupTimer = value;
+    }
+
+    public int getPowerupTimer() {
+        return this.powerupTimer;
+    }
+
+    /**
+     * Gets the type of the powerup that is or was last in effect.
+     * @return the powerup type string, <code>null</code> if none consumed yet
+     */
+    public String getPowerupKeyText() {
+        return this.powerupKeyText;
+    }
+
+    /**
+     * Gets the type of the powerup consumed by the player during the last
+     * {@link #updatePowerup()}. Renderers use this to trigger sound effects.
+     * @return the powerup type string, <code>null</code> if nothing was consumed
+     */
+    public String getConsumedPowerup() {
+        return this.consumedPowerup;
+    }
+
+    public void setGameOver(boolean value) {
+        this.gameOver = value;
+    }
+
+    public boolean isGameOver() {
+        return this.gameOver;
+    }
+
+    /**
+     * Checks if the game finished by winning the last level.
+     * @return <code>true</code> if won, otherwise <code>false</code>
+     */
+    public boolean isWon() {
+        return this.won;
+    }
+
+    /**
+     * Gets the number of steps simulated since this game state was created.
+     * @return the step count
+     */
+    public long getTickCount() {
+        return this.tickCount;
+    }
+
+    /**
+     * Sets from how many enemies they compute their intents in parallel, see
+     * {@link #step()}. The game is the same either way.
+     * @param enemies the least number of enemies, 0 to always compute in parallel
+     *                (if there is more than one core), {@link Integer#MAX_VALUE} to never
+     */
+    public void setParallelEnemies(int enemies) {
+        this.parallelEnemies = enemies;
+    }
+
+    /**
+     * Gets the profiler timing the phases of {@link #step()}.
+     * @return the profiler, <code>null</code> if not timed
+     */
+    public FrameProfiler getProfiler() {
+        return this.profiler;
+    }
+
+    /**
+     * Sets a profiler to time the phases of {@link #step()}: enemies, player
+     * (including captures, also timed on their own) and powerup.
+     * @param profiler the profiler, <code>null</code> to stop timing
+     */
+    public void setProfiler(FrameProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    // -------------- Simulation -----------------
+    /**
+     * Advances the game by one frame. Ticks all enemies, then the player, then
+     * updates the powerup. Does nothing once the game is over.
+     * <p>
+     * Enemies tick in 2 phases. First every enemy computes its intent, i.e.collides
+     * and moves, from the tilemap as it is at the start of the frame 
+     * ({@link Enemy#computeIntent(GameState)}). Nothing shared is changed, so with 
+     * many enemies this runs across cores. Then the enemies apply their effects
+     * (eroding grass, hitting the path or the player) one at a time in the order
+     * they were spawned ({@link Enemy#applyEffects(GameState)}), e.g.when two 
+     * enemies hit the path, the first one starts the red path. The same seed and
+     * inputs give the same game however many cores there are.
+     */
+    public void step() {
+        if (this.gameOver) return;
+
+        FrameProfiler profiler = this.profiler;
+        long start = profiler == null ? 0 : profiler.start();
+        if (this.allEnemies.size() >= this.parallelEnemies 
+                && ForkJoinPool.getCommonPoolParallelism() > 1) {
+            this.allEnemies.parallelStream().forEach(enemy -> enemy.computeIntent(this));
+        } else {
+            for (Enemy enemy : this.allEnemies)
+                enemy.computeIntent(this);
+        }
+        for (Enemy enemy : this.allEnemies)
+            enemy.applyEffects(this);
+        if (profiler != null) start = profiler.lap(FrameProfiler.Phase.ENEMIES, start);
+        this.player.tick(this);
+        if (profiler != null) start = profiler.lap(FrameProfiler.Phase.PLAYER, start);
+        this.updatePowerup();
+        if (profiler != null) profiler.lap(FrameProfiler.Phase.POWERUP, start);
+        this.tickCount++;
+    }
+
+    /**
+     * Handles a key pressed, before the next {@link #step()}. Arrow keys turn the
+     * player, other keys are ignored.
+     * @param keyCode the key code of the key
+     * @see lawnlayer.Player#pressUp()
+     * @see lawnlayer.Player#pressRight()
+     * @see lawnlayer.Player#pressDown()
+     * @see lawnlayer.Player#pressLeft()
+     */
+    public void keyPressed(int keyCode) {
+        // Left: 37
+        // Up: 38
+        // Right: 39
+        // Down: 40
+        if (keyCode == 37) {
+            this.player.pressLeft();
+        } else if (keyCode == 39) {
+            this.player.pressRight();
+        } else if (keyCode == 38) {
+            this.player.pressUp();
+        } else if (keyCode == 40) {
+            this.player.pressDown();
+        }
+    }
+
+    /**
+     * Handles a key released, before the next {@link #step()}.
+     * @param keyCode the key code of the key
+     * @see lawnlayer.Player#releaseUp()
+     * @see lawnlayer.Player#releaseRight()
+     * @see lawnlayer.Player#releaseDown()
+     * @see lawnlayer.Player#releaseLeft()
+     */
+    public void keyReleased(int keyCode) {
+        if (keyCode == 37) {
+            this.player.releaseLeft();
+        } else if (keyCode == 39) {
+            this.player.releaseRight();
+        } else if (keyCode == 38) {
+            this.player.releaseUp();
+        } else if (keyCode == 40) {
+            this.player.releaseDown();
+        }
+    }
+
+    /**
+     * Computes a hash of the state of the game: tick, lives, score, tiles,
+     * positions and directions of the agents and the powerup timers. The same
+     * seed and inputs give the same checksum at every tick, see {@link Replay}.
+     * @return the checksum
+     */
+    public long checksum() {
+        long hash = this.grid.checksum();
+        hash = mix(hash, this.tickCount);
+        hash = mix(hash, this.lives);
+        hash = mix(hash, Double.doubleToLongBits(this.score));
+        hash = mix(hash, this.levelList.indexOf(this.currentLevel));
+        if (this.player != null) {
+            hash = mix(hash, this.player.getX());
+            hash = mix(hash, this.player.getY());
+            hash = mix(hash, this.player.getDirection());
+        }
+        for (Enemy enemy : this.allEnemies) {
+            hash = mix(hash, enemy.getX());
+            hash = mix(hash, enemy.getY());
+            hash = mix(hash, enemy.getDirection());
+        }
+        if (this.powerup != null) {
+            hash = mix(hash, this.powerup.getX());
+            hash = mix(hash, this.powerup.getY());
+        }
+        hash = mix(hash, this.powerupInEffect ? 1 : 0);
+        hash = mix(hash, this.powerupTimer);
+        hash = mix(hash, this.delayInterval);
+        return mix(hash, this.gameOver ? (this.won ? 2 : 1) : 0);
+    }
+
+    private static long mix(long hash, long value) {
+        return (hash ^ value) * 0x9E3779B97F4A7C15L;
+    }
+
+    // -------------- Snapshots -----------------
+    /**
+     * Takes a snapshot of the whole game: tiles, player (trail and red path
+     * propogation), enemies, powerup and its timers, lives, score, level and
+     * random streams. Restoring it with {@link #restore(Snapshot)} plays the
+     * same game from there again.
+     * <p>
+     * The tiles are shared with the grid until they change (see
+     * {@link TileGrid#snapshot()}), so a snapshot costs the number of agents and
+     * chunks of the map, not the number of tiles.
+     * @return the snapshot
+     */
+    public Snapshot snapshot() {
+        Snapshot snapshot = new Snapshot();
+        snapshot.game = this;
+        snapshot.grid = this.grid.snapshot();
+        snapshot.currentLevel = this.currentLevel;
+        snapshot.lives = this.lives;
+        snapshot.score = this.score;
+        snapshot.player = this.player;
+        if (this.player != null)
+            snapshot.playerState = this.player.snapshot();
+        snapshot.enemies = this.allEnemies.toArray(new Enemy[this.allEnemies.size()]);
+        snapshot.enemyStates = new Enemy.Snapshot[snapshot.enemies.length];
+        for (int i = 0; i < snapshot.enemies.length; i++)
+            snapshot.enemyStates[i] = snapshot.enemies[i].snapshot();
+        snapshot.powerup = this.powerup;
+        snapshot.powerupInEffect = this.powerupInEffect;
+        snapshot.powerupTimer = this.powerupTimer;
+        snapshot.powerupKeyText = this.powerupKeyText;
+        snapshot.consumedPowerup = this.consumedPowerup;
+        snapshot.delayInterval = this.delayInterval;
+        snapshot.spawnRandom = this.spawnRandom.copy();
+        snapshot.enemyRandom = this.enemyRandom.copy();
+        snapshot.powerupRandom = this.powerupRandom.copy();
+        snapshot.gameOver = this.gameOver;
+        snapshot.won = this.won;
+        snapshot.tickCount = this.tickCount;
+        return snapshot;
+    }
+
+    /**
+     * Sets the game back to a snapshot of this game. The snapshot stays valid,
+     * and can be restored again. A snapshot taken in another level switches
+     * back to the tilemap of that level.
+     * @param snapshot                  the snapshot
+     * @throws IllegalArgumentException if the snapshot is of another game
+     */
+    public void restore(Snapshot snapshot) throws IllegalArgumentException {
+        if (snapshot.game != this)
+            throw new IllegalArgumentException("snapshot of another game");
+
+        TileGrid grid = snapshot.grid.getGrid();
+        grid.restore(snapshot.grid);
+        this.currentLevel = snapshot.currentLevel;
+        this.lives = snapshot.lives;
+        this.score = snapshot.score;
+
+        // agents not in the snapshot leave the index
+        if (this.player != null && this.player != snapshot.player)
+            this.agents.remove(this.player);
+        for (Enemy enemy : this.allEnemies)
+            this.agents.remove(enemy);
+        if (this.powerup != null && this.powerup != snapshot.powerup)
+            this.agents.remove(this.powerup);
+
+        this.player = snapshot.player;
+        if (this.player != null)
+            this.player.restore(snapshot.playerState);
+        this.allEnemies.clear();
+        for (int i = 0; i < snapshot.enemies.length; i++) {
+            snapshot.enemies[i].restore(snapshot.enemyStates[i]);
+            this.allEnemies.add(snapshot.enemies[i]);
+        }
+        this.powerup = snapshot.powerup;
+        this.powerupInEffect = snapshot.powerupInEffect;
+        this.powerupTimer = snapshot.powerupTimer;
+        this.powerupKeyText = snapshot.powerupKeyText;
+        this.consumedPowerup = snapshot.consumedPowerup;
+        this.delayInterval = snapshot.delayInterval;
+        this.spawnRandom = snapshot.spawnRandom.copy();
+        this.enemyRandom = snapshot.enemyRandom.copy();
+        this.powerupRandom = snapshot.powerupRandom.copy();
+        this.gameOver = snapshot.gameOver;
+        this.won = snapshot.won;
+        this.tickCount = snapshot.tickCount;
+
+        if (grid != this.grid) {
+            this.swapGrid(grid); // indexes the agents
+        } else {
+            for (Enemy enemy : this.allEnemies)
+                this.agents.move(enemy, enemy.getTile(this.grid));
+            if (this.player != null)
+                this.agents.move(this.player, this.player.getTile(this.grid));
+            if (this.powerup != null)
+                this.agents.move(this.powerup, this.powerup.getTile(this.grid));
+        }
+    }
+
+    /**
+     * State of a game at some point, see {@link GameState#snapshot()}. Only valid
+     * for the game it was taken of.
+     */
+    public static final class Snapshot {
+        private GameState game;
+        private TileGrid.Snapshot grid;
+        private Level currentLevel;
+        private int lives;
+        private double score;
+        private Player player;
+        private Player.Snapshot playerState;
+        private Enemy[] enemies;
+        private Enemy.Snapshot[] enemyStates;
+        private Powerup powerup;
+        private boolean powerupInEffect;
+        private int powerupTimer;
+        private String powerupKeyText;
+        private String consumedPowerup;
+        private int delayInterval;
+        private GameRandom spawnRandom;
+        private GameRandom enemyRandom;
+        private GameRandom powerupRandom;
+        private boolean gameOver;
+        private boolean won;
+        private long tickCount;
+
+        private Snapshot() {
+        }
+
+        /**
+         * Gets the tick the snapshot was taken at.
+         * @return the number of steps simulated before the snapshot
+         */
+        public long getTickCount() {
+            return this.tickCount;
+        }
+    }
+
+    // -------------- Gameboard control -----------------
+    /**
+     * Modifys the number of remaining lives in this game instance.
+     * @param n integer to be added to the remaining lives
+     *          (negative for decrementation)
+     */
+    public void modifyLife(int n) {
+        this.lives += n;
+        checkWinLose();
+    }
+
+    /**
+     * Updates the current score of this level and checks if the level is won. 
+     * The score is calculated as (filled grass objects / all non-concrete tile 
+     * objects) * 100 in percentage. This percentage is rounded up.
+     * <p>
+     * The tile counts are kept by the grid, so this does not scan the tilemap.
+     * The score itself is already kept up to date on every tile change, see 
+     * {@link #tileChanged(TileGrid, int, byte, byte)}.
+     */
+    public void updateScore() {
+        this.score = this.calculateScore();
+        checkWinLose();
+    }
+
+    /**
+     * Calculates the score of the current tilemap from the tile counts of the grid.
+     * @return the score in percentage
+     */
+    private double calculateScore() {
+        int numOfTiles = this.grid.getRows() * this.grid.getCols() 
+                            - this.grid.count(TileGrid.CONCRETE);
+        int numOfGrass = this.grid.count(TileGrid.GRASS);
+        return Math.ceil((double)numOfGrass / (double)numOfTiles * 100.0);
+    }
+
+    /**
+     * Keeps the score live when tiles of the current grid change type, e.g. when 
+     * grass is filled or eaten by beetles. Only a capture checks if the level is 
+     * won, see {@link #updateScore()}.
+     * @param grid  the grid that changed
+     * @param index the index of the changed tile
+     * @param from  the previous type code
+     * @param to    the new type code
+     */
+    private void tileChanged(TileGrid grid, int index, byte from, byte to) {
+        if (grid != this.grid) return;
+        if (index < 0 || from == TileGrid.GRASS || to == TileGrid.GRASS || 
+            from == TileGrid.CONCRETE || to == TileGrid.CONCRETE)
+            this.score = this.calculateScore();
+    }
+
+    /**
+     * Checks if the game is won or lost.
+     * This function is called either when score is updated ({@link #updateScore()}),
+     * or when lives changed ({@link #modifyLife(int)}).
+     * Won if goal reached. If more levels to come, call upon a new level.
+     * Otherwise, the game is over and won. Lost if no lives left.
+     * See {@link #parseLevel(Level)}.
+     */
+    public void checkWinLose() {
+        // win
+        if (this.score >= this.currentLevel.getGoal()) {
+            int curLvIdx = this.levelList.indexOf(this.currentLevel);
+            if (curLvIdx != this.levelList.size()-1) {
+                this.parseLevel(this.levelList.get(curLvIdx+1)); // parse next level
+            } else {
+                this.won = true;
+                this.gameOver = true;
+            }
+        }
+        // lose
+        else if (this.lives <= 0) {
+            this.won = false;
+            this.gameOver = true;
+        }
+    }
+
+    /**
+     * Nullifys the current player reference. Spawn in a new player at the top
+     * left of the tilemap.
+     */
+    public void newPlayer() {
+        if (this.player != null)
+            this.agents.remove(this.player);
+        this.player = null;
+        this.player = new Player(0, TOPBAR);
+        this.player.setGridSize(this.getRows(), this.getCols());
+        // *Edge case: player release when player die, resulting NullPointerError
+        this.player.tick(this); // initial update to prevent error
+    }
+
+    /**
+     * Indexes the agents of the game in their current tiles. The spatial index is
+     * cleared in place if it is sized to the current tilemap, otherwise a new
+     * one is created.
+     */
+    private void indexAgents() {
+        if (this.agents.getRows() == this.getRows() && this.agents.getCols() == this.getCols())
+            this.agents.clear();
+        else
+            this.agents = new SpatialIndex(this.getRows(), this.getCols());
+        for (Enemy enemy : this.allEnemies)
+            this.agents.move(enemy, enemy.getTile(this.grid));
+        if (this.player != null)
+            this.agents.move(this.player, this.player.getTile(this.grid));
+        if (this.powerup != null)
+            this.agents.move(this.powerup, this.powerup.getTile(this.grid));
+    }
+
+    // -------------- Parsing ----------------------------
+
+    /**
+     * Parses level and sets current level. Objects to be parsed in the level includes:
+     * tilemap (read in the background, see {@link #preloadLevels()}), enemies 
+     * ({@link #parseEnemies(Level)}), player ({@link #newPlayer()}).
+     * @param level the level to be parsed
+     */
+    public void parseLevel(Level level) {
+        // clear everything
+        this.score = 0.0; // reset score
+        this.allEnemies.clear();
+        this.powerupInEffect = false;
+
+        TileGrid newGrid = preparedGrid(level); // tilemap
+        if (newGrid != null)
+            swapGrid(newGrid);
+        parseEnemies(level); // enemies
+        newPlayer(); // player
+        this.currentLevel = level;
+    }
+
+    /**
+     * Parses config JSON file to get a list of levels.
+     * See also {@link processing.data.JSONObject}, {@link processing.data.JSONArray}.
+     * @param path the path of config file
+     */
+    public void parseJSON(String path) {
+        // getting data from JSON
+        JSONObject data;
+        try (Reader reader = new FileReader(path)) {
+            data = new JSONObject(reader);
+        } catch (IOException e) {
+            System.err.println("Config file not found!");
+            return;
+        }
+
+        // lives (not specific to levels)
+        this.lives = data.getInt("lives");
+        // seed (optional, random if not given)
+        if (data.hasKey("seed"))
+            this.setSeed(data.getLong("seed"));
+
+        // levels data
+        JSONArray levels = data.getJSONArray("levels");
+        for (int i = 0; i < levels.size(); i++) {
+            JSONObject level = levels.getJSONObject(i);
+            String outlay = level.getString("outlay");
+            String powerup = level.getString("powerup");
+            double goal = level.getDouble("goal");
+
+            // instantiate a new level
+            Level newLevel = new Level(outlay, powerup, goal);
+
+            // get enemies data in this level
+            JSONArray enemies = level.getJSONArray("enemies");
+            for (int j = 0; j < enemies.size(); j++) {
+                JSONObject enemy = enemies.getJSONObject(j);
+
+                HashMap<String,Object> enemyData = new HashMap<String,Object>();
+                // type data 0:"worm", 1:"beetle"
+                enemyData.put("type", enemy.getInt("type"));
+                // spawn position "random" or coordinates "row,col"
+                enemyData.put("spawn", enemy.getString("spawn"));
+
+                newLevel.addEnemy(enemyData);
+            }
+            this.levelList.add(newLevel); // append this level to level list
+        }
+        this.preloadLevels();
+    }
+
+    /**
+     * Makes a grid the tile grid of this game, at once between two steps. The
+     * agents are indexed again in the new tilemap.
+     * @param newGrid the new tile grid, not shared with anything else
+     */
+    private void swapGrid(TileGrid newGrid) {
+        this.grid.removeListener(this.gridListener);
+        newGrid.addListener(this.gridListener);
+        this.grid = newGrid;
+        this.indexAgents();
+    }
+
+    /**
+     * Gets the tile grid of a level from its layout read in the background, 
+     * waiting if it is not read yet. Starts reading the layouts of all levels
+     * of this game that are not read yet, so the next level is ready when this
+     * one is won.
+     * @param level the level
+     * @return      a copy of the grid of the level, <code>null</code> if the 
+     *              layout cannot be read
+     */
+    private TileGrid preparedGrid(Level level) {
+        Future<TileGrid> layout = level.preload(LEVEL_LOADER);
+        this.preloadLevels();
+        try {
+            return layout.get().copy();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException
+                    && e.getCause().getCause() instanceof FileNotFoundException)
+                System.err.println("Level data file not found!");
+            else
+                System.err.println(e.getCause());
+        }
+        return null;
+    }
+
+    /**
+     * Starts reading the layouts of all levels of this game in the background,
+     * in order, on a pool of one thread per processor, see
+     * {@link Level#preload(Executor)}.
+     */
+    public void preloadLevels() {
+        for (Level level : this.levelList)
+            level.preload(LEVEL_LOADER);
+    }
+
+    /**
+     * Parse level.txt file to update tilemap. See {@link #loadTiles(String)}.
+     * @param filename                  the file that contains level map
+     * @throws IllegalArgumentException if invalid map
+     * @return the 2d tilemap
+     */
+    public TileObject[][] parseTiles (String filename) throws IllegalArgumentException {
+        return this.loadTiles(filename).getTileMap();
+    }
+
+    /**
+     * Parse level.txt file to update the tile grid, see {@link LayoutReader}. The
+     * size of the tilemap is given by the number of lines and the length of the 
+     * lines in the file, and can be as large as the grid can index (rows * columns
+     * below 2^31). Chunks of all soil or all concrete are compacted after parsing.
+     * @param filename                  the file that contains level map
+     * @throws IllegalArgumentException if invalid map
+     * @return the tile grid
+     */
+    public TileGrid loadTiles(String filename) throws IllegalArgumentException {
+        try {
+            this.swapGrid(LayoutReader.read(filename));
+        } catch (FileNotFoundException e) {
+            System.err.println("Level data file not found!");
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println(e);
+        }
+        return this.grid;
+    }
+
+    /**
+     * Parse enemy data to spawn enemies and update enemy list
+     * @param level                     the level to get the data from
+     * @throws IllegalArgumentException if spawn too near edges of game area
+     *                                  (keep 1 block away from walls)
+     */
+    public void parseEnemies(Level level) throws IllegalArgumentException {
+        int rows = this.getRows();
+        int cols = this.getCols();
+        for (HashMap<String,Object> enemy : level.getEnemyList()) {
+            // we want a tile as spawn position of this enemy
+            TileObject tile = null;
+
+            if (enemy.get("spawn").toString().equals("random")) {
+                // random spawn tile in soil area
+                while (true) {
+                    int rndTileRow = this.spawnRandom.nextInt(rows-4) + 2; //2~29
+                    int rndTileCol = this.spawnRandom.nextInt(cols-4) + 2; //2~61
+                    tile = this.grid.getTile(rndTileRow, rndTileCol);
+                    if (tile.isSoil())
+                        break; // tile empty, no need to generate another random tile
+                }
+            } else {
+                /* SHOULD BE fixed spawn tile (given "rol,col")
+                   check with NumberFormatException */
+                try {
+                    String string = enemy.get("spawn").toString();
+                    String[] parts = string.split(",");
+                    int row = Integer.parseInt(parts[0]);
+                    int col = Integer.parseInt(parts[1]);
+                    if (row < 2 || row > rows-3 || col < 2 || col > cols-3)
+                        throw new IllegalArgumentException("Spawn position too close to walls");
+                    tile = this.grid.getTile(row, col);
+                } catch (NumberFormatException e) {
+                    System.err.println("Invalid spawn position.");
+                    continue;
+                } catch (IllegalArgumentException e) {
+                    System.err.println(e);
+                    continue;
+                }
+            }
+
+            // get random pixel location within the chosen tile
+            int xMin = tile.getX() - SPRITESIZE/2;
+            int xMax = tile.getX() + SPRITESIZE/2;
+            int yMin = tile.getY() - SPRITESIZE/2;
+            int yMax = tile.getY() + SPRITESIZE/2;
+            int rndX = this.spawnRandom.nextInt((xMax+1) - xMin) + xMin;
+            int rndY = this.spawnRandom.nextInt((yMax+1) - yMin) + yMin;
+
+            Enemy newEnemy = null;
+            if ((int)enemy.get("type") == 0) {
+                // type "0" = worm
+                newEnemy = new Enemy(rndX, rndY, this.enemyRandom.split());
+            } else if ((int)enemy.get("type") == 1) {
+                // type "1" = beetle
+                newEnemy = new Beetle(rndX, rndY, this.enemyRandom.split());
+            }
+            if (newEnemy != null) {
+                newEnemy.setGridSize(this.getRows(), this.getCols());
+                this.allEnemies.add(newEnemy);
+                this.agents.move(newEnemy, newEnemy.getTile(this.grid));
+            }
+        }
+    }
+
+    /**
+     * Parses powerup for this level. The type of powerup is based on the
+     * key string obtained from the config file when the config file was parsed.
+     * @param level the level to get the data from
+     */
+    public void parsePowerup(Level level) {
+        // random spawn tile in soil area
+        TileObject tile = null;
+        while (true) {
+            int rndTileRow = this.powerupRandom.nextInt(this.getRows()-3) + 1; //1~30
+            int rndTileCol = this.powerupRandom.nextInt(this.getCols()-3) + 1; //1~62
+            tile = this.grid.getTile(rndTileRow, rndTileCol);
+            if (tile.isSoil())
+                break; // tile empty, no need to generate another random tile
+        }
+        // spawn a new Powerup into the random tile
+        this.powerup = new Powerup(tile.getX()-SPRITESIZE/2, tile.getY()-SPRITESIZE/2);
+        this.agents.move(this.powerup, tile);
+
+        // choose powerup type
+        String key = level.getPowerupType();
+        if (key.equals("random"))
+            key = Powerup.POWERUP_KEYS()[this.powerupRandom
+                            .nextInt(Powerup.POWERUP_KEYS().length)];
+        this.powerup.setPowerupKey(key);
+    }
+
+    // ----------------- Updating obejects -----------------------
+
+    /**
+     * Updates the state of powerup. If last powerup still in effect, decrement
+     * duration timer. Otherwise, restore states of enemies.
+     * <p> 1. Powerup present in game:
+     * If player consumes powerup: generate effect (See {@link lawnlayer.Enemy#freeze()},
+     *                               {@link lawnlayer.Enemy#setVulnerable(boolean)});
+     *                               remember it in {@link #getConsumedPowerup()}.
+     * If grass area swallows powerup: remove without effect.
+     * <p> 2. Powerup not present in game:
+     * If last powerup still in effect: <code>return</code>
+     * If no in-effect powerup: start decrementing delay interval timer
+     * If delay timer finish: generate another random delay timer;
+     *                          spawn in a new powerup ({@link #parsePowerup(Level)}).
+     */
+    public void updatePowerup() {
+        this.consumedPowerup = null;
+
+        // Update state of powerup
+        if (this.powerupInEffect)
+            this.powerupTimer--; // decrement powerup timer
+
+        // powerup faded, make enemies normal
+        if (this.powerupInEffect && this.powerupTimer <= 0) {
+            this.powerupInEffect = false;
+            for (Enemy enemy : this.allEnemies) {
+                // restore previous state
+                if (this.powerupKeyText.equals("Invincible"))
+                    enemy.setVulnerable(false);
+                else if (this.powerupKeyText.equals("ZAWARUDO"))
+                    enemy.unfreeze();
+            }
+        }
+
+        // Check state of powerup
+        if (this.powerup != null) {
+            TileObject powerupTile = this.powerup.getTile(this.grid);
+            // the player tile or powerup may also have been set directly
+            this.agents.move(this.powerup, powerupTile);
+            this.agents.move(this.player, this.player.getPlayerTile());
+            // player consumes powerup
+            if (this.agents.find(powerupTile, Player.class) != null) {
+                // default*FPS = 10*60 = 600 frames
+                this.powerupTimer = this.defaultTimer * FPS; // start the timer
+                if (this.powerup.getPowerupKey().equals("Invincible")) {
+                    for (Enemy enemy : this.allEnemies)
+                        enemy.setVulnerable(true);
+                }
+                else if (this.powerup.getPowerupKey().equals("ZAWARUDO")) {
+                    for (Enemy enemy : this.allEnemies)
+                        enemy.freeze();
+                }
+                this.powerupInEffect = true;
+                // remember its key before removing the powerup object
+                this.powerupKeyText = this.powerup.getPowerupKey();
+                this.consumedPowerup = this.powerupKeyText;
+                this.agents.remove(this.powerup);
+                this.powerup = null;
+            }
+            // Remove powerup if swallowed by grass
+            if (powerupTile.isGrass() && this.powerup != null) {
+                this.agents.remove(this.powerup);
+                this.powerup = null;
+            }
+        }
+        else { // no powerup on screen
+            // 1. Last powerup still in effect -> do nothing
+            // 2. No powerup in effect -> start decrementing delay timer
+            // 3. Delay timer finish -> generate another random interval,
+            //                          spawn in a new powerup
+            if (this.powerupInEffect) return;
+            if (this.delayInterval > 0) {
+                this.delayInterval--;
+            }
+            else {
+                this.delayInterval = (this.powerupRandom.nextInt(this.defaultTimer) + 1) * FPS;
+                this.parsePowerup(this.currentLevel); // parse in a new powerup
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package lawnlayer;
+
+import processing.core.PApplet;
+import processing.core.PConstants;
+import processing.core.PFont;
+import processing.core.PGraphics;
+
+/**
+ * A line of text in the top bar, pre-rendered into an off-screen image. The text
+ * is only rendered again when it changes, otherwise drawing it is a single
+ * image call.
+ */
+public class HudText {
+
+    private PFont font;
+    private float size;
+
+    private String text;
+    private PGraphics image;
+    private float ascent;
+    private int renderCount;
+
+    /**
+     * Creates a new HUD text with the font it is rendered in.
+     * @param font the loaded font
+     * @param size the text size
+     */
+    public HudText(PFont font, float size) {
+        this.font = font;
+        this.size = size;
+    }
+
+    /**
+     * Gets the text that was last drawn.
+     * @return the text, <code>null</code> if never drawn
+     */
+    public String getText() {
+        return this.text;
+    }
+
+    /**
+     * Gets how many times the text was rendered into its image.
+     * @return the number of renders
+     */
+    public int getRenderCount() {
+        return this.renderCount;
+    }
+
+    /**
+     * Draws the text centered at x, with its baseline at y. Same as
+     * {@link PApplet#text(String, float, float)} with {@link PConstants#CENTER}
+     * alignment. The text is rendered again only if it differs from the last draw.
+     * @param app   the base class app of {@link PApplet}
+     * @param text  the text to draw
+     * @param x     x-coordinate of the center of the text
+     * @param y     y-coordinate of the baseline of the text
+     */
+    public void draw(PApplet app, String text, float x, float y) {
+        if (!text.equals(this.text))
+            this.render(app, text);
+        app.image(this.image, x - this.image.width/2f, y - this.ascent);
+    }
+
+    /**
+     * Renders the text into a new image sized to fit it.
+     * @param app   the base class app of {@link PApplet}
+     * @param text  the text to render
+     */
+    private void render(PApplet app, String text) {
+        // measure with the font of the sketch
+        app.textFont(this.font, this.size);
+        int width = Math.max(1, (int)Math.ceil(app.textWidth(text)));
+        this.ascent = app.textAscent();
+        int height = Math.max(1, (int)Math.ceil(this.ascent + app.textDescent()));
+
+        if (this.image == null || this.image.width != width || this.image.height != height)
+            this.image = app.createGraphics(width, height);
+        this.image.beginDraw();
+        this.image.clear();
+        this.image.textFont(this.font, this.size);
+        this.image.textAlign(PConstants.LEFT, PConstants.BASELINE);
+        this.image.fill(255);
+        this.image.text(text, 0, this.ascent);
+        this.image.endDraw();
+
+        this.text = text;
+        this.renderCount++;
+    }
+}
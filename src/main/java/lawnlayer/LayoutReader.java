@@ -0,0 +1,214 @@
+package lawnlayer;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads level layout files into tile grids. A layout has one line of text per
+ * row of tiles, where <code>X</code> marks a concrete tile and any other character
+ * a soil tile. Empty lines are skipped, all other lines must be as long as the
+ * first one, and the tiles along the 4 edges must be concrete.
+ * <p>
+ * Layouts are read with NIO channels straight into a byte buffer and parsed from
+ * the bytes, without decoding them into strings first. A layout is read from
+ * the file system if the file exists, otherwise from the resources of this
+ * package (e.g.inside the jar).
+ * <p>
+ * Layouts compiled into the binary {@link LevelFile} format, with the
+ * {@link LevelFile#EXTENSION} extension, are memory-mapped instead of parsed.
+ * A text layout is read from its compiled layout if there is one in the
+ * directory given by the {@value #LEVELS_PROPERTY} system property (where the
+ * <code>compileLevels</code> task writes them), unless the text layout changed
+ * since it was compiled.
+ */
+public class LayoutReader {
+
+    /**
+     * System property with the directory of compiled layouts, see {@link #read(String)}.
+     */
+    public static final String LEVELS_PROPERTY = "lawnlayer.levels";
+
+    private LayoutReader() {
+    }
+
+    /**
+     * Reads a layout into a new tile grid. A text layout is memory-mapped from
+     * its compiled layout if there is an up to date one, see {@link #getCompiled(String)}.
+     * @param path                      the path of the layout file or resource
+     * @return                          the tile grid, compacted
+     * @throws IOException              if the layout cannot be found or read
+     * @throws IllegalArgumentException if invalid layout
+     */
+    public static TileGrid read(String path) throws IOException, IllegalArgumentException {
+        if (path.endsWith(LevelFile.EXTENSION)) {
+            Path file = Paths.get(path);
+            if (Files.isRegularFile(file))
+                return LevelFile.read(file).getGrid();
+            return LevelFile.parse(readBytes(path)).getGrid();
+        }
+        Path compiled = getCompiled(path);
+        if (compiled != null)
+            return LevelFile.read(compiled).getGrid();
+        return parse(readBytes(path));
+    }
+
+    /**
+     * Gets the compiled layout of a text layout: the file with the same name and
+     * the {@link LevelFile#EXTENSION} extension in the directory given by the
+     * {@value #LEVELS_PROPERTY} system property. It is not used if the text
+     * layout file was modified after it.
+     * @param path  the path of the text layout file or resource
+     * @return      the path of the compiled layout, <code>null</code> if there is
+     *              no directory of compiled layouts, no compiled layout or it is
+     *              older than the text layout
+     */
+    public static Path getCompiled(String path) {
+        String levels = System.getProperty(LEVELS_PROPERTY);
+        if (levels == null) return null;
+        String name = Paths.get(path).getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        Path compiled = Paths.get(levels, (dot < 0 ? name : name.substring(0, dot))
+                                            + LevelFile.EXTENSION);
+        if (!Files.isRegularFile(compiled)) return null;
+        Path text = Paths.get(path);
+        try {
+            if (Files.isRegularFile(text) && Files.getLastModifiedTime(text)
+                    .compareTo(Files.getLastModifiedTime(compiled)) > 0)
+                return null; // stale
+        } catch (IOException e) {
+            return null;
+        }
+        return compiled;
+    }
+
+    /**
+     * Reads all bytes of a layout file, or of a resource if there is no such file.
+     * @param path          the path of the layout file or resource
+     * @return              the bytes, ready to be read from the start
+     * @throws IOException  if the layout cannot be found or read
+     */
+    public static ByteBuffer readBytes(String path) throws IOException {
+        Path file = Paths.get(path);
+        if (Files.isRegularFile(file)) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                ByteBuffer bytes = ByteBuffer.allocate((int)channel.size());
+                while (bytes.hasRemaining() && channel.read(bytes) >= 0);
+                bytes.flip();
+                return bytes;
+            }
+        }
+
+        InputStream in = LayoutReader.class.getResourceAsStream(path);
+        if (in == null)
+            throw new FileNotFoundException(path);
+        try (ReadableByteChannel channel = Channels.newChannel(in)) {
+            ByteBuffer bytes = ByteBuffer.allocate(Math.max(in.available(), 4096));
+            while (channel.read(bytes) >= 0) {
+                if (!bytes.hasRemaining()) {
+                    ByteBuffer larger = ByteBuffer.allocate(bytes.capacity() * 2);
+                    bytes.flip();
+                    larger.put(bytes);
+                    bytes = larger;
+                }
+            }
+            bytes.flip();
+            return bytes;
+        }
+    }
+
+    /**
+     * Parses the bytes of a layout into a new tile grid. Lines end with
+     * <code>\n</code> or <code>\r\n</code>.
+     * @param bytes                     the bytes of the layout, from position to limit
+     * @return                          the tile grid, compacted
+     * @throws IllegalArgumentException if invalid layout
+     */
+    public static TileGrid parse(ByteBuffer bytes) throws IllegalArgumentException {
+        // first pass: size of the grid
+        int rows = 0;
+        int cols = -1;
+        int start = bytes.position();
+        int end = bytes.limit();
+        for (int lineStart = start; lineStart < end; ) {
+            int lineEnd = lineEnd(bytes, lineStart, end);
+            int length = lineLength(bytes, lineStart, lineEnd);
+            if (length > 0) {
+                if (cols < 0)
+                    cols = length;
+                else if (length != cols)
+                    throw new IllegalArgumentException("row " + rows + " has invalid length");
+                rows++;
+            }
+            lineStart = lineEnd + 1;
+        }
+        if (rows == 0)
+            throw new IllegalArgumentException("empty layout");
+
+        // second pass: concrete tiles
+        TileGrid grid = new TileGrid(rows, cols); // all soil
+        int row = 0;
+        for (int lineStart = start; lineStart < end; ) {
+            int lineEnd = lineEnd(bytes, lineStart, end);
+            if (lineLength(bytes, lineStart, lineEnd) > 0) {
+                for (int col = 0; col < cols; col++) {
+                    if (bytes.get(lineStart + col) == 'X') {
+                        // marked concrete
+                        grid.set(row, col, TileGrid.CONCRETE);
+                    }
+                }
+                row++;
+            }
+            lineStart = lineEnd + 1;
+        }
+
+        checkBorders(grid);
+        grid.compact();
+        return grid;
+    }
+
+    /**
+     * Checks that the tiles along the 4 edges of a layout are concrete, so agents
+     * cannot leave the map.
+     * @param grid                      the tile grid of the layout
+     * @throws IllegalArgumentException if a tile along an edge is not concrete
+     */
+    static void checkBorders(TileGrid grid) throws IllegalArgumentException {
+        int rows = grid.getRows();
+        int cols = grid.getCols();
+        // Checking invalid map (first/last row, first/last col must be concrete)
+        for (int n = 0; n < cols; n++) {
+            if (grid.get(0, n) != TileGrid.CONCRETE)
+                throw new IllegalArgumentException("first row invalid");
+            if (grid.get(rows-1, n) != TileGrid.CONCRETE)
+                throw new IllegalArgumentException("last row invalid");
+        }
+        for (int m = 0; m < rows; m++) {
+            if (grid.get(m, 0) != TileGrid.CONCRETE)
+                throw new IllegalArgumentException("first column invalid");
+            if (grid.get(m, cols-1) != TileGrid.CONCRETE)
+                throw new IllegalArgumentException("last column invalid");
+        }
+    }
+
+    // index of the '\n' ending the line, or the end of the bytes
+    private static int lineEnd(ByteBuffer bytes, int lineStart, int end) {
+        int i = lineStart;
+        while (i < end && bytes.get(i) != '\n') i++;
+        return i;
+    }
+
+    // length of the line without a trailing '\r'
+    private static int lineLength(ByteBuffer bytes, int lineStart, int lineEnd) {
+        if (lineEnd > lineStart && bytes.get(lineEnd - 1) == '\r') lineEnd--;
+        return lineEnd - lineStart;
+    }
+}
@@ -1,6 +1,11 @@
 package lawnlayer;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
 
 /**
  * Represents a level of the game.
@@ -10,6 +15,7 @@ public class Level {
     private String powerupType;
     private double goal;
     private List<HashMap<String,Object>> enemies;
+    private Future<TileGrid> layout;
 
     /**
      * Creates a new level with specified data parsed from config.
@@ -32,6 +38,28 @@ public class Level {
         return this.outlay;
     }
 
+    /**
+     * Reads the layout of this level in the background, only the first time it is
+     * called. The grid read must not be changed, games play on a copy of it.
+     * See {@link lawnlayer.LayoutReader#read(String)}.
+     * @param executor  the executor that reads the layout
+     * @return          the grid of the layout, failing with an 
+     *                  {@link UncheckedIOException} or {@link IllegalArgumentException}
+     *                  if it cannot be read
+     */
+    public synchronized Future<TileGrid> preload(Executor executor) {
+        if (this.layout == null) {
+            this.layout = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return LayoutReader.read(this.outlay);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, executor);
+        }
+        return this.layout;
+    }
+
     /**
      * Gets the type of powerup to spawn in this level.
      * @return the powerup type string
@@ -0,0 +1,215 @@
+package lawnlayer;
+
+import processing.data.JSONArray;
+import processing.data.JSONObject;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Compiled level layout in a bit-packed binary format, 1 bit per tile. Compiled
+ * from the text layouts by the <code>compileLevels</code> build task, see
+ * {@link #main(String[])}, and read by {@link LayoutReader} for paths ending
+ * with {@link #EXTENSION}, or in place of a text layout from the directory of
+ * compiled layouts (see {@link LayoutReader#getCompiled(String)}).
+ * <p>
+ * The file starts with a header of {@link #HEADER_SIZE} bytes, big-endian:
+ * <pre>
+ * int  magic "LAWN"
+ * int  version
+ * int  rows
+ * int  columns
+ * int  words per row, (columns + 63) / 64
+ * int  number of concrete tiles
+ * int  number of soil areas, see {@link Player#labelAreas(TileGrid, int[])}
+ * int  reserved, 0
+ * long CRC-32 of the bitmap
+ * </pre>
+ * followed by the bitmap of concrete tiles, one row after the other, each row
+ * padded to whole 64-bit words. Bit <code>col % 64</code> of word <code>col / 64</code>
+ * of a row is set if the tile in that column is concrete. A word covers exactly
+ * one row of a chunk of the {@link TileGrid}, so the grid is built a chunk at a
+ * time.
+ * <p>
+ * Files are memory-mapped, only the bitmap is copied into the grid.
+ */
+public class LevelFile {
+
+    /** File extension of compiled layouts. */
+    public static final String EXTENSION = ".lvl";
+    /** Size of the header in bytes, the bitmap starts right after. */
+    public static final int HEADER_SIZE = 40;
+
+    private static final int MAGIC = 0x4C41574E; // "LAWN"
+    private static final int VERSION = 1;
+
+    private TileGrid grid;
+    private int soilAreas;
+    private long checksum;
+
+    private LevelFile(TileGrid grid, int soilAreas, long checksum) {
+        this.grid = grid;
+        this.soilAreas = soilAreas;
+        this.checksum = checksum;
+    }
+
+    /**
+     * Gets the tile grid of this layout.
+     * @return the tile grid, compacted
+     */
+    public TileGrid getGrid() {
+        return this.grid;
+    }
+
+    /**
+     * Gets the number of connected soil areas of this layout, counted when it
+     * was compiled.
+     * @return the number of soil areas
+     */
+    public int getSoilAreas() {
+        return this.soilAreas;
+    }
+
+    /**
+     * Gets the CRC-32 of the bitmap of this layout.
+     * @return the checksum
+     */
+    public long getChecksum() {
+        return this.checksum;
+    }
+
+    /**
+     * Reads a compiled layout by mapping the file into memory.
+     * @param path                      the path of the compiled layout
+     * @return                          the layout
+     * @throws IOException              if the file cannot be read
+     * @throws IllegalArgumentException if not a valid compiled layout
+     */
+    public static LevelFile read(Path path) throws IOException, IllegalArgumentException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return parse(bytes);
+        }
+    }
+
+    /**
+     * Parses the bytes of a compiled layout, e.g.read from a resource.
+     * @param bytes                     the bytes, from position to limit
+     * @return                          the layout
+     * @throws IllegalArgumentException if not a valid compiled layout
+     */
+    public static LevelFile parse(ByteBuffer bytes) throws IllegalArgumentException {
+        ByteBuffer header = bytes.duplicate();
+        if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC)
+            throw new IllegalArgumentException("not a compiled layout");
+        if (header.getInt() != VERSION)
+            throw new IllegalArgumentException("unsupported layout version");
+        int rows = header.getInt();
+        int cols = header.getInt();
+        int wordsPerRow = header.getInt();
+        int concrete = header.getInt();
+        int soilAreas = header.getInt();
+        header.getInt(); // reserved
+        long checksum = header.getLong();
+        if (rows <= 0 || cols <= 0 || wordsPerRow != (cols + 63) / 64
+                || header.remaining() != (long)rows * wordsPerRow * 8)
+            throw new IllegalArgumentException("invalid layout size");
+
+        CRC32 crc = new CRC32();
+        crc.update(header.duplicate());
+        if (crc.getValue() != checksum)
+            throw new IllegalArgumentException("layout checksum mismatch");
+
+        TileGrid grid = new TileGrid(rows, cols);
+        LongBuffer bits = header.slice().asLongBuffer();
+        grid.loadConcrete(bits, wordsPerRow);
+        if (grid.count(TileGrid.CONCRETE) != concrete)
+            throw new IllegalArgumentException("layout concrete count mismatch");
+        LayoutReader.checkBorders(grid);
+        return new LevelFile(grid, soilAreas, checksum);
+    }
+
+    /**
+     * Compiles a tile grid into a layout file. Only concrete tiles are kept.
+     * @param grid          the tile grid, e.g.read from a text layout
+     * @param path          the path of the compiled layout
+     * @return              the layout as written
+     * @throws IOException  if the file cannot be written
+     */
+    public static LevelFile write(TileGrid grid, Path path) throws IOException {
+        int rows = grid.getRows();
+        int cols = grid.getCols();
+        int wordsPerRow = (cols + 63) / 64;
+        ByteBuffer bytes = ByteBuffer.allocate(HEADER_SIZE + rows * wordsPerRow * 8);
+        bytes.position(HEADER_SIZE);
+        for (int i = 0; i < rows; i++) {
+            for (int w = 0; w < wordsPerRow; w++) {
+                long word = 0;
+                int colEnd = Math.min(cols, (w + 1) * 64);
+                for (int j = w * 64; j < colEnd; j++) {
+                    if (grid.get(i, j) == TileGrid.CONCRETE)
+                        word |= 1L << (j & 63);
+                }
+                bytes.putLong(word);
+            }
+        }
+        bytes.position(HEADER_SIZE);
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        int soilAreas = Player.labelAreas(grid, new int[rows * cols]);
+
+        bytes.position(0);
+        bytes.putInt(MAGIC).putInt(VERSION).putInt(rows).putInt(cols).putInt(wordsPerRow)
+             .putInt(grid.count(TileGrid.CONCRETE)).putInt(soilAreas).putInt(0)
+             .putLong(crc.getValue());
+        bytes.position(0);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (bytes.hasRemaining())
+                channel.write(bytes);
+        }
+        return new LevelFile(grid, soilAreas, crc.getValue());
+    }
+
+    /**
+     * Compiles the text layouts of all levels of a config file.
+     * <p>
+     * Usage: <code>LevelFile config.json outputDir</code>. Each layout
+     * <code>name.txt</code> is written to <code>outputDir/name.lvl</code>.
+     * @param args          the config file and the output directory
+     * @throws IOException  if a layout cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("usage: LevelFile config.json outputDir");
+            System.exit(2);
+        }
+        JSONObject config;
+        try (Reader reader = new FileReader(args[0])) {
+            config = new JSONObject(reader);
+        }
+        Path outputDir = Paths.get(args[1]);
+        Files.createDirectories(outputDir);
+
+        JSONArray levels = config.getJSONArray("levels");
+        for (int i = 0; i < levels.size(); i++) {
+            String outlay = levels.getJSONObject(i).getString("outlay");
+            if (outlay.endsWith(EXTENSION)) continue; // already compiled
+            String name = Paths.get(outlay).getFileName().toString();
+            name = name.substring(0, name.lastIndexOf('.') < 0 ? name.length()
+                                        : name.lastIndexOf('.')) + EXTENSION;
+            LevelFile level = write(LayoutReader.read(outlay), outputDir.resolve(name));
+            System.out.printf("%s -> %s: %dx%d, %d soil areas%n", outlay, name,
+                    level.grid.getCols(), level.grid.getRows(), level.soilAreas);
+        }
+    }
+}
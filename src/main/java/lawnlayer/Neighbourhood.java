@@ -0,0 +1,94 @@
+package lawnlayer;
+
+/**
+ * The 8 tiles surrounding an agent's tile, numbered as slots:
+ * <p> 1 2 3
+ * <p> 4 o 5
+ * <p> 6 7 8
+ * <p> A neighbourhood is filled in place every frame, so it does not allocate.
+ * Alongside the tiles it keeps a bitmask of the slots that are present (inside
+ * the tilemap) and of the slots that are blocked (present and not soil), with
+ * bit <code>k</code> standing for slot <code>k</code>.
+ */
+public class Neighbourhood {
+
+    /** Slots 1,2,3 on the top side. */
+    public static final int TOP = 1<<1 | 1<<2 | 1<<3;
+    /** Slots 3,5,8 on the right side. */
+    public static final int RIGHT = 1<<3 | 1<<5 | 1<<8;
+    /** Slots 6,7,8 on the bottom side. */
+    public static final int DOWN = 1<<6 | 1<<7 | 1<<8;
+    /** Slots 1,4,6 on the left side. */
+    public static final int LEFT = 1<<1 | 1<<4 | 1<<6;
+
+    // slot of each (row offset + 1) * 3 + (col offset + 1), 0 is the centre
+    private static final int[] SLOTS = {1, 2, 3, 4, 0, 5, 6, 7, 8};
+
+    private TileObject[] tiles = new TileObject[9];
+    private int present;
+    private int blocked;
+
+    /**
+     * Fills this neighbourhood with the tiles surrounding a tile. At the 4 walls
+     * and 4 corners of the tilemap, the slots beyond the tilemap are left empty
+     * (e.g.at right wall, slots 3,5,8 are empty).
+     * @param grid  the tile grid of this game
+     * @param tile  the centre tile
+     * @return      this neighbourhood
+     */
+    public Neighbourhood fill(TileGrid grid, TileObject tile) {
+        int row = tile.getRow();
+        int col = tile.getCol();
+        this.present = 0;
+        this.blocked = 0;
+        for (int i = 0; i < SLOTS.length; i++) {
+            int slot = SLOTS[i];
+            if (slot == 0) continue;
+            int r = row + i/3 - 1;
+            int c = col + i%3 - 1;
+            if (r < 0 || r >= grid.getRows() || c < 0 || c >= grid.getCols()) {
+                this.tiles[slot] = null;
+                continue;
+            }
+            this.tiles[slot] = grid.getTile(r, c);
+            this.present |= 1 << slot;
+            if (grid.get(r, c) != TileGrid.SOIL)
+                this.blocked |= 1 << slot;
+        }
+        return this;
+    }
+
+    /**
+     * Gets the tile in a slot.
+     * @param slot  the slot number, 1 to 8
+     * @return      the tile, <code>null</code> if beyond the tilemap
+     */
+    public TileObject get(int slot) {
+        return this.tiles[slot];
+    }
+
+    /**
+     * Gets the number of surrounding tiles inside the tilemap.
+     * @return the number of tiles, 8 if away from the walls
+     */
+    public int size() {
+        return Integer.bitCount(this.present);
+    }
+
+    /**
+     * Gets the slots that are blocked, i.e.concrete, grass or path tiles.
+     * @return the bitmask of blocked slots
+     */
+    public int getBlocked() {
+        return this.blocked;
+    }
+
+    /**
+     * Counts the blocked slots on the sides given.
+     * @param side  the bitmask of the side, e.g.{@link #TOP}
+     * @return      the number of blocked slots on that side
+     */
+    public int countBlocked(int side) {
+        return Integer.bitCount(this.blocked & side);
+    }
+}
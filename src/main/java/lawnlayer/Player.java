@@ -27,9 +27,14 @@ public class Player extends Agent {
     private TileObject[] tailCorners;
     private TileObject frontTile;
     private TileObject playerTile;
-    private List<TileObject> pathTiles;
-    private List<TileObject> area1;
-    private List<TileObject> area2;
+    private Trail pathTiles;
+
+    // scratch of fillGrass, reused between captures: tiles already in an area,
+    // first tile of each area, enemies in each area and area of each enemy
+    private TileSet areaVisited;
+    private int[] areaSeeds;
+    private int[] areaEnemies;
+    private int[] enemyAreas;
 
     /**
      * Creates a new player object with specified (x,y) coordinates
@@ -42,9 +47,7 @@ public class Player extends Agent {
         this.velocity = 1;
         this.propogateTimer = 0;
 
-        this.pathTiles = new ArrayList<TileObject>();
-        this.area1 = new ArrayList<TileObject>();
-        this.area2 = new ArrayList<TileObject>();
+        this.pathTiles = new Trail();
         this.tailCorners = new TileObject[2];
         
         resetKey();
@@ -102,10 +105,10 @@ public class Player extends Agent {
     }
 
     /**
-     * Gets the list of path tiles player layed down.
-     * @return the list of path tiles
+     * Gets the list of path tiles player layed down, in the order they were laid.
+     * @return the trail of path tiles
      */
-    public List<TileObject> getPathTiles() {
+    public Trail getPathTiles() {
         return this.pathTiles;
     }
 
@@ -211,38 +214,41 @@ public class Player extends Agent {
      * The player starts laying down a path behind itself when it enters the soil area.
      * It checks enclosed areas and fills grass when it enters safe zone (grass or concrete).
      * Certain surrounding tiles are used to track the player's path.
-     * Updates the game's current score when new grass is filled. See {@link lawnlayer.App#updateScore()}.
+     * Updates the game's current score when new grass is filled. See {@link lawnlayer.GameState#updateScore()}.
      * <p>
-     * The player can {@link #die(App)} in the soil area if it hits its own path. 
+     * The player can {@link #die(GameState)} in the soil area if it hits its own path. 
      * Or if a propogating red path catches up and hits the player. See 
      * {@link #propogate(TileObject, TileObject)} and {@link #initialPropogate(TileObject)}.
      *  
-     * @see lawnlayer.Agent#getSurroundingTiles(TileObject[][], TileObject)
-     * @see #setFrontBackTile(HashMap)
+     * @see lawnlayer.Agent#getSurroundingTiles(TileGrid, TileObject)
+     * @see #setFrontBackTile(Neighbourhood)
      * @param gameboard the current gameboard
      */
-    public void tick(App gameboard) {
+    public void tick(GameState gameboard) {
         
+        TileGrid grid = gameboard.getGrid();
+
         // enter from grass to concrete
         if (this.playerTile != null && this.playerTile.isGrass() && 
-            super.getTile(gameboard.allTileObjects()).isConcrete()) {
-            this.playerTile = super.getTile(gameboard.allTileObjects());
+            super.getTile(grid).isConcrete()) {
+            this.playerTile = super.getTile(grid);
             resetKey();
             snapToGrid();            
         }
 
-        setPlayerTile(gameboard.allTileObjects());
+        this.playerTile = super.getTile(grid);
+        gameboard.getAgents().move(this, this.playerTile);
 
         // play area rules
         if (this.playerInSoil) {
-            setFrontBackTile(super.getSurroundingTiles(gameboard.getTileMap(), this.playerTile));
+            setFrontBackTile(super.getSurroundingTiles(grid, this.playerTile));
             // stop when entering concrete or grass from soil
-            if (super.getTile(gameboard.allTileObjects()).isConcrete() || 
-                super.getTile(gameboard.allTileObjects()).isGrass()) {
+            if (this.playerTile.isConcrete() || this.playerTile.isGrass()) {
                     updatePath(); // update path before fill grass
-                    fillGrass(gameboard.getTileMap(), 
-                            gameboard.allTileObjects(), 
-                            gameboard.getEnemies());
+                    FrameProfiler profiler = gameboard.getProfiler();
+                    long start = profiler == null ? 0 : profiler.start();
+                    fillGrass(grid, gameboard.getEnemies());
+                    if (profiler != null) profiler.lap(FrameProfiler.Phase.CAPTURE, start);
                     this.propogating = false; // reset if was propogating when enter safe zone
                     gameboard.updateScore(); // update goal only when new grass is filled
                     resetKey();
@@ -319,10 +325,10 @@ public class Player extends Agent {
 
     /**
      * Sets the front and back tiles of this player, based on the 8 tiles surrounding
-     * this player. See {@link lawnlayer.Agent#getSurroundingTiles(TileObject[][], TileObject)}. 
+     * this player. See {@link lawnlayer.Agent#getSurroundingTiles(TileGrid, TileObject)}. 
      * @param surroundingTiles the 8 tiles surrounding this player
      */
-    public void setFrontBackTile(HashMap<Integer,TileObject> surroundingTiles) {
+    public void setFrontBackTile(Neighbourhood surroundingTiles) {
         /* surrounding 8 tiles
         *    1 2 3
         *    4 o 5
@@ -370,12 +376,12 @@ public class Player extends Agent {
 
     /**
      * Removes this player and spawns in a new player. Deducts a life. 
-     * @see lawnlayer.App#newPlayer()
-     * @see lawnlayer.App#modifyLife(int)
+     * @see lawnlayer.GameState#newPlayer()
+     * @see lawnlayer.GameState#modifyLife(int)
      * @param gameboard the current gameboard
      * @return the new player
      */
-    public Player die(App gameboard) {
+    public Player die(GameState gameboard) {
         for (TileObject tile : pathTiles) tile.setSoil();
         gameboard.newPlayer();
         gameboard.modifyLife(-1); // deduct a life
@@ -390,10 +396,12 @@ public class Player extends Agent {
     public void initialPropogate(TileObject hitTile) {
         this.propogating = true;
         hitTile.setPathHit();
-        if (pathTiles.indexOf(hitTile) > 0) 
-            this.hitTileStart = pathTiles.get(pathTiles.indexOf(hitTile)-1);
-        if (pathTiles.indexOf(hitTile) < this.pathTiles.size()-1)
-            this.hitTileEnd = pathTiles.get(pathTiles.indexOf(hitTile)+1);
+        TileObject previous = pathTiles.previous(hitTile);
+        TileObject next = pathTiles.next(hitTile);
+        if (previous != null) 
+            this.hitTileStart = previous;
+        if (next != null)
+            this.hitTileEnd = next;
     }
 
     /**
@@ -407,165 +415,253 @@ public class Player extends Agent {
         if (hitTileStart != null) {
             hitTileStart.setPathHit();
             // update next hitTile away from player (null if first)
-            this.hitTileStart = (pathTiles.indexOf(hitTileStart) > 0) ? 
-                pathTiles.get(pathTiles.indexOf(hitTileStart)-1) : null;
+            this.hitTileStart = pathTiles.previous(hitTileStart);
         }
 
         if (hitTileEnd != null) {
             hitTileEnd.setPathHit();
             // update next hitTile towards player (null if last)
-            this.hitTileEnd = (pathTiles.indexOf(hitTileEnd) < this.pathTiles.size()-1) ?
-                pathTiles.get(pathTiles.indexOf(hitTileEnd)+1) : null;
+            this.hitTileEnd = pathTiles.next(hitTileEnd);
         }
     }
 
     /**
      * Checks areas enclosed by the player's path laid and fills areas with grass.
      * <p>
-     * Uses the <b>flood fill algorithm</b> to find enclosed areas. Starts the searches 
-     * from the 2 tail corners of the player. 
-     * <p> If both corners are soil, search twice 
-     * starting from both corner tiles.
-     * <p> If either corner is soil, search once starting 
-     * from the soil tile.
-     * <p> If both corners are not soil, simply fill the path with grass
-     * and <code>return</code>. (<i>Not optimal but safer 
-     *               than starting flood fill from any soil tile. 
-     *               Wrong areas can be marked and filled.</i>)
+     * Only the soil areas next to the path just closed are searched, with a 
+     * scanline flood fill from every soil tile beside a path tile and from the 
+     * tail corners of the player. After each area is flooded, the enemies not in 
+     * an earlier area are checked against it. Every one of these areas without 
+     * enemies is filled, however many pockets the path split the soil into. Soil
+     * the path does not touch is left as it is, and the scratch memory follows 
+     * the size of the areas flooded, not of the map (see {@link TileSet}).
+     * <p> If both tail corners of the player are not soil, simply fill the path 
+     * with grass and <code>return</code>. (<i>Not optimal but safer, the path 
+     *               may not enclose anything.</i>)
      * <p>
-     * The case of only 1 area with all soil tiles included is possible, when the path
-     * does not properly enclose two areas. Ideally, there are 2 enclosed areas.
+     * When the path does not properly enclose an area, the soil on both sides of 
+     * the path is one area, and it is only filled if it has no enemies.
      * <p>
-     * 1. Both areas with enemies: fill the path only<br>
-     * 2. Or fill either side without enemies <br>
+     * 1. All areas next to the path with enemies: fill the path only<br>
+     * 2. Or fill every area next to the path without enemies <br>
      * In both conditions, the path tiles are filled with grass too. After filling grass,
-     * clear the list of path tiles and both enclosed areas.
+     * clear the list of path tiles.
      * 
-     * @see #getEncloseArea(TileObject[][], int, int, List)
+     * @see #getEncloseArea(TileGrid, int, int, List, TileSet)
      * @see lawnlayer.TileObject#setGrass()
-     * @see #setFrontBackTile(HashMap)
-     * @param map               the current 2d tilemap
-     * @param allTileObjects    all tile objects in the tilemap
+     * @see #setFrontBackTile(Neighbourhood)
+     * @param grid              the tile grid of this game
      * @param enemies           the list of enemies
      */
-    public void fillGrass(TileObject[][] map, TileObject[] allTileObjects, List<Enemy> enemies) {
-        // flood fill algorithm
-        // start the search from 2 back tiles around player
+    public void fillGrass(TileGrid grid, List<Enemy> enemies) {
+        // the 2 back tiles around player
         // c o c
         // ? p ? (c=concrete; p=path; check ?)
         // should be 2 maximum, 1 probably, 0 most rare but could happen
-        
-        // long timer = System.currentTimeMillis();
-
-        // Get two enclosed areas
-        // if both corners are empty, check twice
-        if (tailCorners[0].isSoil() && tailCorners[1].isSoil()) {
-            getEncloseArea(map, tailCorners[0].getRow(), 
-                        tailCorners[0].getCol(), this.area1);
-            getEncloseArea(map, tailCorners[1].getRow(), 
-                        tailCorners[1].getCol(), this.area2);
-        }
-        // corner 1 is empty
-        else if (tailCorners[0].isSoil() && !tailCorners[1].isSoil()) {
-            getEncloseArea(map, tailCorners[0].getRow(), 
-                        tailCorners[0].getCol(), this.area1);
-        }
-        // corner 2 is empty
-        else if (!tailCorners[0].isSoil() && tailCorners[1].isSoil()) {
-            getEncloseArea(map, tailCorners[1].getRow(), 
-                        tailCorners[1].getCol(), this.area1);
-        }
+
         // if somehow no soil around, just draw the path and return
-        // *Edge case: Not optimal but safer, use flood fill for any soil first found 
-        //             can mark the area that just got removed by beetle to be flooed,
-        //             and causing beetles to get caught in the middle
-        else {
+        // *Edge case: Not optimal but safer, the path can run along grass only,
+        //             e.g. through an area that just got removed by beetle,
+        //             filling next to it could catch beetles in the middle
+        if (!tailCorners[0].isSoil() && !tailCorners[1].isSoil()) {
             System.out.println("No surrounding soil");
             for (TileObject tile : this.pathTiles) tile.setGrass();
             pathTiles.clear();
-            area1.clear();
-            area2.clear();
             return;
-            // for (TileObject tile : allTileObjects) {
-            //     if (tile.isSoil()) {
-            //         getEncloseArea(map, tile.getRow(), tile.getCol(), this.area1);
-            //         break;
-            //     }
-            // }
         }
-        // System.out.println(System.currentTimeMillis() - timer);
 
-        if (area2.size() == 0) {
-            for (TileObject tile : allTileObjects) {
-                if (!tile.isConcrete() && !tile.isPath() &&
-                    !area1.contains(tile))
-                    area2.add(tile); // inverted area
-            }
+        // scratch is kept between captures, only made again for another map
+        int rows = grid.getRows();
+        int cols = grid.getCols();
+        if (this.areaVisited == null || this.areaVisited.getRows() != rows 
+                || this.areaVisited.getCols() != cols) {
+            this.areaVisited = new TileSet(rows, cols);
+            this.areaSeeds = new int[16];
+            this.areaEnemies = new int[16];
         }
-
-        // System.out.printf("Area1: %d%n", area1.size());
-        // System.out.printf("Area2: %d%n", area2.size());
-
-        // at this point, if area1=area2 or area2 = 0, 
-        // meaning not properly enclosed
-        // ignore all following area 2 (inverted area) check
-        boolean checkInvertedArea = true;
-        if (area1.size()==area2.size() || area2.size()==0)
-            checkInvertedArea = false;
-
-        boolean enemyInArea = false;
-        boolean enemyInInvertedArea = false;
-        for (Enemy enemy : enemies) {
-            if (area1.contains(enemy.getTile(allTileObjects))) {
-                enemyInArea = true;
-            }
-            if (checkInvertedArea && 
-                area2.contains(enemy.getTile(allTileObjects))) {
-                enemyInInvertedArea = true;
-            }
+        if (this.enemyAreas == null || this.enemyAreas.length < enemies.size())
+            this.enemyAreas = new int[enemies.size() * 2];
+        Arrays.fill(this.enemyAreas, 0, enemies.size(), 0);
+
+        // flood the soil areas next to the path one at a time (area 0: none),
+        // enemies are placed in the area they are in as it is flooded
+        int areas = 0;
+        for (TileObject tile : this.pathTiles) {
+            int row = tile.getRow();
+            int col = tile.getCol();
+            areas = floodNextArea(grid, row-1, col, areas, enemies);
+            areas = floodNextArea(grid, row+1, col, areas, enemies);
+            areas = floodNextArea(grid, row, col-1, areas, enemies);
+            areas = floodNextArea(grid, row, col+1, areas, enemies);
         }
-        
-        // 1. Both areas with enemies -> fill the path only
-        // 2. Fill sides without enemies 
-        if (!enemyInArea) {
-            for (TileObject tile : area1) tile.setGrass();
-            // System.out.println("area filled");
-        }
-        if (checkInvertedArea && !enemyInInvertedArea) {
-            for (TileObject tile : area2) tile.setGrass();
-            // System.out.println("inverted area filled");
+        for (TileObject corner : this.tailCorners)
+            areas = floodNextArea(grid, corner.getRow(), corner.getCol(), areas, enemies);
+
+        // 1. All areas with enemies -> fill the path only
+        // 2. Fill areas without enemies, on the grid so no views are created
+        this.areaVisited.clear();
+        for (int area = 1; area <= areas; area++) {
+            if (this.areaEnemies[area] == 0) {
+                int seed = this.areaSeeds[area];
+                floodArea(grid, seed / cols, seed % cols, null, 
+                            this.areaVisited, null, 0, TileGrid.GRASS);
+            }
         }
+        this.areaVisited.clear();
         // All conditions fill the path
         for (TileObject tile : this.pathTiles) tile.setGrass();
         
-        // After filling grass, clear path + both areas
+        // After filling grass, clear path
         pathTiles.clear();
-        area1.clear();
-        area2.clear();
+    }
+
+    // floods the soil area of a tile if it is not flooded yet and counts the
+    // enemies in it, returns the number of areas flooded
+    private int floodNextArea(TileGrid grid, int row, int col, int areas, List<Enemy> enemies) {
+        int rows = grid.getRows();
+        int cols = grid.getCols();
+        if (row < 0 || col < 0 || row >= rows || col >= cols) return areas;
+        if (this.areaVisited.contains(row, col) || grid.get(row, col) != TileGrid.SOIL) 
+            return areas;
+
+        areas++;
+        if (areas == this.areaSeeds.length) {
+            this.areaSeeds = Arrays.copyOf(this.areaSeeds, areas * 2);
+            this.areaEnemies = Arrays.copyOf(this.areaEnemies, areas * 2);
+        }
+        this.areaSeeds[areas] = grid.index(row, col);
+        this.areaEnemies[areas] = 0;
+        floodArea(grid, row, col, null, this.areaVisited, null, 0, TileGrid.SOIL);
+
+        // enemies not in an earlier area are in this one if it reached their tile
+        for (int i = 0; i < enemies.size(); i++) {
+            if (this.enemyAreas[i] != 0) continue;
+            Enemy enemy = enemies.get(i);
+            int enemyRow = enemy.getTileRow();
+            int enemyCol = enemy.getTileCol();
+            if (enemyRow >= 0 && enemyRow < rows && enemyCol >= 0 && enemyCol < cols
+                    && this.areaVisited.contains(enemyRow, enemyCol)) {
+                this.enemyAreas[i] = areas;
+                this.areaEnemies[areas]++;
+            }
+        }
+        return areas;
+    }
+
+    /**
+     * Labels the connected soil areas of the tilemap. Tiles of the first area found 
+     * are labelled 1, of the second area 2 and so on. Tiles that are not soil are
+     * labelled 0. See {@link #getEncloseArea(TileGrid, int, int, List, TileSet)}.
+     * @param grid      the tile grid of this game
+     * @param labels    the label of each tile, indexed row * columns + column; 
+     *                  filled by this method
+     * @return          the number of areas
+     */
+    public static int labelAreas(TileGrid grid, int[] labels) {
+        int rows = grid.getRows();
+        int cols = grid.getCols();
+        TileSet visited = new TileSet(rows, cols);
+        int areas = 0;
+        Arrays.fill(labels, 0);
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                if (grid.get(i, j) != TileGrid.SOIL || visited.contains(i, j)) continue;
+                areas++;
+                floodArea(grid, i, j, null, visited, labels, areas, TileGrid.SOIL);
+            }
+        }
+        return areas;
     }
 
     /**
-     * Recursively searches the 4 neighboring tiles of the current tile.
-     * The base case is when it hits the walls of the game area, 
-     * or any tile that is not soil. 
-     * @param map       the current 2d tilemap
-     * @param curRow    the current row of recursion
-     * @param curCol    the current column of recursion
+     * Searches the soil area connected to the starting tile. 
+     * See {@link #getEncloseArea(TileGrid, int, int, List, TileSet)}.
+     * @param grid      the tile grid of this game
+     * @param curRow    the row of the starting tile
+     * @param curCol    the column of the starting tile
      * @param list      the area list to which the marked tiles are added
      */
-    public void getEncloseArea(TileObject[][] map, int curRow, int curCol, 
+    public void getEncloseArea(TileGrid grid, int curRow, int curCol, 
                                 List<TileObject> list) {
-        // System.out.printf("%d %d%n",curRow, curCol);
-        if (curRow < 0 || curCol < 0 || 
-            curRow >= map.length || curCol >= map[0].length || 
-            list.contains(map[curRow][curCol]) || 
-            !map[curRow][curCol].isSoil()) return;
+        getEncloseArea(grid, curRow, curCol, list, 
+                        new TileSet(grid.getRows(), grid.getCols()));
+    }
 
-        list.add(map[curRow][curCol]);
-        getEncloseArea(map, curRow-1, curCol, list);
-        getEncloseArea(map, curRow+1, curCol, list);
-        getEncloseArea(map, curRow, curCol-1, list);
-        getEncloseArea(map, curRow, curCol+1, list);
+    /**
+     * Searches the soil area connected to the starting tile with a scanline flood fill.
+     * Each popped seed is extended to the whole horizontal run of soil tiles it is 
+     * in, and only one seed is pushed for every run above and below. The search 
+     * stops at the walls of the game area, or any tile that is not soil.
+     * <p>
+     * Iterative and linear in the size of the area: no recursion depth limit, and 
+     * the visited set is a bitmap instead of a search in the list, only for the 
+     * chunks of the map the area reaches.
+     * @param grid      the tile grid of this game
+     * @param curRow    the row of the starting tile
+     * @param curCol    the column of the starting tile
+     * @param list      the area list to which the marked tiles are added
+     * @param visited   the tiles already in the area; marked tiles are added
+     */
+    public void getEncloseArea(TileGrid grid, int curRow, int curCol, 
+                                List<TileObject> list, TileSet visited) {
+        floodArea(grid, curRow, curCol, list, visited, null, 0, TileGrid.SOIL);
+    }
+
+    // scanline flood fill of getEncloseArea, marked tiles are added to the list
+    // and labelled if either is given, and set to the fill type unless it is soil
+    private static void floodArea(TileGrid grid, int curRow, int curCol, List<TileObject> list,
+                            TileSet visited, int[] labels, int label, byte fill) {
+        int rows = grid.getRows();
+        int cols = grid.getCols();
+        if (curRow < 0 || curCol < 0 || curRow >= rows || curCol >= cols) return;
+
+        int[] stack = new int[64];
+        int size = 0;
+        stack[size++] = curRow * cols + curCol;
+
+        while (size > 0) {
+            int seed = stack[--size];
+            int row = seed / cols;
+            int col = seed % cols;
+            if (visited.contains(row, col) || grid.get(row, col) != TileGrid.SOIL) continue;
+
+            // extend the seed to the whole horizontal run
+            int left = col;
+            while (left > 0 && !visited.contains(row, left-1) 
+                    && grid.get(row, left-1) == TileGrid.SOIL) left--;
+            int right = col;
+            while (right < cols-1 && !visited.contains(row, right+1) 
+                    && grid.get(row, right+1) == TileGrid.SOIL) right++;
+
+            // mark the run, push one seed per run above and below
+            boolean runAbove = false;
+            boolean runBelow = false;
+            for (int c = left; c <= right; c++) {
+                visited.add(row, c);
+                if (list != null) list.add(grid.getTile(row, c));
+                if (labels != null) labels[row * cols + c] = label;
+                if (fill != TileGrid.SOIL) grid.set(row * cols + c, fill);
+
+                if (row > 0) {
+                    int above = (row-1) * cols + c;
+                    boolean soil = !visited.contains(row-1, c) && grid.get(row-1, c) == TileGrid.SOIL;
+                    if (soil && !runAbove) {
+                        if (size == stack.length) stack = Arrays.copyOf(stack, size * 2);
+                        stack[size++] = above;
+                    }
+                    runAbove = soil;
+                }
+                if (row < rows-1) {
+                    int below = (row+1) * cols + c;
+                    boolean soil = !visited.contains(row+1, c) && grid.get(row+1, c) == TileGrid.SOIL;
+                    if (soil && !runBelow) {
+                        if (size == stack.length) stack = Arrays.copyOf(stack, size * 2);
+                        stack[size++] = below;
+                    }
+                    runBelow = soil;
+                }
+            }
+        }
     }
 
     // ---------------- Key Control --------------------
@@ -584,7 +680,7 @@ public class Player extends Agent {
      * diagonal movement.
      * <p> When the player is in grass or soil area, it is not allowed to backtrack.
      * The player {@link #snapToGrid()} when it changes direction in grass or soil, 
-     * and a path corner is marked. This affects {@link #setFrontBackTile(HashMap)}. 
+     * and a path corner is marked. This affects {@link #setFrontBackTile(Neighbourhood)}. 
      * @see lawnlayer.App#keyPressed()
      */
     public void pressUp() {
@@ -604,7 +700,7 @@ public class Player extends Agent {
      * diagonal movement.
      * <p> When the player is in grass or soil area, it is not allowed to backtrack.
      * The player {@link #snapToGrid()} when it changes direction in grass or soil, 
-     * and a path corner is marked. This affects {@link #setFrontBackTile(HashMap)}.
+     * and a path corner is marked. This affects {@link #setFrontBackTile(Neighbourhood)}.
      * @see lawnlayer.App#keyPressed() 
      */
     public void pressRight() {
@@ -623,7 +719,7 @@ public class Player extends Agent {
      * diagonal movement.
      * <p> When the player is in grass or soil area, it is not allowed to backtrack.
      * The player {@link #snapToGrid()} when it changes direction in grass or soil, 
-     * and a path corner is marked. This affects {@link #setFrontBackTile(HashMap)}. 
+     * and a path corner is marked. This affects {@link #setFrontBackTile(Neighbourhood)}. 
      * @see lawnlayer.App#keyPressed()
      */
     public void pressDown() {
@@ -642,7 +738,7 @@ public class Player extends Agent {
      * diagonal movement.
      * <p> When the player is in grass or soil area, it is not allowed to backtrack.
      * The player {@link #snapToGrid()} when it changes direction in grass or soil, 
-     * and a path corner is marked. This affects {@link #setFrontBackTile(HashMap)}. 
+     * and a path corner is marked. This affects {@link #setFrontBackTile(Neighbourhood)}. 
      * @see lawnlayer.App#keyPressed()
      */
     public void pressLeft() {
@@ -703,4 +799,81 @@ public class Player extends Agent {
         snapToGrid();
         this.KeyLeft = false;
     }
+
+    // ------------------ Snapshots ----------------------
+    /**
+     * Takes a snapshot of the state of this player: position, keys, trail and
+     * red path propogation. Tiles are kept by reference, so the snapshot is only
+     * valid with the tile grid it was taken with (see {@link GameState#snapshot()}).
+     * @return the snapshot
+     */
+    Snapshot snapshot() {
+        Snapshot snapshot = new Snapshot();
+        snapshot.x = this.getX();
+        snapshot.y = this.getY();
+        snapshot.direction = this.direction;
+        snapshot.keys = (this.KeyUp ? Agent.UP : 0) | (this.KeyRight ? Agent.RIGHT : 0)
+                        | (this.KeyDown ? Agent.DOWN : 0) | (this.KeyLeft ? Agent.LEFT : 0);
+        snapshot.playerInSoil = this.playerInSoil;
+        snapshot.pathCorner = this.pathCorner;
+        snapshot.velocity = this.velocity;
+        snapshot.propogating = this.propogating;
+        snapshot.propogateTimer = this.propogateTimer;
+        snapshot.hitTileStart = this.hitTileStart;
+        snapshot.hitTileEnd = this.hitTileEnd;
+        snapshot.backTile = this.backTile;
+        snapshot.tailCorners = this.tailCorners.clone();
+        snapshot.frontTile = this.frontTile;
+        snapshot.playerTile = this.playerTile;
+        snapshot.pathTiles = this.pathTiles.toArray(new TileObject[this.pathTiles.size()]);
+        return snapshot;
+    }
+
+    /**
+     * Sets the state of this player back to a snapshot of this player.
+     * @param snapshot the snapshot
+     */
+    void restore(Snapshot snapshot) {
+        this.setX(snapshot.x);
+        this.setY(snapshot.y);
+        this.direction = snapshot.direction;
+        this.KeyUp = (snapshot.keys & Agent.UP) != 0;
+        this.KeyRight = (snapshot.keys & Agent.RIGHT) != 0;
+        this.KeyDown = (snapshot.keys & Agent.DOWN) != 0;
+        this.KeyLeft = (snapshot.keys & Agent.LEFT) != 0;
+        this.playerInSoil = snapshot.playerInSoil;
+        this.pathCorner = snapshot.pathCorner;
+        this.velocity = snapshot.velocity;
+        this.propogating = snapshot.propogating;
+        this.propogateTimer = snapshot.propogateTimer;
+        this.hitTileStart = snapshot.hitTileStart;
+        this.hitTileEnd = snapshot.hitTileEnd;
+        this.backTile = snapshot.backTile;
+        this.tailCorners = snapshot.tailCorners.clone();
+        this.frontTile = snapshot.frontTile;
+        this.playerTile = snapshot.playerTile;
+        this.pathTiles.restore(snapshot.pathTiles);
+    }
+
+    /**
+     * State of a player at some point, see {@link Player#snapshot()}.
+     */
+    static final class Snapshot {
+        private int x;
+        private int y;
+        private int direction;
+        private int keys;
+        private boolean playerInSoil;
+        private boolean pathCorner;
+        private int velocity;
+        private boolean propogating;
+        private int propogateTimer;
+        private TileObject hitTileStart;
+        private TileObject hitTileEnd;
+        private TileObject backTile;
+        private TileObject[] tailCorners;
+        private TileObject frontTile;
+        private TileObject playerTile;
+        private TileObject[] pathTiles;
+    }
 }
@@ -0,0 +1,293 @@
+package lawnlayer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Recording of a game session: the seed and config of the game, and every key
+ * pressed or released with the tick it reached the game at. The simulation is
+ * deterministic, so the same seed, config and keys play the same game again,
+ * see {@link Replayer}.
+ * <p>
+ * Every {@link #getKeyframeInterval()} ticks the recording also keeps a
+ * keyframe, the {@link GameState#checksum()} of the game at that tick, so a
+ * replay that goes out of step with the recording is caught at the next
+ * keyframe.
+ * <p>
+ * Replay files are compact: after a header with the seed, the config path and
+ * a CRC-32 of the config file, each key event takes 2 to 3 bytes (the number of
+ * ticks since the previous event and the key code, as variable-length integers),
+ * and each keyframe 8 bytes.
+ */
+public class Replay {
+
+    /** File extension of replay files. */
+    public static final String EXTENSION = ".replay";
+    /** Default number of ticks between keyframes, 10s at 60FPS. */
+    public static final int KEYFRAME_INTERVAL = 600;
+
+    private static final int MAGIC = 0x4C415752; // "LAWR"
+    private static final int VERSION = 1;
+
+    private long seed;
+    private String configPath;
+    private long configHash;
+    private int keyframeInterval;
+    private long ticks;
+
+    // key events, tick << 32 | key code << 1 | 1 if pressed
+    private long[] events = new long[64];
+    private int eventCount;
+    // checksum of the game at tick (i + 1) * keyframe interval
+    private long[] keyframes = new long[16];
+    private int keyframeCount;
+
+    /**
+     * Creates a new empty recording.
+     * @param seed              the seed of the game
+     * @param configPath        the path of the config file of the game
+     * @param configHash        the CRC-32 of the config file, see {@link #hashConfig(String)}
+     * @param keyframeInterval  the number of ticks between keyframes
+     */
+    public Replay(long seed, String configPath, long configHash, int keyframeInterval) {
+        if (keyframeInterval <= 0)
+            throw new IllegalArgumentException("keyframe interval must be positive");
+        this.seed = seed;
+        this.configPath = configPath;
+        this.configHash = configHash;
+        this.keyframeInterval = keyframeInterval;
+    }
+
+    /**
+     * Starts recording a game that has not been stepped yet, with the default
+     * keyframe interval.
+     * @param state         the game, with its config parsed
+     * @param configPath    the path of the config file of the game
+     * @return              the new recording
+     * @throws IOException  if the config file cannot be read
+     */
+    public static Replay record(GameState state, String configPath) throws IOException {
+        if (state.getTickCount() != 0)
+            throw new IllegalStateException("game already started");
+        return new Replay(state.getSeed(), configPath, hashConfig(configPath), KEYFRAME_INTERVAL);
+    }
+
+    /**
+     * Computes the CRC-32 of a config file, to check that a replay is played with
+     * the config it was recorded with.
+     * @param configPath    the path of the config file
+     * @return              the checksum
+     * @throws IOException  if the config file cannot be read
+     */
+    public static long hashConfig(String configPath) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(Files.readAllBytes(Paths.get(configPath)));
+        return crc.getValue();
+    }
+
+    public long getSeed() {
+        return this.seed;
+    }
+
+    public String getConfigPath() {
+        return this.configPath;
+    }
+
+    public long getConfigHash() {
+        return this.configHash;
+    }
+
+    public int getKeyframeInterval() {
+        return this.keyframeInterval;
+    }
+
+    /**
+     * Gets the length of the recording.
+     * @return the number of ticks recorded
+     */
+    public long getTicks() {
+        return this.ticks;
+    }
+
+    /**
+     * Gets the number of key events recorded.
+     * @return the number of events
+     */
+    public int getEventCount() {
+        return this.eventCount;
+    }
+
+    /**
+     * Gets the tick of a key event, i.e.the number of steps before the event.
+     * @param i the index of the event, in the order recorded
+     * @return  the tick
+     */
+    public long getEventTick(int i) {
+        return this.events[i] >>> 32;
+    }
+
+    /**
+     * Gets the key code of a key event.
+     * @param i the index of the event
+     * @return  the key code
+     */
+    public int getEventKey(int i) {
+        return (int)this.events[i] >>> 1;
+    }
+
+    /**
+     * Checks if a key event is a key pressed or released.
+     * @param i the index of the event
+     * @return  <code>true</code> if pressed, <code>false</code> if released
+     */
+    public boolean isEventPressed(int i) {
+        return (this.events[i] & 1) != 0;
+    }
+
+    /**
+     * Gets the number of keyframes recorded.
+     * @return the number of keyframes
+     */
+    public int getKeyframeCount() {
+        return this.keyframeCount;
+    }
+
+    /**
+     * Gets the checksum of the game at a keyframe.
+     * @param i the index of the keyframe, at tick (i + 1) * keyframe interval
+     * @return  the checksum, see {@link GameState#checksum()}
+     */
+    public long getKeyframe(int i) {
+        return this.keyframes[i];
+    }
+
+    /**
+     * Records a key pressed or released, before the next step of the game.
+     * @param tick      the number of steps of the game so far
+     * @param keyCode   the key code of the key
+     * @param pressed   <code>true</code> if pressed, <code>false</code> if released
+     */
+    public void recordKey(long tick, int keyCode, boolean pressed) {
+        if (tick < this.ticks)
+            throw new IllegalArgumentException("tick " + tick + " already recorded");
+        if (keyCode < 0 || keyCode > 0x7FFFFFFF >>> 1)
+            throw new IllegalArgumentException("invalid key code " + keyCode);
+        if (this.eventCount == this.events.length)
+            this.events = Arrays.copyOf(this.events, this.eventCount * 2);
+        this.events[this.eventCount++] = tick << 32 | (long)keyCode << 1 | (pressed ? 1 : 0);
+        this.ticks = tick;
+    }
+
+    /**
+     * Records a step of the game, and a keyframe every keyframe interval. A game
+     * over is not stepped any more, so the recording stops there.
+     * @param state the game, just stepped
+     */
+    public void recordStep(GameState state) {
+        this.ticks = state.getTickCount();
+        if (this.ticks / this.keyframeInterval > this.keyframeCount) {
+            if (this.keyframeCount == this.keyframes.length)
+                this.keyframes = Arrays.copyOf(this.keyframes, this.keyframeCount * 2);
+            this.keyframes[this.keyframeCount++] = state.checksum();
+        }
+    }
+
+    /**
+     * Writes this recording to a replay file.
+     * @param path          the path of the replay file
+     * @throws IOException  if the file cannot be written
+     */
+    public void write(Path path) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(this.seed);
+            out.writeUTF(this.configPath);
+            out.writeLong(this.configHash);
+            out.writeInt(this.keyframeInterval);
+            out.writeLong(this.ticks);
+
+            writeVarLong(out, this.eventCount);
+            long tick = 0;
+            for (int i = 0; i < this.eventCount; i++) {
+                writeVarLong(out, this.getEventTick(i) - tick);
+                writeVarLong(out, this.events[i] & 0xFFFFFFFFL);
+                tick = this.getEventTick(i);
+            }
+            writeVarLong(out, this.keyframeCount);
+            for (int i = 0; i < this.keyframeCount; i++)
+                out.writeLong(this.keyframes[i]);
+        }
+    }
+
+    /**
+     * Reads a recording from a replay file.
+     * @param path                      the path of the replay file
+     * @return                          the recording
+     * @throws IOException              if the file cannot be read
+     * @throws IllegalArgumentException if not a valid replay file
+     */
+    public static Replay read(Path path) throws IOException, IllegalArgumentException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC)
+                throw new IllegalArgumentException("not a replay file");
+            if (in.readInt() != VERSION)
+                throw new IllegalArgumentException("unsupported replay version");
+            long seed = in.readLong();
+            String configPath = in.readUTF();
+            long configHash = in.readLong();
+            int keyframeInterval = in.readInt();
+            long ticks = in.readLong();
+            Replay replay = new Replay(seed, configPath, configHash, keyframeInterval);
+
+            long count = readVarLong(in);
+            long tick = 0;
+            for (long i = 0; i < count; i++) {
+                tick += readVarLong(in);
+                long key = readVarLong(in);
+                replay.recordKey(tick, (int)(key >>> 1), (key & 1) != 0);
+            }
+            count = readVarLong(in);
+            if (count != ticks / keyframeInterval)
+                throw new IllegalArgumentException("invalid keyframe count");
+            replay.keyframes = new long[(int)Math.max(count, 1)];
+            for (int i = 0; i < count; i++)
+                replay.keyframes[i] = in.readLong();
+            replay.keyframeCount = (int)count;
+            if (ticks < replay.ticks)
+                throw new IllegalArgumentException("event after the end of the replay");
+            replay.ticks = ticks;
+            return replay;
+        }
+    }
+
+    // 7 bits per byte, high bit set if more bytes follow
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int)(value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int)value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long)(b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IllegalArgumentException("invalid variable-length integer");
+    }
+}
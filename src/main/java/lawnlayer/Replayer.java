@@ -0,0 +1,186 @@
+package lawnlayer;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Plays a {@link Replay} headlessly, as fast as the simulation runs. The game is
+ * rebuilt from the seed and config of the recording, and the recorded keys are
+ * fed to it before the same ticks as in the recorded session.
+ * <p>
+ * At every keyframe the checksum of the game is checked against the recording,
+ * so a replay that is out of step (e.g.the simulation changed since the replay
+ * was recorded) fails at the first keyframe after it went wrong instead of
+ * silently playing another game. A snapshot of the game is kept in memory at
+ * every keyframe played (see {@link GameState#snapshot()}), so seeking back to
+ * a tick already played only plays from the keyframe before it. Snapshots are
+ * not saved with the replay: the first seek to a tick after loading a replay
+ * plays every tick from the start of the recording.
+ * <p>
+ * Replays are used to reproduce bugs seen in a session and as realistic
+ * workloads for performance testing, see {@link #main(String[])}.
+ */
+public class Replayer {
+
+    private Replay replay;
+    private GameState state;
+    private int nextEvent;
+    private int nextKeyframe;
+    // snapshot of the game at tick i * keyframe interval, null if not played yet
+    private GameState.Snapshot[] snapshots;
+
+    /**
+     * Creates a new replayer at tick 0 of a replay.
+     * @param replay                    the replay to play
+     * @throws IOException              if the config file cannot be read
+     * @throws IllegalArgumentException if the config file changed since the recording
+     */
+    public Replayer(Replay replay) throws IOException, IllegalArgumentException {
+        if (Replay.hashConfig(replay.getConfigPath()) != replay.getConfigHash())
+            throw new IllegalArgumentException("config " + replay.getConfigPath()
+                                                + " changed since the recording");
+        this.replay = replay;
+        this.state = new GameState(replay.getSeed());
+        this.state.parseJSON(replay.getConfigPath());
+        this.state.parseLevel(this.state.getLevelList().get(0));
+        this.snapshots = new GameState.Snapshot[replay.getKeyframeCount() + 1];
+        this.snapshots[0] = this.state.snapshot();
+    }
+
+    /**
+     * Gets the game being replayed.
+     * @return the game state
+     */
+    public GameState getState() {
+        return this.state;
+    }
+
+    /**
+     * Gets the current tick of the replay.
+     * @return the number of steps played
+     */
+    public long getTick() {
+        return this.state.getTickCount();
+    }
+
+    /**
+     * Checks if the replay is played to the end of the recording.
+     * @return <code>true</code> if at the end, otherwise <code>false</code>
+     */
+    public boolean isFinished() {
+        return this.getTick() >= this.replay.getTicks() || this.state.isGameOver();
+    }
+
+    /**
+     * Plays one tick: feeds the keys recorded before it to the game, steps the
+     * game and checks the keyframe if any.
+     * @return                          <code>false</code> if already at the end,
+     *                                  otherwise <code>true</code>
+     * @throws IllegalStateException    if the game is out of step with the recording
+     */
+    public boolean step() throws IllegalStateException {
+        if (this.isFinished()) return false;
+
+        long tick = this.getTick();
+        while (this.nextEvent < this.replay.getEventCount()
+                && this.replay.getEventTick(this.nextEvent) == tick) {
+            if (this.replay.isEventPressed(this.nextEvent))
+                this.state.keyPressed(this.replay.getEventKey(this.nextEvent));
+            else
+                this.state.keyReleased(this.replay.getEventKey(this.nextEvent));
+            this.nextEvent++;
+        }
+        this.state.step();
+
+        if (this.getTick() == (this.nextKeyframe + 1L) * this.replay.getKeyframeInterval()
+                && this.nextKeyframe < this.replay.getKeyframeCount()) {
+            if (this.state.checksum() != this.replay.getKeyframe(this.nextKeyframe))
+                throw new IllegalStateException("replay out of step at tick " + this.getTick());
+            this.nextKeyframe++;
+            if (this.snapshots[this.nextKeyframe] == null)
+                this.snapshots[this.nextKeyframe] = this.state.snapshot();
+        }
+        return true;
+    }
+
+    /**
+     * Plays the replay up to a tick. The game is restored from the snapshot of
+     * the last keyframe before the tick if the tick is behind the current tick,
+     * or if that keyframe is ahead of it, then played on to the tick. Only the
+     * keyframes played by this replayer have snapshots, so seeking ahead plays
+     * every tick from the current one.
+     * @param tick                      the tick to stop at, stops at the end of
+     *                                  the recording if later
+     * @throws IllegalStateException    if the game is out of step with the recording
+     */
+    public void seek(long tick) throws IllegalStateException {
+        int keyframe = (int)Math.min(Math.max(tick, 0) / this.replay.getKeyframeInterval(),
+                                        this.snapshots.length - 1);
+        while (this.snapshots[keyframe] == null) keyframe--;
+        GameState.Snapshot snapshot = this.snapshots[keyframe];
+        if (tick < this.getTick() || snapshot.getTickCount() > this.getTick()) {
+            this.state.restore(snapshot);
+            this.nextKeyframe = keyframe;
+            // first event at or after the tick of the snapshot
+            int low = 0;
+            int high = this.replay.getEventCount();
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (this.replay.getEventTick(mid) < snapshot.getTickCount()) low = mid + 1;
+                else high = mid;
+            }
+            this.nextEvent = low;
+        }
+        while (this.getTick() < tick && this.step());
+    }
+
+    /**
+     * Plays the rest of the replay.
+     * @return                          the number of ticks played
+     * @throws IllegalStateException    if the game is out of step with the recording
+     */
+    public long run() throws IllegalStateException {
+        long start = this.getTick();
+        while (this.step());
+        return this.getTick() - start;
+    }
+
+    /**
+     * Plays a replay file from the command line and prints how fast it played,
+     * and the times of the phases of a step (see {@link FrameProfiler}).
+     * <p> Arguments: replay file, tick to stop at (end of the replay if omitted).
+     * The replay is played from tick 0 up to the tick, there are no snapshots
+     * to start from in a new process.
+     * @param args          command line arguments
+     * @throws IOException  if the replay or the config cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: Replayer <session.replay> [tick]");
+            return;
+        }
+        Replay replay = Replay.read(Paths.get(args[0]));
+        long start = System.nanoTime();
+        Replayer replayer = new Replayer(replay);
+        FrameProfiler profiler = new FrameProfiler();
+        replayer.getState().setProfiler(profiler);
+        if (args.length > 1)
+            replayer.seek(Long.parseLong(args[1]));
+        else
+            replayer.run();
+        long nanos = System.nanoTime() - start;
+
+        GameState state = replayer.getState();
+        System.out.printf("%d/%d ticks in %d ms (%.0f ticks/s), %d events, %d keyframes checked%n",
+                replayer.getTick(), replay.getTicks(), nanos / 1000000,
+                replayer.getTick() * 1e9 / nanos, replayer.nextEvent, replayer.nextKeyframe);
+        System.out.printf("level %d, lives %d, score %d%%, %s, checksum %016x%n",
+                state.getLevelList().indexOf(state.getCurrentLevel()) + 1, state.getLives(),
+                (int)state.getScore(), state.isGameOver() ? (state.isWon() ? "won" : "lost")
+                : "playing", state.checksum());
+        for (FrameProfiler.Phase phase : FrameProfiler.Phase.values()) {
+            if (profiler.getHistogram(phase).getCount() > 0)
+                System.out.println(profiler.format(phase) + " us");
+        }
+    }
+}
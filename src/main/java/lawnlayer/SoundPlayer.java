@@ -0,0 +1,205 @@
+package lawnlayer;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import javax.sound.sampled.*;
+
+/**
+ * Plays sound effects on a dedicated audio thread. Sounds are decoded once into
+ * PCM samples when loaded, and mixed through a small pool of voices into a single
+ * audio line that stays open.
+ * <p>
+ * {@link #play(String)} only queues the sound and never blocks the caller.
+ */
+public class SoundPlayer implements Runnable {
+
+    // all sounds are converted to 48kHz 16-bit stereo
+    private static final AudioFormat FORMAT = new AudioFormat(48000f, 16, 2, true, false);
+    private static final int CHUNK_FRAMES = 1024;
+
+    private Map<String,short[]> sounds;
+    private BlockingQueue<short[]> requests;
+
+    // voice pool, only used by the audio thread
+    private short[][] voices;
+    private int[] positions;
+    private volatile int activeVoices;
+
+    private SourceDataLine line;
+    private Thread thread;
+
+    /**
+     * Creates a new sound player. Sounds are loaded with {@link #load(String)},
+     * playback starts with {@link #start()}.
+     * @param voiceCount the number of sounds that can play at the same time
+     */
+    public SoundPlayer(int voiceCount) {
+        this.sounds = new ConcurrentHashMap<String,short[]>();
+        this.requests = new LinkedBlockingQueue<short[]>();
+        this.voices = new short[voiceCount][];
+        this.positions = new int[voiceCount];
+    }
+
+    /**
+     * Decodes a sound resource into PCM samples.
+     * @param name                              the name of the sound resource in this package
+     * @throws IOException                      if fails to read the resource
+     * @throws UnsupportedAudioFileException    if the audio format cannot be converted
+     */
+    public void load(String name) throws IOException, UnsupportedAudioFileException {
+        InputStream in = SoundPlayer.class.getResourceAsStream(name);
+        if (in == null)
+            throw new FileNotFoundException(name);
+        // audio streams need mark/reset support
+        try (AudioInputStream source = AudioSystem.getAudioInputStream(new BufferedInputStream(in))) {
+            AudioInputStream pcm;
+            try {
+                pcm = AudioSystem.getAudioInputStream(FORMAT, source);
+            } catch (IllegalArgumentException e) {
+                throw new UnsupportedAudioFileException(name + ": " + source.getFormat());
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = pcm.read(buffer)) > 0)
+                bytes.write(buffer, 0, n);
+
+            byte[] data = bytes.toByteArray();
+            short[] samples = new short[data.length / 2];
+            for (int i = 0; i < samples.length; i++)
+                samples[i] = (short)((data[2*i] & 0xFF) | (data[2*i+1] << 8)); // little endian
+            this.sounds.put(name, samples);
+        }
+    }
+
+    /**
+     * Gets the decoded samples of a loaded sound, channels interleaved.
+     * @param name  the name of the sound
+     * @return      the samples, <code>null</code> if not loaded
+     */
+    short[] getSamples(String name) {
+        return this.sounds.get(name);
+    }
+
+    /**
+     * Queues a loaded sound to be played. Never blocks.
+     * @param name  the name of the sound
+     * @return      <code>true</code> if queued, <code>false</code> if not loaded
+     */
+    public boolean play(String name) {
+        short[] samples = this.sounds.get(name);
+        if (samples == null) return false;
+        return this.requests.offer(samples);
+    }
+
+    /**
+     * Gets the number of voices currently playing.
+     * @return the number of active voices
+     */
+    public int getActiveVoices() {
+        return this.activeVoices;
+    }
+
+    /**
+     * Opens the audio line and starts the audio thread.
+     * @throws LineUnavailableException if no audio line is available
+     */
+    public void start() throws LineUnavailableException {
+        if (this.thread != null) return;
+        this.line = AudioSystem.getSourceDataLine(FORMAT);
+        this.line.open(FORMAT, CHUNK_FRAMES * FORMAT.getFrameSize() * 4);
+        this.line.start();
+        this.thread = new Thread(this, "sound");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Stops the audio thread and closes the audio line.
+     */
+    public void close() {
+        if (this.thread == null) return;
+        this.thread.interrupt();
+        try {
+            this.thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        this.thread = null;
+    }
+
+    /**
+     * Audio thread loop. Waits for a sound while nothing plays, otherwise mixes
+     * and writes the voices chunk by chunk.
+     */
+    public void run() {
+        byte[] buffer = new byte[CHUNK_FRAMES * FORMAT.getFrameSize()];
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                if (this.activeVoices == 0)
+                    this.addVoice(this.requests.take());
+                int n = this.mix(buffer);
+                this.line.write(buffer, 0, n);
+            }
+        } catch (InterruptedException e) {
+            // closing
+        } finally {
+            this.line.stop();
+            this.line.close();
+        }
+    }
+
+    /**
+     * Starts the queued sounds, then mixes the next chunk of all voices into the
+     * buffer as 16-bit little endian samples. Finished voices are freed.
+     * @param buffer    the buffer to fill
+     * @return          the number of bytes filled
+     */
+    int mix(byte[] buffer) {
+        short[] request;
+        while ((request = this.requests.poll()) != null)
+            this.addVoice(request);
+
+        int samples = buffer.length / 2;
+        for (int i = 0; i < samples; i++) {
+            int sum = 0;
+            for (int v = 0; v < this.voices.length; v++) {
+                if (this.voices[v] != null && this.positions[v] < this.voices[v].length)
+                    sum += this.voices[v][this.positions[v]++];
+            }
+            sum = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, sum));
+            buffer[2*i] = (byte)sum;
+            buffer[2*i+1] = (byte)(sum >> 8);
+        }
+
+        for (int v = 0; v < this.voices.length; v++) {
+            if (this.voices[v] != null && this.positions[v] >= this.voices[v].length) {
+                this.voices[v] = null;
+                this.activeVoices--;
+            }
+        }
+        return buffer.length;
+    }
+
+    /**
+     * Assigns a sound to a free voice. If all voices are busy, the voice that
+     * played the longest is restarted with the new sound.
+     * @param samples the samples of the sound
+     */
+    private void addVoice(short[] samples) {
+        int target = -1;
+        for (int v = 0; v < this.voices.length; v++) {
+            if (this.voices[v] == null) {
+                target = v;
+                break;
+            }
+            if (target < 0 || this.positions[v] > this.positions[target])
+                target = v;
+        }
+        if (this.voices[target] == null)
+            this.activeVoices++;
+        this.voices[target] = samples;
+        this.positions[target] = 0;
+    }
+}
@@ -0,0 +1,252 @@
+package lawnlayer;
+
+import java.util.Collection;
+
+/**
+ * Uniform grid over the tilemap that indexes agents (player, enemies, powerups)
+ * by the tile they are in. Each cell covers a square of tiles, so the index of
+ * a large map stays small, and finding the agents in a tile or around it only
+ * looks at the cells covering those tiles, instead of checking every pair of
+ * agents.
+ * <p>
+ * The agents of a cell are chained through the agents themselves, so moving an
+ * agent to another cell takes constant time and does not allocate. Moving an
+ * agent within the same tile does nothing. An agent is in one index at a time.
+ */
+public class SpatialIndex {
+
+    /** Default size of the cells, in tiles along each side. */
+    public static final int CELL_SIZE = 8;
+
+    private final int rows;
+    private final int cols;
+    private final int cellSize;
+    private final int cellCols;
+    // first agent in each cell, indexed cell row * cell columns + cell column
+    private final Agent[] heads;
+    private int size;
+
+    /**
+     * Creates an empty index for a tilemap, with cells of {@link #CELL_SIZE} tiles.
+     * @param rows the number of rows in the tilemap
+     * @param cols the number of columns in the tilemap
+     */
+    public SpatialIndex(int rows, int cols) {
+        this(rows, cols, CELL_SIZE);
+    }
+
+    /**
+     * Creates an empty index for a tilemap.
+     * @param rows      the number of rows in the tilemap
+     * @param cols      the number of columns in the tilemap
+     * @param cellSize  the size of the cells, in tiles along each side
+     */
+    public SpatialIndex(int rows, int cols, int cellSize) {
+        this.rows = rows;
+        this.cols = cols;
+        this.cellSize = cellSize;
+        this.cellCols = (cols + cellSize - 1) / cellSize;
+        this.heads = new Agent[((rows + cellSize - 1) / cellSize) * this.cellCols];
+    }
+
+    /**
+     * Gets the number of rows of the tilemap of this index.
+     * @return the number of rows
+     */
+    public int getRows() {
+        return this.rows;
+    }
+
+    /**
+     * Gets the number of columns of the tilemap of this index.
+     * @return the number of columns
+     */
+    public int getCols() {
+        return this.cols;
+    }
+
+    /**
+     * Gets the number of agents in this index.
+     * @return the number of agents
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Checks if an agent is in this index.
+     * @param agent the agent
+     * @return      <code>true</code> if indexed, otherwise <code>false</code>
+     */
+    public boolean contains(Agent agent) {
+        return agent.index == this;
+    }
+
+    /**
+     * Puts an agent in the cell of a tile. Adds the agent if it is not indexed
+     * yet, removes it if the tile is <code>null</code> (outside the tilemap).
+     * @param agent the agent
+     * @param tile  the tile the agent is in
+     */
+    public void move(Agent agent, TileObject tile) {
+        if (tile == null) {
+            this.remove(agent);
+            return;
+        }
+        int tileIndex = tile.getRow() * this.cols + tile.getCol();
+        if (agent.index == this && agent.tile == tileIndex) return;
+        int cell = this.cell(tile.getRow(), tile.getCol());
+        if (agent.index == this && agent.cell == cell) {
+            agent.tile = tileIndex; // same cell, only the tile changes
+            return;
+        }
+        this.remove(agent);
+        if (agent.index != null)
+            agent.index.remove(agent);
+
+        agent.index = this;
+        agent.cell = cell;
+        agent.tile = tileIndex;
+        agent.prevInCell = null;
+        agent.nextInCell = this.heads[cell];
+        if (agent.nextInCell != null)
+            agent.nextInCell.prevInCell = agent;
+        this.heads[cell] = agent;
+        this.size++;
+    }
+
+    /**
+     * Removes an agent from this index.
+     * @param agent the agent
+     */
+    public void remove(Agent agent) {
+        if (agent.index != this) return;
+        if (agent.prevInCell != null)
+            agent.prevInCell.nextInCell = agent.nextInCell;
+        else
+            this.heads[agent.cell] = agent.nextInCell;
+        if (agent.nextInCell != null)
+            agent.nextInCell.prevInCell = agent.prevInCell;
+
+        agent.index = null;
+        agent.cell = -1;
+        agent.tile = -1;
+        agent.prevInCell = null;
+        agent.nextInCell = null;
+        this.size--;
+    }
+
+    /**
+     * Removes all agents from this index, e.g.to index the agents of another
+     * level of the same size again. Takes time for the cells and the agents,
+     * not for the tiles.
+     */
+    public void clear() {
+        for (int c = 0; c < this.heads.length; c++) {
+            Agent agent = this.heads[c];
+            while (agent != null) {
+                Agent next = agent.nextInCell;
+                agent.index = null;
+                agent.cell = -1;
+                agent.tile = -1;
+                agent.prevInCell = null;
+                agent.nextInCell = null;
+                agent = next;
+            }
+            this.heads[c] = null;
+        }
+        this.size = 0;
+    }
+
+    /**
+     * Finds an agent of a type in a tile.
+     * @param <T>   the type of agent
+     * @param tile  the tile
+     * @param type  the class of the agent, e.g.<code>Player.class</code>
+     * @return      the first agent of that type found, <code>null</code> if none
+     */
+    public <T extends Agent> T find(TileObject tile, Class<T> type) {
+        if (tile == null) return null;
+        return this.find(tile.getRow(), tile.getCol(), type);
+    }
+
+    /**
+     * Finds an agent of a type in a tile.
+     * @param <T>   the type of agent
+     * @param row   the row of the tile
+     * @param col   the column of the tile
+     * @param type  the class of the agent, e.g.<code>Player.class</code>
+     * @return      the first agent of that type found, <code>null</code> if none
+     */
+    public <T extends Agent> T find(int row, int col, Class<T> type) {
+        if (row < 0 || col < 0 || row >= this.rows || col >= this.cols) return null;
+        int tileIndex = row * this.cols + col;
+        for (Agent agent = this.heads[this.cell(row, col)]; agent != null;
+                    agent = agent.nextInCell) {
+            if (agent.tile == tileIndex && type.isInstance(agent))
+                return type.cast(agent);
+        }
+        return null;
+    }
+
+    /**
+     * Collects the agents of a type in the square of tiles around a tile, e.g.a
+     * radius of 1 covers the tile and its 8 surrounding tiles. Tiles beyond the
+     * tilemap are skipped.
+     * @param <T>       the type of agent
+     * @param row       the row of the centre tile
+     * @param col       the column of the centre tile
+     * @param radius    the number of tiles to look around the centre tile
+     * @param type      the class of the agents, e.g.<code>Enemy.class</code>
+     * @param result    the collection to which the agents found are added
+     * @return          the number of agents found
+     */
+    public <T extends Agent> int query(int row, int col, int radius, Class<T> type,
+                                        Collection<? super T> result) {
+        return this.query(row - radius, col - radius, row + radius, col + radius, 
+                            type, result);
+    }
+
+    /**
+     * Collects the agents of a type in a rectangle of tiles, e.g.the tiles in 
+     * view of the camera. Tiles beyond the tilemap are skipped.
+     * @param <T>       the type of agent
+     * @param rowStart  the first row of the rectangle
+     * @param colStart  the first column of the rectangle
+     * @param rowEnd    the last row of the rectangle, inclusive
+     * @param colEnd    the last column of the rectangle, inclusive
+     * @param type      the class of the agents, e.g.<code>Enemy.class</code>
+     * @param result    the collection to which the agents found are added
+     * @return          the number of agents found
+     */
+    public <T extends Agent> int query(int rowStart, int colStart, int rowEnd, int colEnd,
+                                        Class<T> type, Collection<? super T> result) {
+        int found = 0;
+        rowStart = Math.max(rowStart, 0);
+        colStart = Math.max(colStart, 0);
+        rowEnd = Math.min(rowEnd, this.rows - 1);
+        colEnd = Math.min(colEnd, this.cols - 1);
+        if (rowStart > rowEnd || colStart > colEnd) return 0;
+        // the cells covering the rectangle, agents in them may be outside it
+        for (int r = rowStart / this.cellSize; r <= rowEnd / this.cellSize; r++) {
+            for (int c = colStart / this.cellSize; c <= colEnd / this.cellSize; c++) {
+                for (Agent agent = this.heads[r * this.cellCols + c]; agent != null;
+                            agent = agent.nextInCell) {
+                    int row = agent.tile / this.cols;
+                    int col = agent.tile % this.cols;
+                    if (row >= rowStart && row <= rowEnd && col >= colStart && col <= colEnd
+                            && type.isInstance(agent)) {
+                        result.add(type.cast(agent));
+                        found++;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    // cell covering a tile
+    private int cell(int row, int col) {
+        return (row / this.cellSize) * this.cellCols + col / this.cellSize;
+    }
+}
@@ -0,0 +1,102 @@
+package lawnlayer;
+
+import processing.core.PConstants;
+import processing.core.PImage;
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.util.*;
+import javax.imageio.ImageIO;
+
+/**
+ * Loads the game sprites from the classpath. Works from the class folders as well
+ * as from inside the jar.
+ * <p>
+ * The sprites listed in <code>sprites.properties</code> (sprite key = image file)
+ * are packed into a single image <code>sprites.png</code> at build time, with
+ * the position of each sprite in <code>sprites.atlas</code> (sprite key = x,y,w,h).
+ * The atlas is read in one go and sliced into sprites. Without a packed atlas
+ * (e.g. running from sources) each image file is read on its own.
+ */
+public class SpriteAtlas {
+
+    private static final String SPRITES = "sprites.properties";
+    private static final String ATLAS_IMAGE = "sprites.png";
+    private static final String ATLAS_INDEX = "sprites.atlas";
+
+    /**
+     * Loads all sprites.
+     * @return              the {@link PImage} sprites in a map with string keys
+     * @throws IOException  if any sprite cannot be read
+     */
+    public static Map<String,PImage> load() throws IOException {
+        Map<String,PImage> sprites = new HashMap<String,PImage>();
+        Properties atlas = readProperties(ATLAS_INDEX);
+
+        if (atlas != null) {
+            BufferedImage image = readImage(ATLAS_IMAGE);
+            for (String key : atlas.stringPropertyNames()) {
+                String[] parts = atlas.getProperty(key).split(",");
+                sprites.put(key, toPImage(image, Integer.parseInt(parts[0].trim()),
+                        Integer.parseInt(parts[1].trim()), Integer.parseInt(parts[2].trim()),
+                        Integer.parseInt(parts[3].trim())));
+            }
+        } else {
+            // not packed, read the files one by one
+            Properties files = readProperties(SPRITES);
+            if (files == null)
+                throw new FileNotFoundException(SPRITES);
+            for (String key : files.stringPropertyNames())
+                sprites.put(key, loadImage(files.getProperty(key).trim()));
+        }
+        return sprites;
+    }
+
+    /**
+     * Loads a single image from the classpath.
+     * @param name          the name of the image resource in this package
+     * @return              the {@link PImage}
+     * @throws IOException  if the image cannot be read
+     */
+    public static PImage loadImage(String name) throws IOException {
+        BufferedImage image = readImage(name);
+        return toPImage(image, 0, 0, image.getWidth(), image.getHeight());
+    }
+
+    /**
+     * Copies a region of an image into a new {@link PImage}.
+     * @param image the source image
+     * @param x     x-coordinate of the region
+     * @param y     y-coordinate of the region
+     * @param w     width of the region
+     * @param h     height of the region
+     * @return      the {@link PImage}
+     */
+    private static PImage toPImage(BufferedImage image, int x, int y, int w, int h) {
+        PImage sprite = new PImage(w, h, PConstants.ARGB);
+        image.getRGB(x, y, w, h, sprite.pixels, 0, w);
+        sprite.updatePixels();
+        return sprite;
+    }
+
+    private static BufferedImage readImage(String name) throws IOException {
+        InputStream in = SpriteAtlas.class.getResourceAsStream(name);
+        if (in == null)
+            throw new FileNotFoundException(name);
+        try (InputStream stream = new BufferedInputStream(in)) {
+            BufferedImage image = ImageIO.read(stream);
+            if (image == null)
+                throw new IOException("unsupported image " + name);
+            return image;
+        }
+    }
+
+    private static Properties readProperties(String name) throws IOException {
+        InputStream in = SpriteAtlas.class.getResourceAsStream(name);
+        if (in == null) return null;
+        Properties properties = new Properties();
+        try (Reader reader = new InputStreamReader(in, "UTF-8")) {
+            properties.load(reader);
+        }
+        return properties;
+    }
+}
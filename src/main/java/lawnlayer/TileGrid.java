@@ -0,0 +1,467 @@
+package lawnlayer;
+
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The authoritative tile state of a tilemap, stored as one byte type code per tile.
+ * Every tile has exactly one type.
+ * <p>
+ * Tiles are stored in square chunks of {@link #CHUNK_SIZE} x {@link #CHUNK_SIZE}
+ * tiles, so large maps only take memory where they differ from plain soil or
+ * concrete. A chunk of all soil is not allocated until one of its tiles changes,
+ * and chunks of all concrete share a single read-only chunk (see {@link #compact()}).
+ * Tiles are still addressed by their row-major index, row * columns + column.
+ * <p>
+ * The grid keeps a live count of the tiles of each type, and publishes every type 
+ * change to its {@link TileListener}s.
+ * <p>
+ * A {@link Snapshot} shares the chunks of the grid instead of copying them. A
+ * chunk shared with a snapshot is copied on the next write to it, so taking a
+ * snapshot and restoring it costs the chunks changed since, not the whole map.
+ * <p>
+ * {@link TileObject}s are views of a tile of a grid. They are only created when
+ * asked for, one chunk at a time, and the same view is returned every time.
+ * <p>
+ * Reading tiles and views from several threads is safe as long as no thread
+ * changes the grid, e.g.while enemies move in parallel (see {@link GameState#step()}).
+ */
+public class TileGrid {
+
+    // tile type codes
+    public static final byte SOIL = 0;
+    public static final byte CONCRETE = 1;
+    public static final byte GRASS = 2;
+    public static final byte PATH = 3;
+    public static final byte PATH_HIT = 4; // red path
+
+    /** Number of rows and columns of tiles in a chunk. */
+    public static final int CHUNK_SIZE = 64;
+    private static final int CHUNK_SHIFT = 6;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    // shared by all chunks of all concrete, never written
+    private static final byte[] CONCRETE_CHUNK = new byte[CHUNK_SIZE * CHUNK_SIZE];
+    static {
+        Arrays.fill(CONCRETE_CHUNK, CONCRETE);
+    }
+    // hashes of the shared chunks, see checksum
+    private static final int SOIL_HASH = Arrays.hashCode(new byte[CHUNK_SIZE * CHUNK_SIZE]);
+    private static final int CONCRETE_HASH = Arrays.hashCode(CONCRETE_CHUNK);
+
+    private final int rows;
+    private final int cols;
+    private final int chunkCols;
+    // type codes of each chunk, null for all soil
+    private final byte[][] chunks;
+    private final int[] counts = new int[PATH_HIT + 1]; // tiles per type code
+    // chunks also referenced by a snapshot, copied on write
+    private final BitSet shared = new BitSet();
+    private final List<TileListener> listeners = new ArrayList<TileListener>();
+
+    // views, created on first use and published to other threads
+    private final AtomicReferenceArray<TileObject[]> chunkViews;
+    private TileObject[][] tileMap;
+    private TileObject[] tiles;
+
+    /**
+     * Creates a new grid of soil tiles.
+     * @param rows the number of rows
+     * @param cols the number of columns
+     */
+    public TileGrid(int rows, int cols) {
+        if ((long)rows * cols > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("grid too large: " + rows + "x" + cols);
+        this.rows = rows;
+        this.cols = cols;
+        this.chunkCols = (cols + CHUNK_MASK) >> CHUNK_SHIFT;
+        int chunkRows = (rows + CHUNK_MASK) >> CHUNK_SHIFT;
+        this.chunks = new byte[chunkRows * this.chunkCols][];
+        this.chunkViews = new AtomicReferenceArray<TileObject[]>(this.chunks.length);
+        this.counts[SOIL] = rows * cols;
+    }
+
+    /**
+     * Gets the number of rows in this grid.
+     * @return the number of rows
+     */
+    public int getRows() {
+        return this.rows;
+    }
+
+    /**
+     * Gets the number of columns in this grid.
+     * @return the number of columns
+     */
+    public int getCols() {
+        return this.cols;
+    }
+
+    /**
+     * Gets the index of a tile, row * columns + column.
+     * @param row the row of the tile
+     * @param col the column of the tile
+     * @return    the index of the tile
+     */
+    public int index(int row, int col) {
+        return row * this.cols + col;
+    }
+
+    /**
+     * Gets the type code of a tile.
+     * @param index the index of the tile, see {@link #index(int, int)}
+     * @return      the type code
+     */
+    public byte get(int index) {
+        int row = index / this.cols;
+        return this.get(row, index - row * this.cols);
+    }
+
+    /**
+     * Gets the type code of a tile.
+     * @param row the row of the tile
+     * @param col the column of the tile
+     * @return    the type code
+     */
+    public byte get(int row, int col) {
+        byte[] chunk = this.chunks[this.chunk(row, col)];
+        return chunk == null ? SOIL : chunk[offset(row, col)];
+    }
+
+    /**
+     * Gets the number of tiles of a type.
+     * @param type the type code
+     * @return     the number of tiles
+     */
+    public int count(byte type) {
+        return this.counts[type];
+    }
+
+    /**
+     * Gets the number of chunks that take memory of their own, i.e.not all soil
+     * and not shared.
+     * @return the number of allocated chunks
+     */
+    public int getAllocatedChunks() {
+        int allocated = 0;
+        for (byte[] chunk : this.chunks) {
+            if (chunk != null && chunk != CONCRETE_CHUNK) allocated++;
+        }
+        return allocated;
+    }
+
+    /**
+     * Adds a listener that is called on every tile type change of this grid.
+     * @param listener the listener to add
+     */
+    public void addListener(TileListener listener) {
+        this.listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener of this grid.
+     * @param listener the listener to remove
+     */
+    public void removeListener(TileListener listener) {
+        this.listeners.remove(listener);
+    }
+
+    /**
+     * Sets the type code of a tile.
+     * @param index the index of the tile, see {@link #index(int, int)}
+     * @param type  the type code
+     */
+    public void set(int index, byte type) {
+        int row = index / this.cols;
+        this.set(row, index - row * this.cols, type);
+    }
+
+    /**
+     * Sets the type code of a tile.
+     * @param row  the row of the tile
+     * @param col  the column of the tile
+     * @param type the type code
+     */
+    public void set(int row, int col, byte type) {
+        int c = this.chunk(row, col);
+        byte[] chunk = this.chunks[c];
+        int offset = offset(row, col);
+        byte from = chunk == null ? SOIL : chunk[offset];
+        if (from == type) return;
+
+        // copy on write
+        if (chunk == null || chunk == CONCRETE_CHUNK || this.shared.get(c)) {
+            chunk = this.chunks[c] = (chunk == null) ? new byte[CHUNK_SIZE * CHUNK_SIZE]
+                                                     : chunk.clone();
+            this.shared.clear(c);
+        }
+        chunk[offset] = type;
+        this.counts[from]--;
+        this.counts[type]++;
+        int index = row * this.cols + col;
+        for (int i = 0; i < this.listeners.size(); i++)
+            this.listeners.get(i).tileChanged(this, index, from, type);
+    }
+
+    /**
+     * Sets the tiles marked in a bitmap to concrete, a whole chunk at a time. The
+     * grid must be all soil, e.g.new. Bit <code>col % 64</code> of word
+     * <code>row * wordsPerRow + col / 64</code> marks the tile at (row, col).
+     * Chunks of all soil or all concrete are compacted, and listeners are not called.
+     * @param bits                  the bitmap, read from index 0
+     * @param wordsPerRow           the number of words of each row, at least
+     *                              (columns + 63) / 64
+     * @throws IllegalStateException if the grid is not all soil
+     */
+    void loadConcrete(LongBuffer bits, int wordsPerRow) throws IllegalStateException {
+        if (this.counts[SOIL] != this.rows * this.cols)
+            throw new IllegalStateException("grid is not all soil");
+        for (int c = 0; c < this.chunks.length; c++) {
+            // one word per row of the chunk, as chunks are 64 tiles wide
+            int chunkCol = c % this.chunkCols;
+            int rowStart = (c / this.chunkCols) << CHUNK_SHIFT;
+            int rowEnd = Math.min(rowStart + CHUNK_SIZE, this.rows);
+            int width = Math.min(CHUNK_SIZE, this.cols - (chunkCol << CHUNK_SHIFT));
+            long mask = (width == CHUNK_SIZE) ? -1L : (1L << width) - 1;
+            int concrete = 0;
+            for (int row = rowStart; row < rowEnd; row++)
+                concrete += Long.bitCount(bits.get(row * wordsPerRow + chunkCol) & mask);
+            if (concrete == 0) continue;
+
+            if (concrete == CHUNK_SIZE * CHUNK_SIZE) {
+                this.chunks[c] = CONCRETE_CHUNK;
+            } else {
+                byte[] chunk = new byte[CHUNK_SIZE * CHUNK_SIZE];
+                for (int row = rowStart; row < rowEnd; row++) {
+                    long word = bits.get(row * wordsPerRow + chunkCol) & mask;
+                    int offset = (row - rowStart) << CHUNK_SHIFT;
+                    for (; word != 0; word &= word - 1)
+                        chunk[offset + Long.numberOfTrailingZeros(word)] = CONCRETE;
+                }
+                this.chunks[c] = chunk;
+            }
+            this.counts[SOIL] -= concrete;
+            this.counts[CONCRETE] += concrete;
+        }
+    }
+
+    /**
+     * Frees the memory of chunks that are all soil or all concrete. Parts of the
+     * chunks beyond the edges of the grid are ignored.
+     */
+    public void compact() {
+        int chunkRows = this.chunks.length / this.chunkCols;
+        for (int c = 0; c < this.chunks.length; c++) {
+            byte[] chunk = this.chunks[c];
+            if (chunk == null || chunk == CONCRETE_CHUNK) continue;
+            int rowEnd = Math.min(CHUNK_SIZE, this.rows - (c / this.chunkCols) * CHUNK_SIZE);
+            int colEnd = Math.min(CHUNK_SIZE, this.cols - (c % this.chunkCols) * CHUNK_SIZE);
+            byte first = chunk[0];
+            boolean uniform = first == SOIL || first == CONCRETE;
+            for (int i = 0; i < rowEnd && uniform; i++) {
+                for (int j = 0; j < colEnd && uniform; j++)
+                    uniform = chunk[(i << CHUNK_SHIFT) | j] == first;
+            }
+            if (!uniform) continue;
+            if (first == SOIL)
+                this.chunks[c] = null;
+            else if (rowEnd == CHUNK_SIZE && colEnd == CHUNK_SIZE)
+                this.chunks[c] = CONCRETE_CHUNK;
+        }
+    }
+
+    /**
+     * Computes a hash of the size and tile types of this grid. Grids with the
+     * same tiles have the same checksum however their chunks are stored, e.g.to
+     * check that a replayed game is still in step with the recording.
+     * @return the checksum
+     */
+    public long checksum() {
+        long hash = this.rows * 31L + this.cols;
+        for (int c = 0; c < this.chunks.length; c++) {
+            byte[] chunk = this.chunks[c];
+            int chunkHash;
+            if (chunk == null) chunkHash = SOIL_HASH;
+            else if (chunk == CONCRETE_CHUNK) chunkHash = CONCRETE_HASH;
+            else chunkHash = Arrays.hashCode(chunk);
+            hash = hash * 0x9E3779B97F4A7C15L + chunkHash;
+        }
+        return hash;
+    }
+
+    /**
+     * Copies the tile types of this grid into a new grid. Views and listeners 
+     * are not copied.
+     * @return the new grid
+     */
+    public TileGrid copy() {
+        TileGrid copy = new TileGrid(this.rows, this.cols);
+        copyChunks(this.chunks, copy.chunks);
+        System.arraycopy(this.counts, 0, copy.counts, 0, this.counts.length);
+        return copy;
+    }
+
+    /**
+     * Overwrites the tile types of this grid with the types of another grid of
+     * the same size. Views of this grid stay valid and see the new types. 
+     * Listeners are called once for the whole grid.
+     * @param other                     the grid to copy from
+     * @throws IllegalArgumentException if the sizes differ
+     */
+    public void copyFrom(TileGrid other) throws IllegalArgumentException {
+        if (other.rows != this.rows || other.cols != this.cols)
+            throw new IllegalArgumentException("grid size differs");
+        copyChunks(other.chunks, this.chunks);
+        this.shared.clear();
+        System.arraycopy(other.counts, 0, this.counts, 0, this.counts.length);
+        for (int i = 0; i < this.listeners.size(); i++)
+            this.listeners.get(i).tileChanged(this, -1, (byte)-1, (byte)-1);
+    }
+
+    /**
+     * Takes a snapshot of the tile types of this grid. The chunks are shared
+     * with the snapshot until they are written to, so this only copies the
+     * references to the chunks.
+     * @return the snapshot
+     */
+    public Snapshot snapshot() {
+        this.shared.set(0, this.chunks.length);
+        return new Snapshot(this, this.chunks.clone(), this.counts.clone());
+    }
+
+    /**
+     * Sets the tile types of this grid back to a snapshot of this grid. The
+     * snapshot stays valid, and can be restored again. Views of this grid stay
+     * valid and see the restored types. Listeners are called once for the whole
+     * grid.
+     * @param snapshot                  the snapshot
+     * @throws IllegalArgumentException if the snapshot is of another grid
+     */
+    public void restore(Snapshot snapshot) throws IllegalArgumentException {
+        if (snapshot.grid != this)
+            throw new IllegalArgumentException("snapshot of another grid");
+        System.arraycopy(snapshot.chunks, 0, this.chunks, 0, this.chunks.length);
+        this.shared.set(0, this.chunks.length);
+        System.arraycopy(snapshot.counts, 0, this.counts, 0, this.counts.length);
+        for (int i = 0; i < this.listeners.size(); i++)
+            this.listeners.get(i).tileChanged(this, -1, (byte)-1, (byte)-1);
+    }
+
+    /**
+     * Gets the view of a tile. Views are created for the whole chunk of the tile
+     * on the first call.
+     * @param row the row of the tile
+     * @param col the column of the tile
+     * @return    the {@link TileObject} of the tile
+     */
+    public TileObject getTile(int row, int col) {
+        int c = this.chunk(row, col);
+        TileObject[] views = this.chunkViews.get(c);
+        if (views == null) {
+            views = new TileObject[CHUNK_SIZE * CHUNK_SIZE];
+            int rowStart = (c / this.chunkCols) << CHUNK_SHIFT;
+            int colStart = (c % this.chunkCols) << CHUNK_SHIFT;
+            int rowEnd = Math.min(rowStart + CHUNK_SIZE, this.rows);
+            int colEnd = Math.min(colStart + CHUNK_SIZE, this.cols);
+            for (int i = rowStart; i < rowEnd; i++) {
+                for (int j = colStart; j < colEnd; j++)
+                    views[offset(i, j)] = new TileObject(this, i, j);
+            }
+            // another thread may have created the views first, keep theirs
+            if (!this.chunkViews.compareAndSet(c, null, views))
+                views = this.chunkViews.get(c);
+        }
+        return views[offset(row, col)];
+    }
+
+    /**
+     * Gets the view of a tile.
+     * @param index the index of the tile, see {@link #index(int, int)}
+     * @return      the {@link TileObject} of the tile
+     */
+    public TileObject getTile(int index) {
+        int row = index / this.cols;
+        return this.getTile(row, index - row * this.cols);
+    }
+
+    /**
+     * Gets the views of all tiles as a 2d tilemap. Views are created on the first
+     * call. Large grids should use {@link #getTile(int, int)}, which only creates
+     * the views of the chunks in use.
+     * @return the 2d tilemap
+     */
+    public TileObject[][] getTileMap() {
+        if (this.tileMap == null) {
+            TileObject[][] views = new TileObject[this.rows][this.cols];
+            for (int i = 0; i < this.rows; i++) {
+                for (int j = 0; j < this.cols; j++) {
+                    views[i][j] = this.getTile(i, j);
+                }
+            }
+            this.tileMap = views;
+        }
+        return this.tileMap;
+    }
+
+    /**
+     * Gets the views of all tiles in a single row-major array, index 
+     * row * columns + column. The array is created once and shared, callers 
+     * must not modify it.
+     * @return all tile objects
+     */
+    public TileObject[] getTiles() {
+        if (this.tiles == null) {
+            TileObject[] tiles = new TileObject[this.rows * this.cols];
+            TileObject[][] tileMap = this.getTileMap();
+            for (int i = 0; i < this.rows; i++)
+                System.arraycopy(tileMap[i], 0, tiles, i * this.cols, this.cols);
+            this.tiles = tiles;
+        }
+        return this.tiles;
+    }
+
+    private int chunk(int row, int col) {
+        return (row >> CHUNK_SHIFT) * this.chunkCols + (col >> CHUNK_SHIFT);
+    }
+
+    private static int offset(int row, int col) {
+        return ((row & CHUNK_MASK) << CHUNK_SHIFT) | (col & CHUNK_MASK);
+    }
+
+    private static void copyChunks(byte[][] from, byte[][] to) {
+        for (int c = 0; c < from.length; c++) {
+            byte[] chunk = from[c];
+            to[c] = (chunk == null || chunk == CONCRETE_CHUNK) ? chunk : chunk.clone();
+        }
+    }
+
+    /**
+     * Tile types of a grid at some point, see {@link TileGrid#snapshot()}. The
+     * chunks are never written to, the grid copies a shared chunk before
+     * writing to it.
+     */
+    public static final class Snapshot {
+
+        private final TileGrid grid;
+        private final byte[][] chunks;
+        private final int[] counts;
+
+        private Snapshot(TileGrid grid, byte[][] chunks, int[] counts) {
+            this.grid = grid;
+            this.chunks = chunks;
+            this.counts = counts;
+        }
+
+        /**
+         * Gets the grid this snapshot was taken of.
+         * @return the grid
+         */
+        public TileGrid getGrid() {
+            return this.grid;
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package lawnlayer;
+
+import processing.core.PApplet;
+import processing.core.PConstants;
+import processing.core.PGraphics;
+import processing.core.PImage;
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.Map;
+
+/**
+ * Off-screen blocks with the tilemap baked in. The tilemap is split into square
+ * blocks of {@link #BLOCK_SIZE} x {@link #BLOCK_SIZE} tiles, and only the blocks
+ * in view of the camera are kept. A block coming into view is drawn in full, a
+ * block going out of view is given back to a pool for reuse, so the cost of a
+ * frame depends on the size of the view and not of the tilemap.
+ * <p>
+ * The layer listens to the tile grid and only redraws the tiles that changed
+ * type since the last frame (path laid, grass filled or eaten, red path
+ * propogating) in the blocks it keeps. Each block is then drawn on screen with
+ * a single image call.
+ * <p>
+ * Soil tiles are transparent, so the background of the app shows through.
+ */
+public class TileLayer implements TileListener {
+
+    /** Number of rows and columns of tiles in a block. */
+    public static final int BLOCK_SIZE = 16;
+
+    // sprite of each tile type code
+    private PImage[] tileSprites;
+
+    private TileGrid grid;
+    private int blockCols;
+    // off-screen graphics of the blocks in view, indexed row * block columns + column
+    private PGraphics[] blocks;
+    private BitSet kept;
+    private ArrayDeque<PGraphics> pool;
+    private BitSet dirty;
+
+    /**
+     * Creates a new tile layer. The off-screen graphics are created on draw.
+     * @param sprites   all loaded sprites in a <code>Map</code> accessible by
+     *                  a string key
+     */
+    public TileLayer(Map<String,PImage> sprites) {
+        int size = GameState.SPRITESIZE();
+        this.tileSprites = new PImage[TileGrid.PATH_HIT + 1];
+        this.tileSprites[TileGrid.SOIL] = new PImage(size, size, PConstants.ARGB);
+        this.tileSprites[TileGrid.CONCRETE] = sprites.get("concrete");
+        this.tileSprites[TileGrid.GRASS] = sprites.get("grass");
+        this.tileSprites[TileGrid.PATH] = sprites.get("path");
+        this.tileSprites[TileGrid.PATH_HIT] = sprites.get("hitPath");
+        this.kept = new BitSet();
+        this.pool = new ArrayDeque<PGraphics>();
+        this.dirty = new BitSet();
+    }
+
+    /**
+     * Gets the off-screen graphics of a block.
+     * @param blockRow  the row of the block, i.e.tile row / {@link #BLOCK_SIZE}
+     * @param blockCol  the column of the block
+     * @return          the block, <code>null</code> if not in view on the last draw
+     */
+    public PGraphics getBlock(int blockRow, int blockCol) {
+        if (this.blocks == null) return null;
+        return this.blocks[blockRow * this.blockCols + blockCol];
+    }
+
+    /**
+     * Gets the number of blocks kept, i.e.in view on the last draw.
+     * @return the number of blocks
+     */
+    public int getBlockCount() {
+        return this.kept.cardinality();
+    }
+
+    /**
+     * Gets the number of tiles to be redrawn on the next draw.
+     * @return the number of changed tiles
+     */
+    public int getDirtyCount() {
+        return this.dirty.cardinality();
+    }
+
+    /**
+     * Updates the blocks in view of the camera and draws them at their position
+     * in the tilemap, below the top bar. The caller translates the drawing by
+     * the position of the camera. A new grid (e.g. a new level) is redrawn in full.
+     * @param app       the base class app of {@link PApplet}
+     * @param grid      the current tile grid of the game
+     * @param camera    the camera of the view
+     */
+    public void draw(PApplet app, TileGrid grid, Camera camera) {
+        if (grid != this.grid)
+            this.attach(grid);
+
+        int blockPixels = BLOCK_SIZE * GameState.SPRITESIZE();
+        int rowStart = camera.getFirstRow() / BLOCK_SIZE;
+        int colStart = camera.getFirstCol() / BLOCK_SIZE;
+        int rowEnd = Math.min(camera.getLastRow() / BLOCK_SIZE,
+                                this.blocks.length / this.blockCols - 1);
+        int colEnd = Math.min(camera.getLastCol() / BLOCK_SIZE, this.blockCols - 1);
+
+        // blocks out of view go back to the pool
+        for (int b = this.kept.nextSetBit(0); b >= 0; b = this.kept.nextSetBit(b+1)) {
+            int blockRow = b / this.blockCols;
+            int blockCol = b % this.blockCols;
+            if (blockRow < rowStart || blockRow > rowEnd
+                    || blockCol < colStart || blockCol > colEnd)
+                this.release(b);
+        }
+        // changed tiles of the blocks kept
+        if (!this.dirty.isEmpty()) {
+            for (int b = this.kept.nextSetBit(0); b >= 0; b = this.kept.nextSetBit(b+1))
+                this.redrawDirty(b);
+            this.dirty.clear();
+        }
+        // blocks coming into view
+        for (int blockRow = rowStart; blockRow <= rowEnd; blockRow++) {
+            for (int blockCol = colStart; blockCol <= colEnd; blockCol++) {
+                int b = blockRow * this.blockCols + blockCol;
+                if (!this.kept.get(b))
+                    this.redrawBlock(app, b);
+                app.image(this.blocks[b], blockCol * blockPixels,
+                            GameState.TOPBAR() + blockRow * blockPixels);
+            }
+        }
+    }
+
+    /**
+     * Marks a tile of the grid to be redrawn. Only tiles in the blocks kept are
+     * marked, other blocks are drawn in full when they come into view.
+     * @param grid  the grid that changed
+     * @param index the index of the changed tile, -1 to redraw all tiles
+     * @param from  the previous type code
+     * @param to    the new type code
+     */
+    public void tileChanged(TileGrid grid, int index, byte from, byte to) {
+        if (index < 0) {
+            for (int b = this.kept.nextSetBit(0); b >= 0; b = this.kept.nextSetBit(b+1))
+                this.release(b);
+            this.dirty.clear();
+            return;
+        }
+        int row = index / grid.getCols();
+        int col = index - row * grid.getCols();
+        if (this.kept.get((row / BLOCK_SIZE) * this.blockCols + col / BLOCK_SIZE))
+            this.dirty.set(index);
+    }
+
+    /**
+     * Switches the layer to another grid. All blocks go back to the pool.
+     * @param grid  the new tile grid
+     */
+    private void attach(TileGrid grid) {
+        if (this.grid != null) {
+            this.grid.removeListener(this);
+            this.tileChanged(this.grid, -1, (byte)-1, (byte)-1);
+        }
+        this.grid = grid;
+        grid.addListener(this);
+
+        this.blockCols = (grid.getCols() + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        int blockRows = (grid.getRows() + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        this.blocks = new PGraphics[blockRows * this.blockCols];
+    }
+
+    /**
+     * Draws all tiles of a block, in graphics from the pool if any.
+     * @param app   the base class app of {@link PApplet}
+     * @param b     the index of the block
+     */
+    private void redrawBlock(PApplet app, int b) {
+        PGraphics block = this.pool.poll();
+        if (block == null) {
+            int blockPixels = BLOCK_SIZE * GameState.SPRITESIZE();
+            block = app.createGraphics(blockPixels, blockPixels);
+        }
+        int size = GameState.SPRITESIZE();
+        int rowStart = (b / this.blockCols) * BLOCK_SIZE;
+        int colStart = (b % this.blockCols) * BLOCK_SIZE;
+        block.beginDraw();
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            for (int j = 0; j < BLOCK_SIZE; j++) {
+                int row = rowStart + i;
+                int col = colStart + j;
+                // set replaces the pixels, so pooled graphics are cleared too
+                byte type = (row < this.grid.getRows() && col < this.grid.getCols())
+                                ? this.grid.get(row, col) : TileGrid.SOIL;
+                block.set(j * size, i * size, this.tileSprites[type]);
+            }
+        }
+        block.endDraw();
+        this.blocks[b] = block;
+        this.kept.set(b);
+    }
+
+    /**
+     * Redraws the changed tiles of a block.
+     * @param b the index of the block
+     */
+    private void redrawDirty(int b) {
+        PGraphics block = this.blocks[b];
+        int size = GameState.SPRITESIZE();
+        int cols = this.grid.getCols();
+        int rowStart = (b / this.blockCols) * BLOCK_SIZE;
+        int colStart = (b % this.blockCols) * BLOCK_SIZE;
+        int rowEnd = Math.min(rowStart + BLOCK_SIZE, this.grid.getRows());
+        int colEnd = Math.min(colStart + BLOCK_SIZE, cols);
+        boolean drawing = false;
+        for (int row = rowStart; row < rowEnd; row++) {
+            int end = row * cols + colEnd;
+            for (int i = this.dirty.nextSetBit(row * cols + colStart); i >= 0 && i < end;
+                        i = this.dirty.nextSetBit(i+1)) {
+                if (!drawing) {
+                    block.beginDraw();
+                    drawing = true;
+                }
+                // set replaces the pixels, so a tile turning into soil is cleared
+                block.set((i % cols - colStart) * size, (row - rowStart) * size,
+                            this.tileSprites[this.grid.get(i)]);
+            }
+        }
+        if (drawing)
+            block.endDraw();
+    }
+
+    /**
+     * Gives the graphics of a block back to the pool.
+     * @param b the index of the block
+     */
+    private void release(int b) {
+        this.pool.push(this.blocks[b]);
+        this.blocks[b] = null;
+        this.kept.clear(b);
+    }
+}
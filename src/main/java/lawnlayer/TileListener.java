@@ -0,0 +1,18 @@
+package lawnlayer;
+
+/**
+ * Observer of tile type changes in a {@link TileGrid}.
+ * See {@link TileGrid#addListener(TileListener)}.
+ */
+public interface TileListener {
+
+    /**
+     * Called after a tile of the grid changed its type.
+     * @param grid  the grid that changed
+     * @param index the index of the tile, -1 if the whole grid was overwritten
+     *              (see {@link TileGrid#copyFrom(TileGrid)})
+     * @param from  the previous type code, -1 if the whole grid was overwritten
+     * @param to    the new type code, -1 if the whole grid was overwritten
+     */
+    void tileChanged(TileGrid grid, int index, byte from, byte to);
+}
@@ -4,7 +4,8 @@ import java.util.Map;
 import processing.core.PImage;
 
 /**
- * Represents a tile object in the tilemap.
+ * Represents a tile object in the tilemap. The tile is a view of one tile of a
+ * {@link TileGrid}, which stores the tile type.
  */
 public class TileObject extends GameObject{
 
@@ -12,24 +13,41 @@ public class TileObject extends GameObject{
     private int row;
     private int col;
 
-    // tile types
-    private boolean concrete = false;
-    private boolean grass = false;
-    private boolean path = false;
-    private boolean pathHit = false;
-    private boolean soil = true;
+    // tile type is stored in the grid
+    private TileGrid grid;
+    private int index;
+
+    // index in the player's trail, see Trail
+    private int trailIndex = -1;
 
     /**
      * Creates a new tile object at coordinates calculated from specified
-     * row and column.
+     * row and column. The tile is not part of a tilemap, its type is stored 
+     * in a grid of its own.
      * @param row the row of this tile in the whole tilemap
      * @param col the column of this tile in the whole tilemap
      */
     public TileObject(int row, int col) {
+        this(new TileGrid(1, 1), 0, row, col);
+    }
+
+    /**
+     * Creates a view of a tile of a grid. See {@link TileGrid#getTileMap()}.
+     * @param grid the grid that stores the type of this tile
+     * @param row  the row of this tile in the grid
+     * @param col  the column of this tile in the grid
+     */
+    TileObject(TileGrid grid, int row, int col) {
+        this(grid, grid.index(row, col), row, col);
+    }
+
+    private TileObject(TileGrid grid, int index, int row, int col) {
         // x-coor = col; y-coor = row
-        super(col*App.SPRITESIZE(), App.TOPBAR()+row*App.SPRITESIZE());
+        super(col*GameState.SPRITESIZE(), GameState.TOPBAR()+row*GameState.SPRITESIZE());
         this.row = row;
         this.col = col;
+        this.grid = grid;
+        this.index = index;
     }
 
     /**
@@ -48,24 +66,27 @@ public class TileObject extends GameObject{
         return this.col;
     }
 
+    int getTrailIndex() {
+        return this.trailIndex;
+    }
+
+    void setTrailIndex(int index) {
+        this.trailIndex = index;
+    }
+
     /**
      * Checks if this tile is a soil.
      * @return <code>true</code> if soil tile, otherwise <code>false</code>.
      */
     public boolean isSoil() {
-        return this.soil;
+        return this.grid.get(this.index) == TileGrid.SOIL;
     }
 
     /**
      * Sets this tile to a soil tile. Resets other tile types.
      */
     public void setSoil() {
-        this.soil = true;
-        // set other types to false to avoid bug
-        this.concrete = false;
-        this.grass = false;
-        this.path = false;
-        this.pathHit = false;
+        this.grid.set(this.index, TileGrid.SOIL);
     }
 
     /**
@@ -73,19 +94,14 @@ public class TileObject extends GameObject{
      * @return <code>true</code> if concrete tile, otherwise <code>false</code>.
      */
     public boolean isConcrete() {
-        return this.concrete;
+        return this.grid.get(this.index) == TileGrid.CONCRETE;
     }
 
     /**
      * Sets this tile to a concrete tile. Resets other tile types.
      */
     public void setConcrete() {
-        this.concrete = true; 
-        // set other types to false to avoid bug
-        this.grass = false;
-        this.path = false;
-        this.pathHit = false;
-        this.soil = false;
+        this.grid.set(this.index, TileGrid.CONCRETE);
     }
 
     /**
@@ -93,19 +109,14 @@ public class TileObject extends GameObject{
      * @return <code>true</code> if grass tile, otherwise <code>false</code>.
      */
     public boolean isGrass() {
-        return this.grass;
+        return this.grid.get(this.index) == TileGrid.GRASS;
     }
 
     /**
      * Sets this tile to a grass tile. Resets other tile types.
      */
     public void setGrass() {
-        this.grass = true;
-        // set other types to false to avoid bug
-        this.concrete = false;
-        this.path = false;
-        this.pathHit = false;
-        this.soil = false;
+        this.grid.set(this.index, TileGrid.GRASS);
     }
 
     /**
@@ -113,19 +124,15 @@ public class TileObject extends GameObject{
      * @return <code>true</code> if path tile, otherwise <code>false</code>.
      */
     public boolean isPath() {
-        return this.path;
+        byte type = this.grid.get(this.index);
+        return type == TileGrid.PATH || type == TileGrid.PATH_HIT;
     }
 
     /**
      * Sets this tile to a path tile. Resets other tile types.
      */
     public void setPath() {
-        this.path = true;
-        // set other types to false to avoid bug
-        this.concrete = false;
-        this.grass = false;
-        this.soil = false;
-        this.pathHit = false;
+        this.grid.set(this.index, TileGrid.PATH);
     }
 
     /**
@@ -133,14 +140,15 @@ public class TileObject extends GameObject{
      * @return <code>true</code> if red path tile, otherwise <code>false</code>.
      */
     public boolean isPathHit() {
-        return this.pathHit;
+        return this.grid.get(this.index) == TileGrid.PATH_HIT;
     }
 
     /**
-     * Sets this tile to a red path tile. Resets other tile types.
+     * Sets this tile to a red path tile. Only path tiles can turn red.
      */
     public void setPathHit() {
-        this.pathHit = true;
+        if (this.isPath())
+            this.grid.set(this.index, TileGrid.PATH_HIT);
     }
 
     /**
@@ -149,8 +157,11 @@ public class TileObject extends GameObject{
      *                  a string key
      */
     public void updateTileSprite(Map<String,PImage> sprites) {
-        // update needed: grass, path, soil
-        if (this.isGrass()) {
+        // update needed: concrete, grass, path, soil
+        if (this.isConcrete()) {
+            this.setSprite(sprites.get("concrete"));
+        }
+        else if (this.isGrass()) {
             this.setSprite(sprites.get("grass"));
         }
         else if (this.isPath()) {
@@ -0,0 +1,111 @@
+package lawnlayer;
+
+import java.util.Arrays;
+
+/**
+ * Set of tiles of a map, e.g.the tiles reached by a flood fill. Stored as one
+ * bitmap per chunk of {@link TileGrid#CHUNK_SIZE} x {@link TileGrid#CHUNK_SIZE}
+ * tiles, only for the chunks with tiles in the set, so it takes memory for the
+ * part of the map marked rather than for the whole map.
+ * <p>
+ * Clearing the set keeps the bitmaps for reuse, so a set cleared and filled
+ * again, e.g.at every capture, allocates only when it grows past its largest
+ * size so far.
+ */
+public class TileSet {
+
+    private static final int CHUNK_SHIFT = 6;
+    private static final int CHUNK_MASK = TileGrid.CHUNK_SIZE - 1;
+
+    private final int rows;
+    private final int cols;
+    private final int chunkCols;
+    // bitmap of each chunk, one word per row of the chunk; null if no tiles
+    private final long[][] chunks;
+    private int[] used = new int[16];
+    private int usedCount;
+    private long[][] pool = new long[16][];
+    private int poolCount;
+
+    /**
+     * Creates a new empty set for a map.
+     * @param rows the number of rows of the map
+     * @param cols the number of columns of the map
+     */
+    public TileSet(int rows, int cols) {
+        this.rows = rows;
+        this.cols = cols;
+        this.chunkCols = (cols + CHUNK_MASK) >> CHUNK_SHIFT;
+        this.chunks = new long[((rows + CHUNK_MASK) >> CHUNK_SHIFT) * this.chunkCols][];
+    }
+
+    /**
+     * Gets the number of rows of the map of this set.
+     * @return the number of rows
+     */
+    public int getRows() {
+        return this.rows;
+    }
+
+    /**
+     * Gets the number of columns of the map of this set.
+     * @return the number of columns
+     */
+    public int getCols() {
+        return this.cols;
+    }
+
+    /**
+     * Checks if a tile is in this set.
+     * @param row the row of the tile
+     * @param col the column of the tile
+     * @return    <code>true</code> if in the set, otherwise <code>false</code>
+     */
+    public boolean contains(int row, int col) {
+        long[] chunk = this.chunks[(row >> CHUNK_SHIFT) * this.chunkCols + (col >> CHUNK_SHIFT)];
+        return chunk != null && (chunk[row & CHUNK_MASK] & (1L << col)) != 0;
+    }
+
+    /**
+     * Adds a tile to this set.
+     * @param row the row of the tile
+     * @param col the column of the tile
+     */
+    public void add(int row, int col) {
+        int c = (row >> CHUNK_SHIFT) * this.chunkCols + (col >> CHUNK_SHIFT);
+        long[] chunk = this.chunks[c];
+        if (chunk == null) {
+            chunk = this.poolCount > 0 ? this.pool[--this.poolCount] 
+                                        : new long[TileGrid.CHUNK_SIZE];
+            this.chunks[c] = chunk;
+            if (this.usedCount == this.used.length)
+                this.used = Arrays.copyOf(this.used, this.usedCount * 2);
+            this.used[this.usedCount++] = c;
+        }
+        chunk[row & CHUNK_MASK] |= 1L << col; // shifts use the low 6 bits of col
+    }
+
+    /**
+     * Removes all tiles from this set. Takes time for the chunks with tiles in
+     * the set, not for the whole map.
+     */
+    public void clear() {
+        for (int i = 0; i < this.usedCount; i++) {
+            long[] chunk = this.chunks[this.used[i]];
+            Arrays.fill(chunk, 0);
+            this.chunks[this.used[i]] = null;
+            if (this.poolCount == this.pool.length)
+                this.pool = Arrays.copyOf(this.pool, this.poolCount * 2);
+            this.pool[this.poolCount++] = chunk;
+        }
+        this.usedCount = 0;
+    }
+
+    /**
+     * Gets the number of chunk bitmaps this set holds, in use or kept for reuse.
+     * @return the number of bitmaps, each for {@link TileGrid#CHUNK_SIZE} squared tiles
+     */
+    public int getChunkCount() {
+        return this.usedCount + this.poolCount;
+    }
+}
@@ -0,0 +1,158 @@
+package lawnlayer;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * The path tiles laid by the player, in the order they were laid. Each tile
+ * remembers its index in the trail, so finding a tile and its neighbours on the
+ * trail takes constant time however long the trail gets.
+ * <p>
+ * A tile is in the trail at most once, and in one trail at a time.
+ */
+public class Trail extends AbstractList<TileObject> implements RandomAccess {
+
+    private TileObject[] tiles = new TileObject[16];
+    private int size;
+
+    public TileObject get(int index) {
+        this.checkIndex(index, this.size);
+        return this.tiles[index];
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Appends a tile to the end of the trail (i.e.next to the player).
+     * @param tile the path tile
+     * @return     <code>true</code>
+     */
+    @Override
+    public boolean add(TileObject tile) {
+        this.grow();
+        tile.setTrailIndex(this.size);
+        this.tiles[this.size++] = tile;
+        this.modCount++;
+        return true;
+    }
+
+    @Override
+    public void add(int index, TileObject tile) {
+        this.checkIndex(index, this.size + 1);
+        this.grow();
+        System.arraycopy(this.tiles, index, this.tiles, index + 1, this.size - index);
+        this.tiles[index] = tile;
+        this.size++;
+        this.reindex(index);
+        this.modCount++;
+    }
+
+    @Override
+    public TileObject set(int index, TileObject tile) {
+        this.checkIndex(index, this.size);
+        TileObject old = this.tiles[index];
+        this.tiles[index] = tile;
+        tile.setTrailIndex(index);
+        return old;
+    }
+
+    @Override
+    public TileObject remove(int index) {
+        this.checkIndex(index, this.size);
+        TileObject old = this.tiles[index];
+        System.arraycopy(this.tiles, index + 1, this.tiles, index, this.size - index - 1);
+        this.tiles[--this.size] = null;
+        this.reindex(index);
+        this.modCount++;
+        return old;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        int index = this.indexOf(o);
+        if (index < 0) return false;
+        this.remove(index);
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(this.tiles, 0, this.size, null);
+        this.size = 0;
+        this.modCount++;
+    }
+
+    /**
+     * Replaces all tiles of the trail, e.g.with the tiles of a snapshot.
+     * @param tiles the path tiles, in the order they were laid
+     */
+    void restore(TileObject[] tiles) {
+        if (tiles.length > this.tiles.length)
+            this.tiles = Arrays.copyOf(this.tiles, Integer.highestOneBit(tiles.length) * 2);
+        Arrays.fill(this.tiles, 0, this.size, null);
+        System.arraycopy(tiles, 0, this.tiles, 0, tiles.length);
+        this.size = tiles.length;
+        this.reindex(0);
+        this.modCount++;
+    }
+
+    /**
+     * Finds a tile in the trail from the index it remembers.
+     * @param o the tile
+     * @return  the index of the tile, -1 if not in the trail
+     */
+    @Override
+    public int indexOf(Object o) {
+        if (!(o instanceof TileObject)) return -1;
+        int index = ((TileObject)o).getTrailIndex();
+        return (index >= 0 && index < this.size && this.tiles[index] == o) ? index : -1;
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        return this.indexOf(o);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return this.indexOf(o) >= 0;
+    }
+
+    /**
+     * Gets the tile laid before a tile (away from the player).
+     * @param tile  the tile in the trail
+     * @return      the previous tile, <code>null</code> if first or not in the trail
+     */
+    public TileObject previous(TileObject tile) {
+        int index = this.indexOf(tile);
+        return (index > 0) ? this.tiles[index - 1] : null;
+    }
+
+    /**
+     * Gets the tile laid after a tile (towards the player).
+     * @param tile  the tile in the trail
+     * @return      the next tile, <code>null</code> if last or not in the trail
+     */
+    public TileObject next(TileObject tile) {
+        int index = this.indexOf(tile);
+        return (index >= 0 && index < this.size - 1) ? this.tiles[index + 1] : null;
+    }
+
+    private void grow() {
+        if (this.size == this.tiles.length)
+            this.tiles = Arrays.copyOf(this.tiles, this.tiles.length * 2);
+    }
+
+    private void reindex(int from) {
+        for (int i = from; i < this.size; i++)
+            this.tiles[i].setTrailIndex(i);
+    }
+
+    private void checkIndex(int index, int bound) {
+        if (index < 0 || index >= bound)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+    }
+}
@@ -15,7 +15,7 @@ public class AgentTest {
     TileObject[][] map;
     TileObject[] allTileObjects;
     TileObject agentTile;
-    HashMap<Integer,TileObject> surroundingTiles;
+    Neighbourhood surroundingTiles;
 
     @BeforeEach
     public void setUp() {
@@ -26,33 +26,31 @@ public class AgentTest {
     public void testConstructor() {
         assertEquals(110, agent.getX());
         assertEquals(110, agent.getY());
-        assertEquals("moveUp", agent.movementIdx.get(0));
-        assertEquals("moveRight", agent.movementIdx.get(1));
-        assertEquals("moveDown", agent.movementIdx.get(2));
-        assertEquals("moveLeft", agent.movementIdx.get(3));
-        for (boolean movement : agent.movements.values()) {
-            assertFalse(movement);
-        }
+        // one bit per direction
+        assertEquals(Agent.UP | Agent.RIGHT | Agent.DOWN | Agent.LEFT, 
+                        Agent.VERTICAL ^ Agent.HORIZONTAL);
+        assertEquals(0, agent.getDirection());
+        assertFalse(agent.isMoving(Agent.UP));
     }
 
     @Test
     public void testMovement() {
-        agent.movements.put("moveUp", true);
+        agent.setDirection(Agent.UP);
         agent.tick();
         assertEquals(110, agent.getX());
         assertEquals(108, agent.getY());
         
-        agent.movements.put("moveRight", true);
+        agent.setDirection(agent.getDirection() | Agent.RIGHT);
         agent.tick();
         assertEquals(112, agent.getX());
         assertEquals(106, agent.getY());
         
-        agent.movements.put("moveDown", true);
+        agent.setDirection(agent.getDirection() | Agent.DOWN);
         agent.tick();
         assertEquals(114, agent.getX());
         assertEquals(106, agent.getY());
         
-        agent.movements.put("moveLeft", true);
+        agent.setDirection(agent.getDirection() | Agent.LEFT);
         agent.tick();
         assertEquals(114, agent.getX());
         assertEquals(106, agent.getY());
@@ -106,7 +104,7 @@ public class AgentTest {
         map = gameboard.parseTiles("level1.txt");
         agentTile = map[1][1]; // agent tile row 1 column 1
 
-        surroundingTiles = agent.getSurroundingTiles(map, agentTile);
+        surroundingTiles = agent.getSurroundingTiles(gameboard.getState().getGrid(), agentTile);
         assertEquals(map[0][0], surroundingTiles.get(1));
         assertEquals(map[0][1], surroundingTiles.get(2));
         assertEquals(map[0][2], surroundingTiles.get(3));
@@ -119,7 +117,7 @@ public class AgentTest {
         // border surrounding
         // left wall - not corner
         agentTile = map[15][0];
-        surroundingTiles = agent.getSurroundingTiles(map, agentTile);
+        surroundingTiles = agent.getSurroundingTiles(gameboard.getState().getGrid(), agentTile);
         assertTrue(surroundingTiles.size()==5);
         assertEquals(map[14][0], surroundingTiles.get(2));
         assertEquals(map[14][1], surroundingTiles.get(3));
@@ -129,7 +127,7 @@ public class AgentTest {
         
         // left wall - top left corner
         agentTile = map[0][0];
-        surroundingTiles = agent.getSurroundingTiles(map, agentTile);
+        surroundingTiles = agent.getSurroundingTiles(gameboard.getState().getGrid(), agentTile);
         assertTrue(surroundingTiles.size()==3);
         assertEquals(map[0][1], surroundingTiles.get(5));
         assertEquals(map[1][0], surroundingTiles.get(7));
@@ -137,7 +135,7 @@ public class AgentTest {
         
         // left wall - bottom left corner
         agentTile = map[31][0];
-        surroundingTiles = agent.getSurroundingTiles(map, agentTile);
+        surroundingTiles = agent.getSurroundingTiles(gameboard.getState().getGrid(), agentTile);
         assertTrue(surroundingTiles.size()==3);
         assertEquals(map[30][0], surroundingTiles.get(2));
         assertEquals(map[30][1], surroundingTiles.get(3));
@@ -145,7 +143,7 @@ public class AgentTest {
 
         // Right wall - not corners
         agentTile = map[15][63];
-        surroundingTiles = agent.getSurroundingTiles(map, agentTile);
+        surroundingTiles = agent.getSurroundingTiles(gameboard.getState().getGrid(), agentTile);
         assertTrue(surroundingTiles.size()==5);
         assertEquals(map[14][62], surroundingTiles.get(1));
         assertEquals(map[14][63], surroundingTiles.get(2));
@@ -155,7 +153,7 @@ public class AgentTest {
 
         // Right wall - top right corner
         agentTile = map[0][63];
-        surroundingTiles = agent.getSurroundingTiles(map, agentTile);
+        surroundingTiles = agent.getSurroundingTiles(gameboard.getState().getGrid(), agentTile);
         assertTrue(surroundingTiles.size()==3);
         assertEquals(map[0][62], surroundingTiles.get(4));
         assertEquals(map[1][62], surroundingTiles.get(6));
@@ -163,7 +161,7 @@ public class AgentTest {
         
         // Right wall - bottom right corner
         agentTile = map[31][63];
-        surroundingTiles = agent.getSurroundingTiles(map, agentTile);
+        surroundingTiles = agent.getSurroundingTiles(gameboard.getState().getGrid(), agentTile);
         assertTrue(surroundingTiles.size()==3);
         assertEquals(map[30][62], surroundingTiles.get(1));
         assertEquals(map[30][63], surroundingTiles.get(2));
@@ -171,7 +169,7 @@ public class AgentTest {
     
         // top wall - not corners
         agentTile = map[0][30];
-        surroundingTiles = agent.getSurroundingTiles(map, agentTile);
+        surroundingTiles = agent.getSurroundingTiles(gameboard.getState().getGrid(), agentTile);
         assertTrue(surroundingTiles.size()==5);
         assertEquals(map[0][29], surroundingTiles.get(4));
         assertEquals(map[0][31], surroundingTiles.get(5));
@@ -181,7 +179,7 @@ public class AgentTest {
 
         // bottom wall - not corners
         agentTile = map[31][30];
-        surroundingTiles = agent.getSurroundingTiles(map, agentTile);
+        surroundingTiles = agent.getSurroundingTiles(gameboard.getState().getGrid(), agentTile);
         assertTrue(surroundingTiles.size()==5);
         assertEquals(map[30][29], surroundingTiles.get(1));
         assertEquals(map[30][30], surroundingTiles.get(2));
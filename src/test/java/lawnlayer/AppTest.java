@@ -84,8 +84,7 @@ public class AppTest {
         gameboard.getPowerup().setY(100);
 
         // check first enemy, remember its movement
-        HashMap<String, Boolean> prevMovement = new HashMap<String, Boolean>();
-        prevMovement.putAll(gameboard.getEnemies().get(0).movements);
+        int prevDirection = gameboard.getEnemies().get(0).getDirection();
         
         gameboard.updatePowerup();
         assertTrue(gameboard.isPowerupInEffect());
@@ -94,8 +93,7 @@ public class AppTest {
                         player.getSprite());
         for (Enemy enemy : gameboard.getEnemies()) {
             assertEquals(gameboard.getSprites().get("enemyFrozen"), enemy.getSprite());
-            for (boolean movement : enemy.movements.values())
-                assertFalse(movement);
+            assertEquals(0, enemy.getDirection());
         }
 
         // check timer decrement
@@ -106,10 +104,7 @@ public class AppTest {
         gameboard.setPowerupTimer(0);
         gameboard.updatePowerup();
         assertFalse(gameboard.isPowerupInEffect());
-        for (Map.Entry<String,Boolean> entry : gameboard.getEnemies()
-                                .get(0).movements.entrySet()) {
-            assertEquals(prevMovement.get(entry.getKey()), entry.getValue());
-        }
+        assertEquals(prevDirection, gameboard.getEnemies().get(0).getDirection());
 
         // Test keys
         gameboard.keyCode = 37; // Left
@@ -0,0 +1,71 @@
+package lawnlayer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import processing.data.JSONObject;
+import java.io.*;
+import java.util.*;
+
+public class BatchRunnerTest {
+
+    private static final String SPEC = "{"
+            + "\"config\": \"test_config.json\","
+            + "\"seeds\": 2,"
+            + "\"seed\": 7,"
+            + "\"maxTicks\": 300,"
+            + "\"sampleInterval\": 100,"
+            + "\"sweep\": {\"goal\": [0.5, 0.8], \"worms\": [2], \"beetles\": [1]}"
+            + "}";
+
+    @Test
+    public void testRun() throws IOException {
+        BatchRunner runner = new BatchRunner(JSONObject.parse(SPEC));
+        assertEquals(4, runner.getRunCount());
+
+        StringWriter out = new StringWriter();
+        runner.run(out, 2);
+        String[] lines = out.toString().split("\n");
+        assertEquals(5, lines.length); // header + 4 games
+        assertTrue(lines[0].startsWith("run,seed,goal"));
+        for (int i = 1; i < lines.length; i++) {
+            String[] columns = lines[i].split(",", -1);
+            assertEquals(12, columns.length);
+            assertEquals("2", columns[3]);
+            assertEquals("1", columns[4]);
+            // grass sampled every 100 ticks
+            int samples = Integer.parseInt(columns[8]) / 100;
+            assertEquals(samples, columns[11].isEmpty() ? 0 : columns[11].split(";").length);
+        }
+    }
+
+    @Test
+    public void testReproducible() throws IOException {
+        // same spec, same results regardless of threads
+        StringWriter first = new StringWriter();
+        StringWriter second = new StringWriter();
+        new BatchRunner(JSONObject.parse(SPEC)).run(first, 1);
+        new BatchRunner(JSONObject.parse(SPEC)).run(second, 3);
+
+        List<String> firstLines = Arrays.asList(first.toString().split("\n"));
+        List<String> secondLines = Arrays.asList(second.toString().split("\n"));
+        Collections.sort(firstLines);
+        Collections.sort(secondLines);
+        assertEquals(firstLines, secondLines);
+    }
+
+    @Test
+    public void testInterrupted() {
+        // an interrupted batch fails instead of leaving a truncated CSV
+        BatchRunner runner = new BatchRunner(JSONObject.parse(SPEC));
+        Thread.currentThread().interrupt();
+        try {
+            assertThrows(InterruptedIOException.class, () -> runner.run(new StringWriter(), 1));
+        } finally {
+            assertTrue(Thread.interrupted());
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package lawnlayer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CameraTest {
+
+    @Test
+    public void testFollow() {
+        // 200 x 100 tiles, view of 64 x 32 tiles
+        TileGrid grid = new TileGrid(100, 200);
+        Camera camera = new Camera(1280, 640);
+        Player player = new Player(0, 0);
+
+        // centred on the player
+        player.setX(2000);
+        player.setY(GameState.TOPBAR() + 1000);
+        camera.follow(player, grid);
+        assertEquals(2000 - 640, camera.getX());
+        assertEquals(1000 - 320, camera.getY());
+        assertEquals((2000 - 640) / 20, camera.getFirstCol());
+        assertEquals((2000 + 640 - 1) / 20, camera.getLastCol());
+        assertEquals((1000 - 320) / 20, camera.getFirstRow());
+
+        // stops at the edges of the tilemap
+        player.setX(10);
+        player.setY(GameState.TOPBAR() + 100 * 20 - 10);
+        camera.follow(player, grid);
+        assertEquals(0, camera.getX());
+        assertEquals(100 * 20 - 640, camera.getY());
+        assertEquals(99, camera.getLastRow());
+
+        // a tilemap smaller than the view is not scrolled
+        camera.follow(player, new TileGrid(32, 64));
+        assertEquals(0, camera.getX());
+        assertEquals(0, camera.getY());
+    }
+
+    @Test
+    public void testVisible() {
+        TileGrid grid = new TileGrid(100, 200);
+        Camera camera = new Camera(1280, 640);
+        Player player = new Player(0, 0);
+        player.setX(2000);
+        player.setY(GameState.TOPBAR() + 1000);
+        camera.follow(player, grid);
+        assertTrue(camera.isVisible(player));
+
+        Enemy enemy = new Enemy(0, 0);
+        enemy.setX(2000 - 640 - 5); // sprite partly in view
+        enemy.setY(GameState.TOPBAR() + 1000);
+        assertTrue(camera.isVisible(enemy));
+        enemy.setX(2000 - 640 - 10);
+        assertFalse(camera.isVisible(enemy));
+        enemy.setX(2000);
+        enemy.setY(GameState.TOPBAR() + 1000 + 320 + 10);
+        assertFalse(camera.isVisible(enemy));
+    }
+}
@@ -19,7 +19,7 @@ public class EnemyTest {
     TileObject[][] map;
     TileObject[] allTileObjects;
     TileObject enemyTile;
-    HashMap<Integer,TileObject>  surroundingTiles;
+    Neighbourhood surroundingTiles;
     Player player;
 
     @BeforeEach
@@ -31,11 +31,10 @@ public class EnemyTest {
     @Test
     public void testConstructor() {
         // only two movements should be true
-        int trueMovement = 0;
-        for (boolean movement : enemyNormal.movements.values()) {
-            if (movement) trueMovement++; 
-        }
-        assertTrue(trueMovement==2);
+        assertTrue(Integer.bitCount(enemyNormal.getDirection())==2);
+        // diagonal, one vertical and one horizontal
+        assertTrue(enemyNormal.isMoving(Agent.VERTICAL) && 
+                    enemyNormal.isMoving(Agent.HORIZONTAL));
         // snap to boundary?
         assertTrue(enemyNormal.getX()==1270);
         assertTrue(enemyNormal.getY()==710);
@@ -45,13 +44,11 @@ public class EnemyTest {
 
     @Test
     public void testFreeze() {
-        Map<String,Boolean> prevMovements = new HashMap<String,Boolean>();
-        prevMovements.putAll(enemyNormal.movements);
+        int prevDirection = enemyNormal.getDirection();
         enemyNormal.freeze();
+        assertEquals(0, enemyNormal.getDirection());
         enemyNormal.unfreeze();
-        for (Map.Entry<String,Boolean> entry : prevMovements.entrySet()) {
-            assertEquals(entry.getValue(), enemyNormal.movements.get(entry.getKey()));
-        }
+        assertEquals(prevDirection, enemyNormal.getDirection());
     }
 
     @Test
@@ -67,7 +64,7 @@ public class EnemyTest {
         allTileObjects = gameboard.allTileObjects();
 
         TileObject originalTile = enemyNormal.getTile(allTileObjects);
-        TileObject newTile = enemyNormal.respawnTile(map);
+        TileObject newTile = enemyNormal.respawnTile(gameboard.getState().getGrid());
         // respawn tile is a different tile
         assertTrue(originalTile != newTile);
         // respawn tile is soil
@@ -90,12 +87,9 @@ public class EnemyTest {
         // s s c
         // s o c
         // s s c
-        enemyNormal.movements.put("moveUp", true);
-        enemyNormal.movements.put("moveRight", true);
-        enemyNormal.movements.put("moveDown", false);
-        enemyNormal.movements.put("moveLeft", false);
+        enemyNormal.setDirection(Agent.UP | Agent.RIGHT);
         enemyTile = map[17][15];
-        surroundingTiles = enemyNormal.getSurroundingTiles(map, enemyTile);
+        surroundingTiles = enemyNormal.getSurroundingTiles(gameboard.getState().getGrid(), enemyTile);
         assertTrue(surroundingTiles.size()==8);
         assertTrue(surroundingTiles.get(1).isSoil() && 
                     surroundingTiles.get(4).isSoil() &&
@@ -105,23 +99,19 @@ public class EnemyTest {
         assertTrue(surroundingTiles.get(3).isConcrete() && 
                     surroundingTiles.get(5).isConcrete() &&
                     surroundingTiles.get(8).isConcrete());
-        enemyNormal.checkCollision(gameboard, enemyTile, surroundingTiles);
+        enemyNormal.checkCollision(gameboard.getState(), enemyTile, surroundingTiles);
 
         assertTrue(!enemyNormal.isReflectTopDown());
         assertTrue(enemyNormal.isReflectLeftRight());
-        assertTrue(enemyNormal.movements.get("moveUp"));
-        assertTrue(enemyNormal.movements.get("moveRight"));
+        assertEquals(Agent.UP | Agent.RIGHT, enemyNormal.getDirection());
 
         // collision checked, now set tile to collide so it would reflect
         // also test wall override
         enemyTile = map[0][63];
-        enemyNormal.checkCollision(gameboard, enemyTile, surroundingTiles);
+        enemyNormal.checkCollision(gameboard.getState(), enemyTile, surroundingTiles);
         assertTrue(enemyNormal.isReflectTopDown());
         assertTrue(enemyNormal.isReflectLeftRight());
-        assertFalse(enemyNormal.movements.get("moveUp"));
-        assertFalse(enemyNormal.movements.get("moveRight"));
-        assertTrue(enemyNormal.movements.get("moveDown"));
-        assertTrue(enemyNormal.movements.get("moveLeft"));
+        assertEquals(Agent.DOWN | Agent.LEFT, enemyNormal.getDirection());
     }
 
     @Test
@@ -144,7 +134,7 @@ public class EnemyTest {
         enemyTile = map[1][1];
         assertTrue(enemyTile==player.getPlayerTile()); // condition 1
         assertTrue(player.isInSoil()); // condition 2
-        enemyNormal.attack(gameboard, player, enemyTile);
+        enemyNormal.attack(gameboard.getState(), player, enemyTile);
         assertTrue(gameboard.getLives()==2);
         // player changed
         assertTrue(gameboard.getPlayer().getTile(allTileObjects)==map[0][0]); // top left
@@ -155,7 +145,7 @@ public class EnemyTest {
         player.setY(100);
         enemyNormal.setVulnerable(true);
         enemyTile = map[1][1];
-        enemyNormal.attack(gameboard, player, enemyTile);
+        enemyNormal.attack(gameboard.getState(), player, enemyTile);
         assertTrue(enemyNormal.getTile(allTileObjects)!=enemyTile);
 
         // test attack path
@@ -163,7 +153,7 @@ public class EnemyTest {
         player.setX(80);
         player.setY(100); // row 1 col 4 (away from enemy tile)
         enemyTile.setPath();
-        enemyNormal.attack(gameboard, player, enemyTile);
+        enemyNormal.attack(gameboard.getState(), player, enemyTile);
         assertTrue(player.isPropogating());
 
         // test beetle special attack
@@ -171,7 +161,7 @@ public class EnemyTest {
         enemyBeetle.setY(120); // row 2 col 2
         enemyTile = map[2][2];
         map[2][2].setGrass();
-        enemyBeetle.attack(gameboard, player, enemyTile);
+        enemyBeetle.attack(gameboard.getState(), player, enemyTile);
         assertTrue(map[2][2].isSoil());
     }
 
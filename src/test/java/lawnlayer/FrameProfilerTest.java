@@ -0,0 +1,49 @@
+package lawnlayer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringWriter;
+
+public class FrameProfilerTest {
+
+    @Test
+    public void testLap() throws Exception {
+        FrameProfiler profiler = new FrameProfiler();
+        long start = profiler.start();
+        long next = profiler.lap(FrameProfiler.Phase.HUD, start);
+        assertTrue(next >= start);
+        profiler.lap(FrameProfiler.Phase.TILES, next);
+        assertEquals(1, profiler.getHistogram(FrameProfiler.Phase.HUD).getCount());
+        assertEquals(1, profiler.getHistogram(FrameProfiler.Phase.TILES).getCount());
+        assertEquals(0, profiler.getHistogram(FrameProfiler.Phase.CAPTURE).getCount());
+
+        profiler.reset();
+        assertEquals(0, profiler.getHistogram(FrameProfiler.Phase.HUD).getCount());
+    }
+
+    @Test
+    public void testDump() throws Exception {
+        FrameProfiler profiler = new FrameProfiler();
+        for (int i = 1; i <= 100; i++)
+            profiler.getHistogram(FrameProfiler.Phase.ENEMIES).record(i * 1000);
+        profiler.getHistogram(FrameProfiler.Phase.PLAYER).record(2500);
+
+        StringWriter out = new StringWriter();
+        profiler.dump(out, 1234);
+        String[] lines = out.toString().split("\\R");
+        // phases not timed are skipped
+        assertEquals(2, lines.length);
+        String[] enemies = lines[0].split("\t");
+        assertEquals("1234", enemies[0]);
+        assertEquals("enemies", enemies[1]);
+        assertEquals("100", enemies[2]);
+        assertEquals(50.0, Double.parseDouble(enemies[3]), 50 * 0.016);
+        assertEquals(100.0, Double.parseDouble(enemies[6]), 0.001);
+        assertTrue(lines[1].startsWith("1234\tplayer\t1\t"));
+
+        assertTrue(profiler.format(FrameProfiler.Phase.ENEMIES).startsWith("enemies "));
+    }
+}
@@ -0,0 +1,40 @@
+package lawnlayer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.SplittableRandom;
+
+public class GameRandomTest {
+
+    @Test
+    public void testSameAsSplittableRandom() {
+        // seeded games play the same as before the streams could be copied
+        GameRandom random = new GameRandom(42);
+        SplittableRandom expected = new SplittableRandom(42);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(expected.nextInt(60), random.nextInt(60));
+            assertEquals(expected.nextInt(64), random.nextInt(64));
+            assertEquals(expected.nextLong(), random.nextLong());
+        }
+        GameRandom split = random.split();
+        SplittableRandom expectedSplit = expected.split();
+        for (int i = 0; i < 1000; i++)
+            assertEquals(expectedSplit.nextInt(1 << 30 | 1), split.nextInt(1 << 30 | 1));
+        assertThrows(IllegalArgumentException.class, () -> random.nextInt(0));
+    }
+
+    @Test
+    public void testCopy() {
+        GameRandom random = new GameRandom(7).split();
+        GameRandom copy = random.copy();
+        long first = random.nextLong();
+        assertEquals(first, copy.nextLong());
+
+        random.restore(copy.copy());
+        assertEquals(copy.nextLong(), random.nextLong());
+        assertThrows(IllegalArgumentException.class, () -> random.restore(new GameRandom(7)));
+    }
+}
@@ -0,0 +1,430 @@
+package lawnlayer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.SplittableRandom;
+
+public class GameStateTest {
+
+    GameState state;
+    Player player;
+
+    @BeforeEach
+    public void setUp() {
+        // no sketch window needed
+        state = new GameState();
+        state.parseJSON("config.json");
+        state.parseLevel(state.getLevelList().get(0));
+        player = state.getPlayer();
+    }
+
+    @Test
+    public void testParsing() {
+        assertEquals(3, state.getLives());
+        assertEquals(2, state.getLevelList().size());
+        // spawns "30,62" and "1,1" are too close to walls
+        assertEquals(2, state.getEnemies().size());
+        assertTrue(state.getTileMap()[0][0].isConcrete());
+        assertTrue(state.getTileMap()[1][1].isSoil());
+        for (Enemy enemy : state.getEnemies())
+            assertTrue(enemy.getTile(state.allTileObjects()).isSoil());
+    }
+
+    @Test
+    public void testStep() {
+        for (int i = 0; i < 1000; i++)
+            state.step();
+        assertEquals(1000, state.getTickCount());
+        assertNotNull(state.getPlayer());
+    }
+
+    @Test
+    public void testPowerup() {
+        assertNull(state.getPowerup());
+        state.setDelayInterval(0);
+        state.updatePowerup();
+        assertNotNull(state.getPowerup());
+
+        // player consumes powerup
+        state.getPowerup().setPowerupKey("ZAWARUDO");
+        state.getPowerup().setX(20);
+        state.getPowerup().setY(100);
+        player.setX(20);
+        player.setY(100); // row 1 col 1
+        player.setPlayerTile(state.allTileObjects());
+        state.updatePowerup();
+        assertEquals("ZAWARUDO", state.getConsumedPowerup());
+        assertTrue(state.isPowerupInEffect());
+        assertNull(state.getPowerup());
+
+        // consumed powerup is only reported once
+        state.updatePowerup();
+        assertNull(state.getConsumedPowerup());
+        assertEquals(599, state.getPowerupTimer());
+    }
+
+    @Test
+    public void testWinLose() {
+        state.setLives(1);
+        state.modifyLife(-1);
+        assertTrue(state.isGameOver());
+        assertFalse(state.isWon());
+
+        // game over stops the simulation
+        state.step();
+        assertEquals(0, state.getTickCount());
+
+        state.setGameOver(false);
+        state.setLives(3);
+        for (TileObject tile : state.allTileObjects()) {
+            if (tile.isSoil()) tile.setGrass();
+        }
+        // switch level
+        state.updateScore();
+        assertTrue(state.getCurrentLevel() == state.getLevelList().get(1));
+        assertFalse(state.isGameOver());
+
+        for (TileObject tile : state.allTileObjects()) {
+            if (tile.isSoil()) tile.setGrass();
+        }
+        // last level won
+        state.updateScore();
+        assertTrue(state.isGameOver());
+        assertTrue(state.isWon());
+    }
+
+    @Test
+    public void testSeed() {
+        // same seed and same inputs, same game
+        GameState first = new GameState(42);
+        GameState second = new GameState(42);
+        for (GameState game : new GameState[] {first, second}) {
+            game.parseJSON("config.json");
+            game.parseLevel(game.getLevelList().get(0));
+            game.getPlayer().pressDown();
+            for (int i = 0; i < 2000; i++)
+                game.step();
+        }
+        assertEquals(first.getDelayInterval(), second.getDelayInterval());
+        assertEquals(first.getEnemies().size(), second.getEnemies().size());
+        for (int i = 0; i < first.getEnemies().size(); i++) {
+            assertEquals(first.getEnemies().get(i).getX(), second.getEnemies().get(i).getX());
+            assertEquals(first.getEnemies().get(i).getY(), second.getEnemies().get(i).getY());
+        }
+        TileObject[] firstTiles = first.allTileObjects();
+        TileObject[] secondTiles = second.allTileObjects();
+        for (int i = 0; i < firstTiles.length; i++)
+            assertEquals(firstTiles[i].isGrass(), secondTiles[i].isGrass());
+        assertEquals(first.getLives(), second.getLives());
+    }
+
+    @Test
+    public void testPreload() throws Exception {
+        // layouts are read in the background as soon as the config is parsed
+        Level next = state.getLevelList().get(1);
+        TileGrid layout = next.preload(Runnable::run).get();
+        assertTrue(next.preload(Runnable::run).isDone());
+
+        // games play on copies of the layout
+        GameState other = new GameState(1);
+        other.getLevelList().add(next);
+        other.parseLevel(next);
+        state.parseLevel(next);
+        assertFalse(state.getGrid() == other.getGrid());
+        assertFalse(state.getGrid() == layout);
+        state.getGrid().set(1, 1, TileGrid.GRASS);
+        assertEquals(TileGrid.SOIL, other.getGrid().get(1, 1));
+        assertEquals(TileGrid.SOIL, layout.get(1, 1));
+        assertEquals(layout.count(TileGrid.CONCRETE), other.getGrid().count(TileGrid.CONCRETE));
+
+        // a layout that cannot be read keeps the current tilemap
+        TileGrid current = state.getGrid();
+        state.parseLevel(new Level("missing.txt", "random", 0.8));
+        assertTrue(state.getGrid() == current);
+    }
+
+    @Test
+    public void testInvalidSpawn() {
+        // enemies with a spawn that cannot be parsed or is too near the walls are skipped
+        GameState game = new GameState(7);
+        Level level = new Level("level1.txt", "random", 0.8);
+        for (String spawn : new String[] {"a,b", "1,1", "5,10"}) {
+            HashMap<String,Object> enemy = new HashMap<String,Object>();
+            enemy.put("type", 0);
+            enemy.put("spawn", spawn);
+            level.addEnemy(enemy);
+        }
+        game.getLevelList().add(level);
+        game.parseLevel(level);
+        assertEquals(1, game.getEnemies().size());
+    }
+
+    @Test
+    public void testParallelEnemies() {
+        // enemies computing their intents in parallel play the same game
+        GameState parallel = new GameState(7);
+        GameState sequential = new GameState(7);
+        parallel.setParallelEnemies(0);
+        sequential.setParallelEnemies(Integer.MAX_VALUE);
+        for (GameState game : new GameState[] {parallel, sequential}) {
+            Level level = new Level("level1.txt", "random", 0.8);
+            for (int i = 0; i < 200; i++) {
+                HashMap<String,Object> enemy = new HashMap<String,Object>();
+                enemy.put("type", i % 2); // worms and beetles
+                enemy.put("spawn", "random");
+                level.addEnemy(enemy);
+            }
+            game.setLives(1000);
+            game.getLevelList().add(level);
+            game.parseLevel(level);
+            game.getPlayer().pressDown();
+            for (int i = 0; i < 1000; i++)
+                game.step();
+        }
+        for (int i = 0; i < 200; i++) {
+            Enemy first = parallel.getEnemies().get(i);
+            Enemy second = sequential.getEnemies().get(i);
+            assertEquals(first.getX(), second.getX());
+            assertEquals(first.getY(), second.getY());
+            assertEquals(first.getDirection(), second.getDirection());
+        }
+        TileGrid firstGrid = parallel.getGrid();
+        TileGrid secondGrid = sequential.getGrid();
+        for (int i = 0; i < firstGrid.getRows() * firstGrid.getCols(); i++)
+            assertEquals(firstGrid.get(i), secondGrid.get(i));
+        assertEquals(parallel.getLives(), sequential.getLives());
+    }
+
+    @Test
+    public void testLargeEncloseArea() {
+        // deep enough to overflow the stack with a recursive fill
+        int rows = 1024;
+        int cols = 1024;
+        TileGrid grid = new TileGrid(rows, cols);
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                if (i == 0 || j == 0 || i == rows-1 || j == cols-1 || j == cols/2)
+                    grid.set(i, j, TileGrid.CONCRETE);
+            }
+        }
+        List<TileObject> area = new ArrayList<TileObject>();
+        player.getEncloseArea(grid, 1, 1, area);
+        assertEquals((rows-2) * (cols/2 - 1), area.size());
+        for (TileObject tile : area)
+            assertTrue(tile.getCol() < cols/2);
+    }
+
+    @Test
+    public void testFillPockets() {
+        // two paths split the soil into 3 pockets, enemy in the middle one
+        TileGrid grid = new TileGrid(10, 20);
+        TileObject[][] map = grid.getTileMap();
+        for (int i = 0; i < 10; i++) {
+            for (int j = 0; j < 20; j++) {
+                if (i == 0 || j == 0 || i == 9 || j == 19)
+                    map[i][j].setConcrete();
+            }
+        }
+        for (int i = 1; i < 9; i++) {
+            map[i][5].setPath();
+            player.getPathTiles().add(map[i][5]);
+            map[i][12].setPath();
+            player.getPathTiles().add(map[i][12]);
+        }
+        int[] labels = new int[10 * 20];
+        assertEquals(3, Player.labelAreas(grid, labels));
+        assertEquals(0, labels[grid.index(1, 5)]);
+        assertEquals(labels[grid.index(1, 1)], labels[grid.index(8, 4)]);
+        assertFalse(labels[grid.index(1, 1)] == labels[grid.index(1, 6)]);
+
+        Enemy enemy = new Enemy(0, 0);
+        enemy.setX(map[4][8].getX());
+        enemy.setY(map[4][8].getY());
+        player.getTailCorners()[0] = map[1][4];
+        player.getTailCorners()[1] = map[1][6];
+        player.fillGrass(grid, Collections.singletonList(enemy));
+
+        // both pockets without the enemy and the paths are filled
+        assertEquals(8*4 + 8*6 + 16, grid.count(TileGrid.GRASS));
+        assertEquals(8*6, grid.count(TileGrid.SOIL));
+        assertTrue(map[4][8].isSoil());
+        assertTrue(player.getPathTiles().isEmpty());
+    }
+
+    @Test
+    public void testFillNextToPath() {
+        // a wall splits the map, the path only splits the left side
+        TileGrid grid = new TileGrid(10, 20);
+        TileObject[][] map = grid.getTileMap();
+        for (int i = 0; i < 10; i++) {
+            for (int j = 0; j < 20; j++) {
+                if (i == 0 || j == 0 || i == 9 || j == 19 || j == 10)
+                    map[i][j].setConcrete();
+            }
+        }
+        for (int i = 1; i < 9; i++) {
+            map[i][5].setPath();
+            player.getPathTiles().add(map[i][5]);
+        }
+        Enemy enemy = new Enemy(0, 0);
+        enemy.setX(map[4][7].getX());
+        enemy.setY(map[4][7].getY());
+        player.getTailCorners()[0] = map[8][4];
+        player.getTailCorners()[1] = map[8][6];
+        player.fillGrass(grid, Collections.singletonList(enemy));
+
+        // the pocket without the enemy and the path are filled, the right side
+        // has no enemy but the path never touched it
+        assertEquals(8*4 + 8, grid.count(TileGrid.GRASS));
+        assertTrue(map[4][2].isGrass());
+        assertTrue(map[4][7].isSoil());
+        assertTrue(map[4][15].isSoil());
+
+        // the scratch is reused for the next capture
+        for (int i = 1; i < 9; i++) {
+            map[i][14].setPath();
+            player.getPathTiles().add(map[i][14]);
+        }
+        player.getTailCorners()[0] = map[8][13];
+        player.getTailCorners()[1] = map[8][15];
+        player.fillGrass(grid, Collections.singletonList(enemy));
+        assertEquals(8*4 + 8 + 8*7 + 8, grid.count(TileGrid.GRASS));
+        assertTrue(map[4][7].isSoil());
+    }
+
+    @Test
+    public void testTileLookup() {
+        TileObject[][] map = state.getTileMap();
+        TileObject[] allTileObjects = state.allTileObjects();
+        Agent agent = new Agent(0, 0);
+        for (TileObject tile : allTileObjects) {
+            // any pixel of the tile
+            agent.setX(tile.getX() - GameState.SPRITESIZE()/2);
+            agent.setY(tile.getY() + GameState.SPRITESIZE()/2 - 1);
+            assertTrue(agent.getTile(allTileObjects) == tile);
+            assertTrue(agent.getTile(map) == tile);
+        }
+
+        // outside the tilemap
+        agent.setX(-1);
+        agent.setY(100);
+        assertNull(agent.getTile(map));
+        assertNull(agent.getTile(allTileObjects));
+        agent.setX(20);
+        agent.setY(GameState.TOPBAR() - 1);
+        assertNull(agent.getTile(map));
+        assertNull(agent.getTile(allTileObjects));
+
+        // any order of tiles
+        List<TileObject> shuffled = new ArrayList<TileObject>(Arrays.asList(allTileObjects));
+        Collections.reverse(shuffled);
+        agent.setX(30);
+        agent.setY(110);
+        assertTrue(agent.getTile(shuffled.toArray(new TileObject[0])) == map[1][1]);
+    }
+
+    @Test
+    public void testLiveScore() {
+        // level 1 of config.json has 1760 non-concrete tiles
+        TileObject[][] map = state.getTileMap();
+        map[1][1].setGrass();
+        assertEquals(1.0, state.getScore());
+        for (int j = 1; j < 20; j++)
+            map[2][j].setGrass();
+        assertEquals(2.0, state.getScore());
+
+        // beetle eats grass, score drops without rescanning
+        Beetle beetle = new Beetle(20, 100); // row 1 col 1
+        beetle.attack(state, player, beetle.getTile(map));
+        assertTrue(map[1][1].isSoil());
+        assertEquals(19, state.getGrid().count(TileGrid.GRASS));
+        assertEquals(Math.ceil(19 / 1760.0 * 100), state.getScore());
+    }
+
+    /**
+     * Steps a game with arrow keys pressed from a random stream.
+     */
+    private static void playKeys(GameState game, SplittableRandom keys, int ticks) {
+        for (int i = 0; i < ticks; i++) {
+            if (keys.nextInt(15) == 0)
+                game.keyPressed(37 + keys.nextInt(4));
+            game.step();
+        }
+    }
+
+    @Test
+    public void testProfiler() {
+        GameState game = new GameState(9);
+        game.parseJSON("config.json");
+        game.setLives(1000);
+        game.parseLevel(game.getLevelList().get(0));
+        GameState timed = new GameState(9);
+        timed.parseJSON("config.json");
+        timed.setLives(1000);
+        timed.parseLevel(timed.getLevelList().get(0));
+        FrameProfiler profiler = new FrameProfiler();
+        timed.setProfiler(profiler);
+        assertTrue(timed.getProfiler() == profiler);
+
+        // timing does not change the game
+        playKeys(game, new SplittableRandom(2), 2000);
+        playKeys(timed, new SplittableRandom(2), 2000);
+        assertEquals(game.checksum(), timed.checksum());
+        long ticks = timed.getTickCount();
+        assertEquals(ticks, profiler.getHistogram(FrameProfiler.Phase.ENEMIES).getCount());
+        assertEquals(ticks, profiler.getHistogram(FrameProfiler.Phase.PLAYER).getCount());
+        assertEquals(ticks, profiler.getHistogram(FrameProfiler.Phase.POWERUP).getCount());
+        assertTrue(timed.getGrid().count(TileGrid.GRASS) > 0);
+        assertTrue(profiler.getHistogram(FrameProfiler.Phase.CAPTURE).getCount() > 0);
+        assertEquals(0, profiler.getHistogram(FrameProfiler.Phase.TILES).getCount());
+    }
+
+    @Test
+    public void testSnapshot() {
+        GameState game = new GameState(9);
+        game.parseJSON("config.json");
+        game.setLives(1000);
+        game.parseLevel(game.getLevelList().get(0));
+        playKeys(game, new SplittableRandom(1), 500);
+        GameState.Snapshot snapshot = game.snapshot();
+        assertEquals(500, snapshot.getTickCount());
+        long start = game.checksum();
+        int trail = game.getPlayer().getPathTiles().size();
+
+        // same game again from the snapshot, random streams included
+        playKeys(game, new SplittableRandom(2), 3000);
+        long end = game.checksum();
+        assertTrue(game.getGrid().count(TileGrid.GRASS) > 0);
+        game.restore(snapshot);
+        assertEquals(start, game.checksum());
+        assertEquals(trail, game.getPlayer().getPathTiles().size());
+        playKeys(game, new SplittableRandom(2), 3000);
+        assertEquals(end, game.checksum());
+
+        // a snapshot of another level switches back to its tilemap
+        TileGrid grid = game.getGrid();
+        game.restore(snapshot);
+        game.parseLevel(game.getLevelList().get(1));
+        assertFalse(game.getGrid() == grid);
+        game.restore(snapshot);
+        assertTrue(game.getGrid() == grid);
+        assertEquals(start, game.checksum());
+        assertEquals(game.getEnemies().size(), game.getAgents().size() - 1
+                        - (game.getPowerup() == null ? 0 : 1));
+        assertThrows(IllegalArgumentException.class, () -> state.restore(snapshot));
+    }
+}
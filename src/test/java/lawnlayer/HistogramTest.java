@@ -0,0 +1,72 @@
+package lawnlayer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+public class HistogramTest {
+
+    @Test
+    public void testSmallValuesExact() {
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.getPercentile(50));
+        for (int i = 1; i <= 100; i++)
+            histogram.record(i);
+        histogram.record(-5); // counts as 0
+        assertEquals(101, histogram.getCount());
+        assertEquals(100, histogram.getMax());
+        assertEquals(0, histogram.getPercentile(0));
+        assertEquals(50, histogram.getPercentile(50));
+        assertEquals(98, histogram.getPercentile(98)); // 99th of 0..100
+        assertEquals(100, histogram.getPercentile(100));
+    }
+
+    @Test
+    public void testPercentiles() {
+        // durations from 1 us to 100 ms, spread over the powers of two
+        SplittableRandom random = new SplittableRandom(3);
+        long[] values = new long[100000];
+        Histogram histogram = new Histogram();
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (long)Math.pow(10, 3 + random.nextDouble() * 5);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        for (double percentile : new double[] {1, 10, 50, 90, 99, 99.9}) {
+            long expected = values[(int)Math.ceil(percentile / 100 * values.length) - 1];
+            long actual = histogram.getPercentile(percentile);
+            assertTrue(actual >= expected && actual <= expected * 1.016,
+                        percentile + ": " + actual + " for " + expected);
+        }
+        assertEquals(values[values.length - 1], histogram.getMax());
+        assertEquals(histogram.getMax(), histogram.getPercentile(100));
+
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, histogram.getPercentile(100));
+    }
+
+    @Test
+    public void testAddAndReset() {
+        Histogram first = new Histogram();
+        Histogram second = new Histogram();
+        for (int i = 0; i < 1000; i++) {
+            first.record(1000);
+            second.record(5000);
+        }
+        second.record(9000);
+        first.add(second);
+        assertEquals(2001, first.getCount());
+        assertEquals(9000, first.getMax());
+        assertEquals(1000, first.getPercentile(49.9), 1000 * 0.016);
+        assertEquals(5000, first.getPercentile(99), 5000 * 0.016);
+
+        first.reset();
+        assertEquals(0, first.getCount());
+        assertEquals(0, first.getMax());
+        assertEquals(0, first.getPercentile(99));
+    }
+}
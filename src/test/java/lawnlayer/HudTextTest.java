@@ -0,0 +1,38 @@
+package lawnlayer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import processing.awt.PGraphicsJava2D;
+import processing.core.PApplet;
+import processing.core.PFont;
+import java.awt.Font;
+
+public class HudTextTest {
+
+    @Test
+    public void testRenderOnChange() {
+        // off-screen graphics only, no sketch window
+        PApplet app = new PApplet();
+        app.g = new PGraphicsJava2D();
+        app.g.setParent(app);
+        app.g.setPrimary(false);
+        app.g.setSize(200, 100);
+        app.g.beginDraw();
+        PFont font = new PFont(new Font(Font.MONOSPACED, Font.PLAIN, 28), true);
+
+        HudText hud = new HudText(font, 28);
+        for (int i = 0; i < 60; i++)
+            hud.draw(app, "Lives:3", 100, 50);
+        assertEquals("Lives:3", hud.getText());
+        assertEquals(1, hud.getRenderCount());
+
+        // rendered again only when the value changes
+        hud.draw(app, "Lives:2", 100, 50);
+        hud.draw(app, "Lives:2", 100, 50);
+        assertEquals(2, hud.getRenderCount());
+        assertTrue(app.textWidth("Lives:2") > 0);
+    }
+}
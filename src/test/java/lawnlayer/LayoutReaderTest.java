@@ -0,0 +1,84 @@
+package lawnlayer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.FileNotFoundException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+
+public class LayoutReaderTest {
+
+    private static TileGrid parse(String layout) {
+        return LayoutReader.parse(ByteBuffer.wrap(layout.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    @Test
+    public void testParse() {
+        // both line endings, empty lines skipped
+        TileGrid grid = parse("XXXX\r\nX  X\n\nX XX\r\nXXXX");
+        assertEquals(4, grid.getRows());
+        assertEquals(4, grid.getCols());
+        assertEquals(TileGrid.SOIL, grid.get(1, 1));
+        assertEquals(TileGrid.CONCRETE, grid.get(2, 2));
+        assertEquals(16 - 3, grid.count(TileGrid.CONCRETE));
+
+        assertThrows(IllegalArgumentException.class, () -> parse("XXXX\nX X\nXXXX\n"));
+        assertThrows(IllegalArgumentException.class, () -> parse("XXXX\nX  X\nXX X\n"));
+        assertThrows(IllegalArgumentException.class, () -> parse("XXX\n  X\nXXX\n"));
+        assertThrows(IllegalArgumentException.class, () -> parse("\r\n\n"));
+    }
+
+    @Test
+    public void testRead() throws Exception {
+        // from a file, same as the layout used by the game
+        TileGrid grid = LayoutReader.read("level1.txt");
+        assertEquals(32, grid.getRows());
+        assertEquals(64, grid.getCols());
+
+        // from the resources of the package, if there is no such file
+        ByteBuffer bytes = LayoutReader.readBytes("sprites.properties");
+        byte[] expected = Files.readAllBytes(
+                Paths.get("src/main/resources/lawnlayer/sprites.properties"));
+        assertEquals(ByteBuffer.wrap(expected), bytes);
+        assertThrows(FileNotFoundException.class, () -> LayoutReader.read("missing.txt"));
+    }
+
+    @Test
+    public void testCompiled() throws Exception {
+        Path levels = Files.createTempDirectory("levels");
+        Path compiled = levels.resolve("level1" + LevelFile.EXTENSION);
+        String previous = System.getProperty(LayoutReader.LEVELS_PROPERTY);
+        try {
+            // a compiled layout that differs from the text, to tell them apart
+            TileGrid grid = LayoutReader.read("level1.txt");
+            grid.set(5, 5, TileGrid.CONCRETE);
+            LevelFile.write(grid, compiled);
+            assertEquals(null, LayoutReader.getCompiled("level1.txt"));
+
+            System.setProperty(LayoutReader.LEVELS_PROPERTY, levels.toString());
+            assertEquals(compiled, LayoutReader.getCompiled("level1.txt"));
+            assertEquals(TileGrid.CONCRETE, LayoutReader.read("level1.txt").get(5, 5));
+            assertEquals(null, LayoutReader.getCompiled("level2.txt"));
+
+            // the text layout changed since it was compiled
+            Files.setLastModifiedTime(compiled, FileTime.fromMillis(0));
+            assertEquals(null, LayoutReader.getCompiled("level1.txt"));
+            assertEquals(TileGrid.SOIL, LayoutReader.read("level1.txt").get(5, 5));
+        } finally {
+            if (previous == null)
+                System.clearProperty(LayoutReader.LEVELS_PROPERTY);
+            else
+                System.setProperty(LayoutReader.LEVELS_PROPERTY, previous);
+            Files.deleteIfExists(compiled);
+            Files.delete(levels);
+        }
+    }
+}
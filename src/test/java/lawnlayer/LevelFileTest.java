@@ -0,0 +1,103 @@
+package lawnlayer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+public class LevelFileTest {
+
+    private static void assertSameTiles(TileGrid expected, TileGrid actual) {
+        assertEquals(expected.getRows(), actual.getRows());
+        assertEquals(expected.getCols(), actual.getCols());
+        for (int i = 0; i < expected.getRows() * expected.getCols(); i++)
+            assertEquals(expected.get(i), actual.get(i));
+        assertEquals(expected.count(TileGrid.CONCRETE), actual.count(TileGrid.CONCRETE));
+        assertEquals(expected.count(TileGrid.SOIL), actual.count(TileGrid.SOIL));
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        Path path = Files.createTempFile("level1", LevelFile.EXTENSION);
+        try {
+            TileGrid grid = LayoutReader.read("level1.txt");
+            LevelFile written = LevelFile.write(grid, path);
+            LevelFile level = LevelFile.read(path);
+            assertSameTiles(grid, level.getGrid());
+            assertEquals(written.getChecksum(), level.getChecksum());
+            assertEquals(Player.labelAreas(grid, new int[32 * 64]),
+                            level.getSoilAreas());
+
+            // same grid through the layout reader
+            assertSameTiles(grid, LayoutReader.read(path.toString()));
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void testChunks() throws Exception {
+        // width not a multiple of 64, a full concrete chunk and a mixed chunk
+        TileGrid grid = new TileGrid(130, 100);
+        Random random = new Random(3);
+        for (int i = 0; i < 64; i++) {
+            for (int j = 0; j < 64; j++)
+                grid.set(i, j, TileGrid.CONCRETE);
+        }
+        for (int n = 0; n < 500; n++)
+            grid.set(64 + random.nextInt(66), random.nextInt(100), TileGrid.CONCRETE);
+        for (int i = 0; i < 130; i++) {
+            grid.set(i, 0, TileGrid.CONCRETE);
+            grid.set(i, 99, TileGrid.CONCRETE);
+        }
+        for (int j = 0; j < 100; j++) {
+            grid.set(0, j, TileGrid.CONCRETE);
+            grid.set(129, j, TileGrid.CONCRETE);
+        }
+        grid.compact();
+
+        Path path = Files.createTempFile("chunks", LevelFile.EXTENSION);
+        try {
+            LevelFile.write(grid, path);
+            TileGrid read = LevelFile.read(path).getGrid();
+            assertSameTiles(grid, read);
+            assertEquals(grid.getAllocatedChunks(), read.getAllocatedChunks());
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void testInvalid() throws Exception {
+        Path path = Files.createTempFile("invalid", LevelFile.EXTENSION);
+        try {
+            LevelFile.write(LayoutReader.read("level1.txt"), path);
+            byte[] bytes = Files.readAllBytes(path);
+
+            // corrupted bitmap
+            byte[] corrupted = bytes.clone();
+            corrupted[LevelFile.HEADER_SIZE + 20] ^= 1;
+            assertThrows(IllegalArgumentException.class,
+                            () -> LevelFile.parse(ByteBuffer.wrap(corrupted)));
+            // truncated
+            assertThrows(IllegalArgumentException.class,
+                            () -> LevelFile.parse(ByteBuffer.wrap(bytes, 0, bytes.length - 8)));
+            // a text layout
+            assertThrows(IllegalArgumentException.class,
+                            () -> LevelFile.parse(LayoutReader.readBytes("level1.txt")));
+
+            // soil on the border, with a valid checksum
+            TileGrid grid = LayoutReader.read("level1.txt");
+            grid.set(0, 5, TileGrid.SOIL);
+            LevelFile.write(grid, path);
+            assertThrows(IllegalArgumentException.class, () -> LevelFile.read(path));
+        } finally {
+            Files.delete(path);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package lawnlayer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class NeighbourhoodTest {
+
+    @Test
+    public void testFill() {
+        TileGrid grid = new TileGrid(4, 5);
+        TileObject[][] map = grid.getTileMap();
+        Neighbourhood neighbourhood = new Neighbourhood();
+
+        assertTrue(neighbourhood == neighbourhood.fill(grid, map[1][1]));
+        assertEquals(8, neighbourhood.size());
+        assertTrue(map[0][0] == neighbourhood.get(1));
+        assertTrue(map[1][2] == neighbourhood.get(5));
+        assertTrue(map[2][2] == neighbourhood.get(8));
+
+        // corner, slots beyond the tilemap are emptied
+        neighbourhood.fill(grid, map[3][4]);
+        assertEquals(3, neighbourhood.size());
+        assertTrue(map[2][3] == neighbourhood.get(1));
+        assertTrue(map[3][3] == neighbourhood.get(4));
+        assertNull(neighbourhood.get(5));
+        assertNull(neighbourhood.get(8));
+    }
+
+    @Test
+    public void testBlocked() {
+        TileGrid grid = new TileGrid(4, 5);
+        TileObject[][] map = grid.getTileMap();
+        Neighbourhood neighbourhood = new Neighbourhood();
+        // s s c
+        // s o c
+        // s g c
+        map[0][3].setConcrete();
+        map[1][3].setConcrete();
+        map[2][3].setConcrete();
+        map[2][2].setGrass();
+
+        neighbourhood.fill(grid, map[1][2]);
+        assertEquals(1<<3 | 1<<5 | 1<<7 | 1<<8, neighbourhood.getBlocked());
+        assertEquals(3, neighbourhood.countBlocked(Neighbourhood.RIGHT));
+        assertEquals(2, neighbourhood.countBlocked(Neighbourhood.DOWN));
+        assertEquals(1, neighbourhood.countBlocked(Neighbourhood.TOP));
+        assertEquals(0, neighbourhood.countBlocked(Neighbourhood.LEFT));
+
+        // refilled in place
+        neighbourhood.fill(grid, map[1][1]);
+        assertEquals(1<<8, neighbourhood.getBlocked());
+    }
+}
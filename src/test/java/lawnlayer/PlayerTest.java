@@ -17,7 +17,7 @@ public class PlayerTest {
     Player player;
     TileObject playerTile;
     TileObject[][] map;
-    HashMap<Integer,TileObject> surroundingTiles;
+    Neighbourhood surroundingTiles;
     List<TileObject> pathTiles;
 
     @BeforeEach
@@ -92,7 +92,7 @@ public class PlayerTest {
         map = gameboard.parseTiles("level1.txt");
         playerTile = player.getTile(gameboard.allTileObjects());
 
-        surroundingTiles = player.getSurroundingTiles(map, playerTile);
+        surroundingTiles = player.getSurroundingTiles(gameboard.getState().getGrid(), playerTile);
         player.setKeyUp(true);
         player.setFrontBackTile(surroundingTiles);
         assertEquals(map[0][1], player.getFrontTile());
@@ -138,7 +138,7 @@ public class PlayerTest {
         assertFalse(player.atPathCorner()); // reseted
 
         // test player die all path tiles should be cleaned
-        player.die(gameboard);
+        player.die(gameboard.getState());
         assertTrue(map[1][1].isSoil());
         assertTrue(map[1][2].isSoil());
     }
@@ -200,7 +200,7 @@ public class PlayerTest {
         
         // --------------------------------------
         // both corner empty situation, both area have enemies
-        player.fillGrass(map, gameboard.allTileObjects(), enemies);
+        player.fillGrass(gameboard.getState().getGrid(), enemies);
         int numOfGrass = 0;
         for (TileObject tile : gameboard.allTileObjects()) {
             if (tile.isGrass()) numOfGrass++;   
@@ -225,7 +225,7 @@ public class PlayerTest {
         map[30][31].setSoil();
         player.getPathTiles().remove(map[30][31]);
 
-        player.fillGrass(map, gameboard.allTileObjects(), enemies);
+        player.fillGrass(gameboard.getState().getGrid(), enemies);
         numOfGrass = 0;
         for (TileObject tile : gameboard.allTileObjects()) {
             if (tile.isGrass()) numOfGrass++;
@@ -247,7 +247,7 @@ public class PlayerTest {
         map[1][32].setSoil();
         // both areas no enemies
         enemies.clear();
-        player.fillGrass(map, gameboard.allTileObjects(), enemies);
+        player.fillGrass(gameboard.getState().getGrid(), enemies);
         numOfGrass = 0;
         int numOfConcrete = 0;
         for (TileObject tile : gameboard.allTileObjects()) {
@@ -270,7 +270,7 @@ public class PlayerTest {
         // both corners not empty situation
         map[1][30].setConcrete();
         map[1][32].setConcrete();
-        player.fillGrass(map, gameboard.allTileObjects(), enemies);
+        player.fillGrass(gameboard.getState().getGrid(), enemies);
         numOfGrass = 0;
         for (TileObject tile : gameboard.allTileObjects()) {
             if (tile.isGrass()) numOfGrass++;
@@ -0,0 +1,112 @@
+package lawnlayer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.SplittableRandom;
+
+public class ReplayTest {
+
+    /**
+     * Plays and records a game of random arrow keys, like a session of the app.
+     */
+    private static Replay recordGame(GameState state, int ticks) throws Exception {
+        state.parseJSON("config.json");
+        state.parseLevel(state.getLevelList().get(0));
+        Replay recording = Replay.record(state, "config.json");
+
+        SplittableRandom keys = new SplittableRandom(5);
+        int held = -1;
+        for (int i = 0; i < ticks; i++) {
+            if (keys.nextInt(15) == 0) {
+                if (held >= 0) {
+                    recording.recordKey(state.getTickCount(), held, false);
+                    state.keyReleased(held);
+                }
+                held = 37 + keys.nextInt(4);
+                recording.recordKey(state.getTickCount(), held, true);
+                state.keyPressed(held);
+            }
+            state.step();
+            recording.recordStep(state);
+        }
+        return recording;
+    }
+
+    @Test
+    public void testRecordAndReplay() throws Exception {
+        GameState state = new GameState(11);
+        Replay recording = recordGame(state, 2000);
+        assertEquals(recording.getTicks() / Replay.KEYFRAME_INTERVAL, recording.getKeyframeCount());
+        assertTrue(recording.getEventCount() > 100);
+
+        Path path = Files.createTempFile("session", Replay.EXTENSION);
+        try {
+            recording.write(path);
+            // about 2 bytes per key event
+            assertTrue(Files.size(path) < 100 + recording.getEventCount() * 3
+                                            + recording.getKeyframeCount() * 8);
+            Replay replay = Replay.read(path);
+            assertEquals(recording.getSeed(), replay.getSeed());
+            assertEquals(recording.getTicks(), replay.getTicks());
+            assertEquals(recording.getEventCount(), replay.getEventCount());
+
+            Replayer replayer = new Replayer(replay);
+            assertEquals(recording.getTicks(), replayer.run());
+            assertTrue(replayer.isFinished());
+            assertFalse(replayer.step());
+            assertEquals(state.checksum(), replayer.getState().checksum());
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void testSeek() throws Exception {
+        Replay recording = recordGame(new GameState(3), 1500);
+        Replayer replayer = new Replayer(recording);
+        replayer.seek(1300);
+        assertEquals(1300, replayer.getTick());
+        long checksum = replayer.getState().checksum();
+
+        // back, then forward again to the same game
+        replayer.seek(100);
+        assertEquals(100, replayer.getTick());
+        replayer.seek(1300);
+        assertEquals(checksum, replayer.getState().checksum());
+        replayer.seek(10000);
+        assertEquals(1500, replayer.getTick());
+    }
+
+    @Test
+    public void testOutOfStep() throws Exception {
+        Replay recording = recordGame(new GameState(3), 700);
+        Replayer replayer = new Replayer(recording);
+        replayer.seek(100);
+        // a change not in the recording, caught at the keyframe of tick 600
+        GameState state = replayer.getState();
+        state.setLives(state.getLives() + 1);
+        assertThrows(IllegalStateException.class, () -> replayer.run());
+
+        // config changed since the recording
+        Path config = Files.createTempFile("config", ".json");
+        try {
+            Files.write(config, Files.readAllBytes(Paths.get("config.json")));
+            Replay other = new Replay(3, config.toString(),
+                                        Replay.hashConfig(config.toString()), 600);
+            new Replayer(other);
+            Files.write(config, "{}".getBytes(StandardCharsets.US_ASCII));
+            assertThrows(IllegalArgumentException.class, () -> new Replayer(other));
+        } finally {
+            Files.delete(config);
+        }
+    }
+}
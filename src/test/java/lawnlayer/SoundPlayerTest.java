@@ -0,0 +1,52 @@
+package lawnlayer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.FileNotFoundException;
+
+public class SoundPlayerTest {
+
+    @Test
+    public void testLoad() throws Exception {
+        SoundPlayer sound = new SoundPlayer(2);
+        sound.load("zawarudo.wav");
+        // 266380 stereo frames
+        assertNotNull(sound.getSamples("zawarudo.wav"));
+        assertEquals(266380 * 2, sound.getSamples("zawarudo.wav").length);
+        assertThrows(FileNotFoundException.class, () -> sound.load("missing.wav"));
+        assertFalse(sound.play("missing.wav"));
+    }
+
+    @Test
+    public void testVoicePool() throws Exception {
+        // mixing only, no audio line needed
+        SoundPlayer sound = new SoundPlayer(2);
+        sound.load("rick.wav");
+        short[] samples = sound.getSamples("rick.wav");
+        byte[] buffer = new byte[4096];
+
+        assertTrue(sound.play("rick.wav"));
+        assertTrue(sound.play("rick.wav"));
+        assertTrue(sound.play("rick.wav")); // restarts a busy voice
+        sound.mix(buffer);
+        assertEquals(2, sound.getActiveVoices());
+
+        // two voices of the same sound in step, mixed and clamped
+        for (int i = 0; i < buffer.length / 2; i++) {
+            int mixed = (short)((buffer[2*i] & 0xFF) | (buffer[2*i+1] << 8));
+            int expected = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, 2 * samples[i]));
+            assertEquals(expected, mixed);
+        }
+
+        // voices are freed when the sound ends
+        for (int i = 0; i < samples.length * 2 / buffer.length + 1; i++)
+            sound.mix(buffer);
+        assertEquals(0, sound.getActiveVoices());
+    }
+}
@@ -0,0 +1,154 @@
+package lawnlayer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class SpatialIndexTest {
+
+    @Test
+    public void testMove() {
+        TileObject[][] map = new TileGrid(4, 5).getTileMap();
+        SpatialIndex index = new SpatialIndex(4, 5);
+        Player player = new Player(0, 0);
+        Enemy enemy = new Enemy(0, 0);
+        Powerup powerup = new Powerup(0, 0);
+
+        index.move(player, map[1][1]);
+        index.move(enemy, map[1][1]);
+        index.move(powerup, map[2][3]);
+        assertEquals(3, index.size());
+        assertTrue(index.find(map[1][1], Player.class) == player);
+        assertTrue(index.find(map[1][1], Enemy.class) == enemy);
+        assertTrue(index.find(1, 1, Agent.class) != null);
+        assertNull(index.find(map[1][1], Powerup.class));
+
+        // crossing to another tile
+        index.move(player, map[1][2]);
+        index.move(player, map[1][2]); // same tile
+        assertEquals(3, index.size());
+        assertNull(index.find(map[1][1], Player.class));
+        assertTrue(index.find(map[1][2], Player.class) == player);
+        assertTrue(index.find(map[1][1], Enemy.class) == enemy);
+
+        // outside the tilemap
+        index.move(enemy, null);
+        assertFalse(index.contains(enemy));
+        assertNull(index.find(map[1][1], Enemy.class));
+        assertNull(index.find(-1, 0, Agent.class));
+        assertNull(index.find(4, 0, Agent.class));
+        index.remove(powerup);
+        index.remove(powerup);
+        assertEquals(1, index.size());
+
+        // an agent is in one index at a time
+        SpatialIndex other = new SpatialIndex(4, 5);
+        other.move(player, map[0][0]);
+        assertFalse(index.contains(player));
+        assertEquals(0, index.size());
+        assertTrue(other.find(map[0][0], Player.class) == player);
+    }
+
+    @Test
+    public void testQuery() {
+        TileObject[][] map = new TileGrid(10, 10).getTileMap();
+        SpatialIndex index = new SpatialIndex(10, 10);
+        List<Enemy> enemies = new ArrayList<Enemy>();
+        for (int i = 0; i < 10; i++) {
+            for (int j = 0; j < 10; j++) {
+                Enemy enemy = new Enemy(0, 0);
+                enemies.add(enemy);
+                index.move(enemy, map[i][j]);
+            }
+        }
+        List<Agent> found = new ArrayList<Agent>();
+        assertEquals(9, index.query(5, 5, 1, Enemy.class, found));
+        assertEquals(9, found.size());
+        assertTrue(found.contains(enemies.get(4 * 10 + 4)));
+        assertTrue(found.contains(enemies.get(6 * 10 + 6)));
+        assertFalse(found.contains(enemies.get(7 * 10 + 5)));
+
+        // corner, cells beyond the tilemap skipped
+        found.clear();
+        assertEquals(4, index.query(0, 0, 1, Enemy.class, found));
+        assertEquals(0, index.query(0, 0, 1, Player.class, found));
+        assertEquals(100, index.query(5, 5, 10, Agent.class, new ArrayList<Agent>()));
+
+        // rectangle, e.g.the tiles in view
+        found.clear();
+        assertEquals(3 * 2, index.query(2, 7, 4, 8, Enemy.class, found));
+        assertTrue(found.contains(enemies.get(4 * 10 + 8)));
+        assertEquals(10, index.query(-5, 9, 20, 9, Enemy.class, found));
+    }
+
+    @Test
+    public void testCells() {
+        TileObject[][] map = new TileGrid(20, 20).getTileMap();
+        SpatialIndex index = new SpatialIndex(20, 20, 4);
+        Enemy a = new Enemy(0, 0);
+        Enemy b = new Enemy(0, 0);
+        Player player = new Player(0, 0);
+
+        // same cell, different tiles
+        index.move(a, map[4][4]);
+        index.move(b, map[7][7]);
+        assertTrue(index.find(map[4][4], Enemy.class) == a);
+        assertTrue(index.find(map[7][7], Enemy.class) == b);
+        assertNull(index.find(map[5][5], Enemy.class));
+        index.move(a, map[5][6]); // within the cell
+        assertNull(index.find(map[4][4], Enemy.class));
+        assertTrue(index.find(map[5][6], Enemy.class) == a);
+
+        // queries across cell borders only collect tiles in the rectangle
+        List<Agent> found = new ArrayList<Agent>();
+        assertEquals(1, index.query(3, 3, 5, 6, Enemy.class, found));
+        assertTrue(found.contains(a));
+        index.move(player, map[8][8]); // next cell
+        assertEquals(2, index.query(7, 7, 1, Agent.class, found));
+        assertEquals(0, index.query(0, 0, 3, 3, Agent.class, found));
+
+        // last cells are partial
+        index.move(b, map[19][19]);
+        assertTrue(index.find(19, 19, Enemy.class) == b);
+        assertEquals(3, index.size());
+
+        // cleared in place
+        index.clear();
+        assertEquals(0, index.size());
+        assertFalse(index.contains(a));
+        assertNull(index.find(map[8][8], Player.class));
+        index.move(player, map[8][8]);
+        assertEquals(1, index.size());
+        assertTrue(index.find(map[8][8], Player.class) == player);
+    }
+
+    @Test
+    public void testGameAgents() {
+        GameState state = new GameState(1);
+        state.parseJSON("config.json");
+        state.parseLevel(state.getLevelList().get(0));
+        TileObject[][] map = state.getTileMap();
+        SpatialIndex agents = state.getAgents();
+
+        // player and enemies are indexed in their tiles
+        assertEquals(1 + state.getEnemies().size(), agents.size());
+        assertTrue(agents.find(state.getPlayer().getPlayerTile(), Player.class)
+                        == state.getPlayer());
+        for (int i = 0; i < 100; i++)
+            state.step();
+        for (Enemy enemy : state.getEnemies())
+            assertTrue(agents.contains(enemy));
+
+        // dead player leaves the index
+        Player player = state.getPlayer();
+        state.newPlayer();
+        assertFalse(agents.contains(player));
+        assertTrue(agents.find(map[0][0], Player.class) == state.getPlayer());
+    }
+}
@@ -0,0 +1,39 @@
+package lawnlayer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import processing.core.PImage;
+import java.io.*;
+import java.util.*;
+
+public class SpriteAtlasTest {
+
+    @Test
+    public void testLoad() throws IOException {
+        Properties files = new Properties();
+        try (InputStream in = SpriteAtlas.class.getResourceAsStream("sprites.properties")) {
+            files.load(in);
+        }
+        Map<String,PImage> sprites = SpriteAtlas.load();
+        assertEquals(files.stringPropertyNames(), sprites.keySet());
+
+        // packed or not, same pixels as the single image files
+        for (String key : files.stringPropertyNames()) {
+            PImage sprite = sprites.get(key);
+            assertEquals(GameState.SPRITESIZE(), sprite.width);
+            assertEquals(GameState.SPRITESIZE(), sprite.height);
+            assertArrayEquals(SpriteAtlas.loadImage(files.getProperty(key)).pixels, sprite.pixels);
+        }
+    }
+
+    @Test
+    public void testLoadImage() throws IOException {
+        PImage win = SpriteAtlas.loadImage("win.jpg");
+        assertEquals(640, win.width);
+        assertThrows(FileNotFoundException.class, () -> SpriteAtlas.loadImage("missing.png"));
+    }
+}
@@ -0,0 +1,229 @@
+package lawnlayer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class TileGridTest {
+
+    @Test
+    public void testViews() {
+        TileGrid grid = new TileGrid(3, 4);
+        TileObject[][] map = grid.getTileMap();
+        assertEquals(3, map.length);
+        assertEquals(4, map[0].length);
+        // same views every time
+        assertTrue(map == grid.getTileMap());
+        assertTrue(map[2][3] == grid.getTile(2, 3));
+        assertEquals(2, map[2][3].getRow());
+        assertEquals(3, map[2][3].getCol());
+
+        // views read and write the grid
+        assertTrue(map[1][2].isSoil());
+        map[1][2].setGrass();
+        assertEquals(TileGrid.GRASS, grid.get(1, 2));
+        assertEquals(TileGrid.GRASS, grid.get(grid.index(1, 2)));
+        grid.set(1, 2, TileGrid.CONCRETE);
+        assertTrue(map[1][2].isConcrete());
+        assertFalse(map[1][2].isGrass());
+        assertFalse(map[1][2].isSoil());
+    }
+
+    @Test
+    public void testOneTypePerTile() {
+        TileObject tile = new TileGrid(1, 1).getTile(0, 0);
+        // only path tiles turn red
+        tile.setPathHit();
+        assertFalse(tile.isPathHit());
+        assertTrue(tile.isSoil());
+
+        tile.setPath();
+        tile.setPathHit();
+        assertTrue(tile.isPath());
+        assertTrue(tile.isPathHit());
+        assertFalse(tile.isSoil());
+
+        tile.setGrass();
+        assertFalse(tile.isPath());
+        assertFalse(tile.isPathHit());
+        assertTrue(tile.isGrass());
+    }
+
+    @Test
+    public void testCopy() {
+        TileGrid grid = new TileGrid(2, 2);
+        TileObject view = grid.getTile(0, 1);
+        view.setPath();
+
+        TileGrid copy = grid.copy();
+        assertEquals(TileGrid.PATH, copy.get(0, 1));
+        // copies are independent
+        copy.set(0, 1, TileGrid.GRASS);
+        assertTrue(view.isPath());
+
+        // restoring keeps existing views
+        grid.copyFrom(copy);
+        assertTrue(view.isGrass());
+        assertThrows(IllegalArgumentException.class, () -> grid.copyFrom(new TileGrid(3, 2)));
+    }
+
+    @Test
+    public void testTiles() {
+        TileGrid grid = new TileGrid(3, 4);
+        TileObject[] tiles = grid.getTiles();
+        assertEquals(12, tiles.length);
+        // cached, no new array per call
+        assertTrue(tiles == grid.getTiles());
+        for (int i = 0; i < 3; i++)
+            for (int j = 0; j < 4; j++)
+                assertTrue(tiles[grid.index(i, j)] == grid.getTile(i, j));
+    }
+
+    @Test
+    public void testCounts() {
+        TileGrid grid = new TileGrid(3, 4);
+        List<Byte> changes = new ArrayList<Byte>();
+        grid.addListener((g, index, from, to) -> changes.add(to));
+        assertEquals(12, grid.count(TileGrid.SOIL));
+
+        grid.getTile(0, 0).setConcrete();
+        grid.getTile(1, 1).setPath();
+        grid.getTile(1, 1).setPathHit();
+        grid.getTile(2, 2).setGrass();
+        grid.getTile(2, 2).setGrass(); // no change
+        assertEquals(9, grid.count(TileGrid.SOIL));
+        assertEquals(1, grid.count(TileGrid.CONCRETE));
+        assertEquals(0, grid.count(TileGrid.PATH));
+        assertEquals(1, grid.count(TileGrid.PATH_HIT));
+        assertEquals(1, grid.count(TileGrid.GRASS));
+        assertEquals(Arrays.asList(TileGrid.CONCRETE, TileGrid.PATH, 
+                        TileGrid.PATH_HIT, TileGrid.GRASS), changes);
+
+        // counts are copied with the types
+        TileGrid copy = grid.copy();
+        assertEquals(1, copy.count(TileGrid.GRASS));
+        copy.set(2, 2, TileGrid.SOIL);
+        grid.copyFrom(copy);
+        assertEquals(0, grid.count(TileGrid.GRASS));
+        assertEquals(10, grid.count(TileGrid.SOIL));
+        assertEquals(-1, (byte)changes.get(changes.size()-1));
+    }
+
+    @Test
+    public void testChunks() {
+        // 4096 x 4096 tiles, 64 x 64 chunks
+        int size = 4096;
+        TileGrid grid = new TileGrid(size, size);
+        assertEquals(0, grid.getAllocatedChunks());
+        assertEquals(TileGrid.SOIL, grid.get(size-1, size-1));
+
+        // concrete border and a square of concrete, then compacted
+        for (int n = 0; n < size; n++) {
+            grid.set(0, n, TileGrid.CONCRETE);
+            grid.set(size-1, n, TileGrid.CONCRETE);
+            grid.set(n, 0, TileGrid.CONCRETE);
+            grid.set(n, size-1, TileGrid.CONCRETE);
+        }
+        for (int i = 128; i < 256; i++)
+            for (int j = 128; j < 256; j++)
+                grid.set(i, j, TileGrid.CONCRETE);
+        assertEquals(4 * 63 + 4, grid.getAllocatedChunks());
+        grid.compact();
+        assertEquals(4 * 63, grid.getAllocatedChunks());
+        assertEquals(4 * (size-1) + 128 * 128, grid.count(TileGrid.CONCRETE));
+
+        // shared concrete chunks are copied on write
+        TileObject tile = grid.getTile(200, 200);
+        assertTrue(tile.isConcrete());
+        tile.setGrass();
+        assertTrue(grid.getTile(200, 201).isConcrete());
+        assertEquals(TileGrid.GRASS, grid.get(grid.index(200, 200)));
+        assertEquals(4 * 63 + 1, grid.getAllocatedChunks());
+
+        // copies share nothing that can be written
+        TileGrid copy = grid.copy();
+        copy.set(130, 130, TileGrid.PATH);
+        copy.set(1000, 1000, TileGrid.PATH);
+        assertEquals(TileGrid.CONCRETE, grid.get(130, 130));
+        assertEquals(TileGrid.SOIL, grid.get(1000, 1000));
+        assertThrows(IllegalArgumentException.class, () -> new TileGrid(1 << 16, 1 << 16));
+    }
+
+    @Test
+    public void testCompactEdge() {
+        // chunks beyond the edges of the grid are only partly used
+        TileGrid grid = new TileGrid(70, 70);
+        for (int i = 0; i < 70; i++)
+            for (int j = 0; j < 70; j++)
+                grid.set(i, j, TileGrid.CONCRETE);
+        grid.compact();
+        assertEquals(3, grid.getAllocatedChunks());
+        grid.set(69, 69, TileGrid.SOIL);
+        grid.set(69, 69, TileGrid.CONCRETE);
+        for (int i = 0; i < 70; i++)
+            for (int j = 0; j < 70; j++)
+                assertEquals(TileGrid.CONCRETE, grid.get(i, j));
+
+        // all soil again frees the chunk
+        for (int i = 64; i < 70; i++)
+            for (int j = 64; j < 70; j++)
+                grid.set(i, j, TileGrid.SOIL);
+        grid.compact();
+        assertEquals(2, grid.getAllocatedChunks());
+        assertEquals(70 * 70 - 36, grid.count(TileGrid.CONCRETE));
+    }
+
+    @Test
+    public void testChecksum() {
+        // same tiles, same checksum however the chunks are stored
+        TileGrid grid = new TileGrid(128, 70);
+        for (int i = 0; i < 64; i++)
+            for (int j = 0; j < 64; j++)
+                grid.set(i, j, TileGrid.CONCRETE);
+        TileGrid copy = grid.copy();
+        grid.compact();
+        assertEquals(copy.checksum(), grid.checksum());
+        copy.set(100, 3, TileGrid.GRASS);
+        assertNotEquals(copy.checksum(), grid.checksum());
+        copy.set(100, 3, TileGrid.SOIL);
+        assertEquals(copy.checksum(), grid.checksum());
+        assertNotEquals(new TileGrid(70, 128).checksum(), new TileGrid(128, 70).checksum());
+    }
+
+    @Test
+    public void testSnapshot() {
+        // 256 x 256 tiles, 4 x 4 chunks
+        TileGrid grid = new TileGrid(256, 256);
+        for (int i = 0; i < 256; i++)
+            for (int j = 0; j < 256; j++)
+                grid.set(i, j, (i + j) % 3 == 0 ? TileGrid.CONCRETE : TileGrid.GRASS);
+        TileObject tile = grid.getTile(5, 6);
+        long checksum = grid.checksum();
+        TileGrid.Snapshot snapshot = grid.snapshot();
+        assertTrue(snapshot.getGrid() == grid);
+
+        // chunks are copied on the first write after the snapshot only
+        grid.set(5, 6, TileGrid.PATH);
+        grid.set(5, 8, TileGrid.PATH);
+        grid.set(200, 200, TileGrid.SOIL);
+        assertTrue(tile.isPath());
+        grid.restore(snapshot);
+        assertEquals(checksum, grid.checksum());
+        assertTrue(tile.isGrass());
+        assertEquals(0, grid.count(TileGrid.PATH));
+
+        // restored again after more changes
+        grid.set(0, 0, TileGrid.SOIL);
+        grid.restore(snapshot);
+        assertEquals(checksum, grid.checksum());
+        assertThrows(IllegalArgumentException.class, () -> new TileGrid(256, 256).restore(snapshot));
+    }
+}
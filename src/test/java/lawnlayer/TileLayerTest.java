@@ -0,0 +1,117 @@
+package lawnlayer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import processing.awt.PGraphicsJava2D;
+import processing.core.PApplet;
+import processing.core.PConstants;
+import processing.core.PGraphics;
+import processing.core.PImage;
+import java.util.*;
+
+public class TileLayerTest {
+
+    @Test
+    public void testDirtyTiles() {
+        PApplet app = offscreenApp();
+        TileLayer tileLayer = new TileLayer(solidSprites());
+        TileGrid grid = new TileGrid(2, 3);
+        grid.set(0, 0, TileGrid.CONCRETE);
+        Camera camera = new Camera(1280, 640);
+
+        // first draw bakes the whole grid, in one block
+        tileLayer.draw(app, grid, camera);
+        PGraphics block = tileLayer.getBlock(0, 0);
+        assertNotNull(block);
+        assertEquals(1, tileLayer.getBlockCount());
+        assertEquals(TileLayer.BLOCK_SIZE * 20, block.width);
+        assertEquals(0, tileLayer.getDirtyCount());
+        assertEquals(0xFF000001, block.get(5, 5));
+        assertEquals(0, block.get(25, 5)); // soil is transparent
+
+        // only changed tiles are redrawn
+        grid.set(1, 2, TileGrid.GRASS);
+        grid.getTile(0, 1).setPath();
+        grid.getTile(0, 1).setPathHit();
+        assertEquals(2, tileLayer.getDirtyCount());
+        tileLayer.draw(app, grid, camera);
+        assertEquals(0, tileLayer.getDirtyCount());
+        assertEquals(0xFF000002, block.get(45, 25));
+        assertEquals(0xFF000004, block.get(25, 5));
+
+        // eaten grass is cleared
+        grid.set(1, 2, TileGrid.SOIL);
+        tileLayer.draw(app, grid, camera);
+        assertEquals(0, block.get(45, 25));
+
+        // a new grid is redrawn in full, the old one is no longer tracked
+        TileGrid next = new TileGrid(2, 3);
+        tileLayer.draw(app, next, camera);
+        assertEquals(0, tileLayer.getBlock(0, 0).get(5, 5));
+        grid.set(1, 1, TileGrid.GRASS);
+        assertTrue(tileLayer.getDirtyCount() == 0);
+    }
+
+    @Test
+    public void testBlocksInView() {
+        PApplet app = offscreenApp();
+        TileLayer tileLayer = new TileLayer(solidSprites());
+        // 3 x 3 blocks, view of 20 x 20 tiles
+        int size = TileLayer.BLOCK_SIZE * 3;
+        TileGrid grid = new TileGrid(size, size);
+        grid.set(size-1, size-1, TileGrid.CONCRETE);
+        Camera camera = new Camera(400, 400);
+        Player player = new Player(0, 0);
+
+        // only the blocks in view are kept
+        player.setX(0);
+        player.setY(GameState.TOPBAR());
+        camera.follow(player, grid);
+        tileLayer.draw(app, grid, camera);
+        assertEquals(4, tileLayer.getBlockCount());
+        assertNotNull(tileLayer.getBlock(1, 1));
+        assertNull(tileLayer.getBlock(2, 2));
+
+        // changes out of view are drawn when the block comes into view
+        grid.set(size-2, size-1, TileGrid.GRASS);
+        assertEquals(0, tileLayer.getDirtyCount());
+        player.setX(size * 20);
+        player.setY(GameState.TOPBAR() + size * 20);
+        camera.follow(player, grid);
+        tileLayer.draw(app, grid, camera);
+        assertEquals(4, tileLayer.getBlockCount());
+        assertNull(tileLayer.getBlock(0, 0));
+        PGraphics corner = tileLayer.getBlock(2, 2);
+        int last = (TileLayer.BLOCK_SIZE - 1) * 20 + 5;
+        assertEquals(0xFF000001, corner.get(last, last));
+        assertEquals(0xFF000002, corner.get(last, last - 20));
+        assertEquals(0, corner.get(5, 5));
+    }
+
+    // off-screen graphics only, no sketch window
+    private PApplet offscreenApp() {
+        PApplet app = new PApplet();
+        app.g = new PGraphicsJava2D();
+        app.g.setParent(app);
+        app.g.setPrimary(false);
+        app.g.setSize(100, 100);
+        app.g.beginDraw();
+        return app;
+    }
+
+    private Map<String,PImage> solidSprites() {
+        Map<String,PImage> sprites = new HashMap<String,PImage>();
+        String[] keys = {"concrete", "grass", "path", "hitPath"};
+        for (int k = 0; k < keys.length; k++) {
+            PImage sprite = new PImage(20, 20, PConstants.ARGB);
+            Arrays.fill(sprite.pixels, 0xFF000000 | (k+1));
+            sprites.put(keys[k], sprite);
+        }
+        return sprites;
+    }
+}
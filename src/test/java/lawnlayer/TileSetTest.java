@@ -0,0 +1,49 @@
+package lawnlayer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TileSetTest {
+
+    @Test
+    public void testAddAndContains() {
+        // size not a multiple of the chunks
+        TileSet set = new TileSet(130, 100);
+        assertEquals(0, set.getChunkCount());
+        set.add(0, 0);
+        set.add(0, 63);
+        set.add(0, 64);
+        set.add(129, 99);
+        assertTrue(set.contains(0, 0));
+        assertTrue(set.contains(0, 63));
+        assertTrue(set.contains(0, 64));
+        assertTrue(set.contains(129, 99));
+        assertFalse(set.contains(0, 1));
+        assertFalse(set.contains(64, 0));
+        assertFalse(set.contains(1, 64));
+        // only the chunks with tiles have a bitmap
+        assertEquals(3, set.getChunkCount());
+    }
+
+    @Test
+    public void testClear() {
+        TileSet set = new TileSet(4096, 4096);
+        for (int i = 128; i < 192; i++) {
+            for (int j = 1024; j < 1152; j++)
+                set.add(i, j);
+        }
+        assertEquals(2, set.getChunkCount());
+        set.clear();
+        assertFalse(set.contains(150, 1050));
+
+        // cleared bitmaps are reused
+        for (int i = 3000; i < 3064; i++)
+            set.add(i, 10);
+        assertTrue(set.contains(3010, 10));
+        assertFalse(set.contains(150, 1050));
+        assertEquals(2, set.getChunkCount());
+    }
+}
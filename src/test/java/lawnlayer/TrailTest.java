@@ -0,0 +1,68 @@
+package lawnlayer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class TrailTest {
+
+    @Test
+    public void testIndex() {
+        TileObject[][] map = new TileGrid(1, 40).getTileMap();
+        Trail trail = new Trail();
+        for (TileObject tile : map[0])
+            trail.add(tile);
+        assertEquals(40, trail.size());
+        for (int i = 0; i < 40; i++) {
+            assertEquals(i, trail.indexOf(map[0][i]));
+            assertTrue(trail.get(i) == map[0][i]);
+        }
+        assertEquals(-1, trail.indexOf(new TileObject(0, 0)));
+        assertFalse(trail.contains("not a tile"));
+
+        // neighbours along the trail
+        assertNull(trail.previous(map[0][0]));
+        assertTrue(trail.next(map[0][0]) == map[0][1]);
+        assertTrue(trail.previous(map[0][39]) == map[0][38]);
+        assertNull(trail.next(map[0][39]));
+        assertNull(trail.next(new TileObject(0, 0)));
+        assertThrows(IndexOutOfBoundsException.class, () -> trail.get(40));
+    }
+
+    @Test
+    public void testRemove() {
+        TileObject[][] map = new TileGrid(1, 5).getTileMap();
+        Trail trail = new Trail();
+        trail.addAll(Arrays.asList(map[0]));
+
+        // later tiles shift down
+        assertTrue(trail.remove(map[0][1]));
+        assertFalse(trail.remove(map[0][1]));
+        assertEquals(-1, trail.indexOf(map[0][1]));
+        assertEquals(1, trail.indexOf(map[0][2]));
+        assertTrue(trail.next(map[0][0]) == map[0][2]);
+
+        trail.add(0, map[0][1]);
+        assertEquals(0, trail.indexOf(map[0][1]));
+        assertEquals(1, trail.indexOf(map[0][0]));
+        assertEquals(Arrays.asList(map[0][1], map[0][0], map[0][2], map[0][3], map[0][4]), trail);
+
+        // cleared tiles are no longer found, even with a stale index
+        List<TileObject> copy = new ArrayList<TileObject>(trail);
+        trail.clear();
+        assertTrue(trail.isEmpty());
+        for (TileObject tile : copy)
+            assertFalse(trail.contains(tile));
+        trail.add(map[0][4]);
+        assertFalse(trail.contains(map[0][1]));
+        assertEquals(0, trail.indexOf(map[0][4]));
+    }
+}